@@ -31,11 +31,12 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import com.sun.javatest.Status;
-import com.sun.javatest.TestResult;
 import com.sun.javatest.TestSuite;
 import com.sun.javatest.WorkDirectory;
 import com.sun.javatest.util.I18NResourceBundle;
@@ -47,9 +48,7 @@ public abstract class Diff {
     protected boolean diff(List<File> files, File outFile)
             throws Fault, InterruptedException {
         this.outFile = outFile;
-        List<DiffReader> list = new ArrayList<>();
-        for (File f: files)
-            list.add(open(f));
+        List<ResultIndex.Column> columns = read(files);
 
         PrintWriter prevOut = out;
         if (outFile != null) {
@@ -66,21 +65,14 @@ public abstract class Diff {
             initReporter();
             reporter.setTitle(title);
             reporter.setComparator(comparator);
-            reporter.setReaders(list);
 
             List<int[]> testCounts = new ArrayList<>();
-            MultiMap<String, TestResult> table = new MultiMap<>();
-            for (DiffReader r: list) {
-                int index = table.addColumn(r.getFile().getPath());
-                int[] counts = new int[Status.NUM_STATES];
-                for (TestResult tr: r) {
-                    table.addRow(index, tr.getTestName(), tr);
-                    counts[tr.getStatus().getType()]++;
-                }
-                testCounts.add(counts);
-            }
+            for (ResultIndex.Column c: columns)
+                testCounts.add(c.getTestCounts());
             reporter.setTestCounts(testCounts);
 
+            ResultTable table = new ResultTable(getIndex(), columns);
+
             try {
                 reporter.write(table);
             } catch (IOException e) {
@@ -128,6 +120,68 @@ public abstract class Diff {
             comparator = new StatusComparator(includeReason);
     }
 
+    /**
+     * Returns the index in which to record the results that are read.
+     */
+    protected synchronized ResultIndex getIndex() {
+        if (index == null)
+            index = new ResultIndex(includeReason);
+        return index;
+    }
+
+    /**
+     * Reads the results for a list of files.
+     * If more than one job may be used, the files are read concurrently.
+     */
+    protected List<ResultIndex.Column> read(List<File> files) throws Fault, InterruptedException {
+        List<ResultIndex.Column> list = new ArrayList<>();
+        if (jobs <= 1 || files.size() <= 1) {
+            for (File f: files)
+                list.add(read(f));
+            return list;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(jobs, files.size()));
+        try {
+            List<Future<ResultIndex.Column>> futures = new ArrayList<>();
+            for (File f: files)
+                futures.add(executor.submit(() -> read(f)));
+            for (Future<ResultIndex.Column> f: futures)
+                list.add(getResult(f));
+            return list;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the results for a file into a new column of the index.
+     */
+    protected ResultIndex.Column read(File f) throws Fault, InterruptedException {
+        return getIndex().read(open(f));
+    }
+
+    /**
+     * Returns the result of a task, rethrowing any fault that occurred
+     * while the task was being executed.
+     */
+    static <T> T getResult(Future<T> f) throws Fault, InterruptedException {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof Fault)
+                throw (Fault) t;
+            if (t instanceof InterruptedException)
+                throw (InterruptedException) t;
+            if (t instanceof RuntimeException)
+                throw (RuntimeException) t;
+            if (t instanceof Error)
+                throw (Error) t;
+            throw new IllegalStateException(t);
+        }
+    }
+
     protected DiffReader open(File f) throws Fault {
         if (!f.exists())
             throw new Fault(i18n, "main.cantFindFile", f);
@@ -151,10 +205,12 @@ public abstract class Diff {
 
     protected File outFile;
     protected PrintWriter out;
-    protected Comparator<TestResult> comparator;
+    protected StatusComparator comparator;
     protected Reporter reporter;
     protected boolean includeReason;
     protected String format;
     protected String title;
+    protected int jobs = 1;
+    private ResultIndex index;
     private static final I18NResourceBundle i18n = I18NResourceBundle.getBundleForClass(Diff.class);
 }
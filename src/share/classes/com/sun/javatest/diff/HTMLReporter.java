@@ -29,10 +29,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Date;
-import java.util.Map;
 
 import com.sun.javatest.Status;
-import com.sun.javatest.TestResult;
 import com.sun.javatest.util.I18NResourceBundle;
 
 import static com.sun.javatest.util.HTMLWriter.*;
@@ -53,7 +51,7 @@ public class HTMLReporter extends Reporter {
         this.out.setI18NResourceBundle(i18n);
     }
 
-    public void write(MultiMap<String, TestResult> table) throws IOException {
+    public void write(ResultTable table) throws IOException {
         this.table = table;
         size = table.getColumns();
 
@@ -203,10 +201,9 @@ public class HTMLReporter extends Reporter {
 
     private void writeMainTable() throws IOException {
         diffs = 0;
-        for (Map.Entry<String, MultiMap.Entry<TestResult>> e: table.entrySet()) {
-            String testName = e.getKey();
-            MultiMap.Entry<TestResult> result = e.getValue();
-            if (result.allEqual(comparator))
+        for (int row = 0; row < table.getRows(); row++) {
+            String testName = table.getTestName(row);
+            if (table.allEqual(row, comparator))
                 continue;
             if (diffs == 0) {
                 out.startTag(H2);
@@ -221,7 +218,7 @@ public class HTMLReporter extends Reporter {
                 out.startTag(TH);
                 out.writeI18N("html.th.test");
                 out.endTag(TH);
-                for (int i = 0; i < result.getSize(); i++) {
+                for (int i = 0; i < size; i++) {
                     out.startTag(TH);
                     if (compact)
                         out.write(String.valueOf(i + 1));
@@ -238,18 +235,12 @@ public class HTMLReporter extends Reporter {
             out.startTag(TD);
             out.write(testName);
             out.endTag(TD);
-            for (int i = 0; i < result.getSize(); i++) {
-                TestResult tr = result.get(i);
-                File trFile = (tr == null ? null : tr.getFile());
-                if (trFile == null) {
-                    File wd = readers.get(i).getWorkDirectory();
-                    if (wd != null)
-                        trFile = new File(wd, tr.getWorkRelativePath());
-                }
+            for (int i = 0; i < size; i++) {
+                File trFile = table.getResultFile(row, i);
                 out.startTag(TD);
-                Status s = (tr == null ? null : tr.getStatus());
-                out.writeAttr(CLASS, getClassAttr(s));
-                String text = getText(s);
+                int type = table.getType(row, i);
+                out.writeAttr(CLASS, getClassAttr(type));
+                String text = getText(type);
                 if (trFile != null && trFile.exists()) {
                     out.startTag(A);
                     out.writeAttr(HREF, trFile.toURI().toString());
@@ -284,8 +275,8 @@ public class HTMLReporter extends Reporter {
         out.endTag(P);
     }
 
-    protected String getClassAttr(Status s) {
-        switch (s == null ? Status.NOT_RUN : s.getType()) {
+    protected String getClassAttr(int type) {
+        switch (type) {
             case Status.PASSED:
                 return PASS;
             case Status.FAILED:
@@ -297,7 +288,7 @@ public class HTMLReporter extends Reporter {
         }
     }
 
-    protected String getText(Status s) {
+    protected String getText(int type) {
         if (statusStrings == null) {
             statusStrings = new String[Status.NUM_STATES];
             if (compact) {
@@ -312,13 +303,13 @@ public class HTMLReporter extends Reporter {
                 statusStrings[Status.NOT_RUN] = i18n.getString("html.notRun");
             }
         }
-        return statusStrings[s == null ? Status.NOT_RUN : s.getType()];
+        return statusStrings[type];
     }
 
     private String[] statusStrings;
 
     protected final HTMLWriter out;
-    private MultiMap<String, TestResult> table;
+    private ResultTable table;
     private int size;
 
     private static final String DOCTYPE = "<!DOCTYPE HTML>";
@@ -69,6 +69,18 @@ public class Main {
                 superMode = true;
             }
         },
+        new Option(STD, COMPARE, "jobs", "-j", "-jobs") {
+            @Override
+            public void process(String opt, String arg) throws BadArgs {
+                try {
+                    jobs = Integer.parseInt(arg);
+                } catch (NumberFormatException e) {
+                    jobs = 0;
+                }
+                if (jobs < 1)
+                    throw new BadArgs(i18n, "main.bad.jobs", arg);
+            }
+        },
         new Option(OLD, OUTPUT, "o", "-o", "-outFile") {
             @Override
             public void process(String opt, String arg) {
@@ -210,6 +222,7 @@ public class Main {
         d.includeReason = includeReason;
         d.format = format;
         d.title = title;
+        d.jobs = jobs;
 
         return d.report(outFile);
     }
@@ -227,6 +240,7 @@ public class Main {
     private File outFile;
     private final List<File> fileArgs = new ArrayList<>();
     private boolean superMode;
+    private int jobs = 1;
     private Help help;
 
     private static final I18NResourceBundle i18n = I18NResourceBundle.getBundleForClass(Main.class);
@@ -34,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 import com.sun.javatest.Status;
 import com.sun.javatest.TestDescription;
@@ -87,9 +88,8 @@ public class ReportReader implements DiffReader {
         return readSummary().iterator();
     }
 
-    private List<TestResult> readSummary() {
-        List<TestResult> list = new ArrayList<>();
-        File root = getRoot();
+    @Override
+    public void read(BiConsumer<String, Status> action) {
         File f;
         if (file.isFile() && file.getName().equals(SUMMARY_TXT))
             f = file;
@@ -100,19 +100,25 @@ public class ReportReader implements DiffReader {
         else
             throw new IllegalStateException();
 
-        try {
-            BufferedReader in = new BufferedReader(new FileReader(f));
+        try (BufferedReader in = new BufferedReader(new FileReader(f))) {
             String line;
             while ((line = in.readLine()) != null) {
                 int sp = line.indexOf(' ');
                 String t = line.substring(0, sp);
                 Status s = Status.parse(line.substring(sp).trim());
-                TestDescription td = new TestDescription(root, new File(t), Collections.emptyMap());
-                TestResult tr = new TestResult(td, s);
-                list.add(tr);
+                action.accept(t, s);
             }
         } catch (IOException e) {
         }
+    }
+
+    private List<TestResult> readSummary() {
+        List<TestResult> list = new ArrayList<>();
+        File root = getRoot();
+        read((t, s) -> {
+            TestDescription td = new TestDescription(root, new File(t), Collections.emptyMap());
+            list.add(new TestResult(td, s));
+        });
         return list;
     }
 
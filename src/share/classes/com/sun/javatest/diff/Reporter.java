@@ -27,12 +27,8 @@ package com.sun.javatest.diff;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 
-import com.sun.javatest.TestResult;
-
-
 /**
  * Interface for generating reports.
  */
@@ -46,18 +42,14 @@ public abstract class Reporter {
         this.title = title;
     }
 
-    public Comparator<TestResult> getComparator() {
+    public StatusComparator getComparator() {
         return comparator;
     }
 
-    public void setComparator(Comparator<TestResult> c) {
+    public void setComparator(StatusComparator c) {
         this.comparator = c;
     }
 
-    public void setReaders(List<DiffReader> readers) {
-        this.readers = readers;
-    }
-
     public void setTestCounts(List<int[]> testCounts) {
         this.testCounts = testCounts;
     }
@@ -66,11 +58,10 @@ public abstract class Reporter {
         return diffs;
     }
 
-    abstract void write(MultiMap<String, TestResult> table) throws IOException;
+    abstract void write(ResultTable table) throws IOException;
 
-    protected List<DiffReader> readers;
     protected List<int[]> testCounts = new ArrayList<>();
-    protected Comparator<TestResult> comparator;
+    protected StatusComparator comparator;
     protected String title;
     protected int diffs;
 }
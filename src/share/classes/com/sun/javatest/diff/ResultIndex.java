@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.diff;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.javatest.Status;
+
+/**
+ * A compact index of the sets of results being compared.
+ * The names of the tests, and the reasons given in their status, are each
+ * held just once, in dictionaries shared by all the sets of results that
+ * are read. Each set of results is held in a {@link Column}, containing
+ * the type of status for each test, indexed by the id of the test in the
+ * dictionary.
+ *
+ * Reasons are only recorded if they are to be compared, since they are
+ * not otherwise used.
+ */
+class ResultIndex {
+    /**
+     * The value recorded for a test that is not present in a set of results.
+     */
+    static final byte ABSENT = -1;
+
+    /**
+     * The value returned for the reason of a test that is not present,
+     * or when reasons are not being recorded.
+     */
+    static final int NO_REASON = -1;
+
+    ResultIndex(boolean includeReasons) {
+        this.includeReasons = includeReasons;
+    }
+
+    /**
+     * Reads all the results from a reader into a new column.
+     *
+     * @param r the reader
+     * @return the column
+     */
+    Column read(DiffReader r) {
+        Column c = new Column(r.getFile().getPath(), r.getWorkDirectory());
+        r.read(c::add);
+        c.trim();
+        return c;
+    }
+
+    synchronized int getTestId(String name) {
+        Integer id = testIdMap.get(name);
+        if (id == null) {
+            id = testNames.size();
+            testNames.add(name);
+            testIdMap.put(name, id);
+        }
+        return id;
+    }
+
+    synchronized String getTestName(int id) {
+        return testNames.get(id);
+    }
+
+    synchronized int getReasonId(String reason) {
+        Integer id = reasonIdMap.get(reason);
+        if (id == null) {
+            id = reasons.size();
+            reasons.add(reason);
+            reasonIdMap.put(reason, id);
+        }
+        return id;
+    }
+
+    synchronized String getReason(int id) {
+        return (id == NO_REASON) ? "" : reasons.get(id);
+    }
+
+    /**
+     * The results read from a single source, such as a work directory or
+     * a report.
+     */
+    class Column {
+        Column(String name, File workDir) {
+            this.name = name;
+            this.workDir = workDir;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the work directory containing the results, or {@code null}
+         * if the results were not read from a work directory.
+         */
+        File getWorkDirectory() {
+            return workDir;
+        }
+
+        /**
+         * Returns the number of tests with each type of status.
+         */
+        int[] getTestCounts() {
+            return counts;
+        }
+
+        /**
+         * Returns the size of the column, such that all tests with ids
+         * greater than or equal to the size are absent.
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns the type of status for a test, or {@link #ABSENT}.
+         */
+        int getType(int testId) {
+            return (testId < size) ? types[testId] : ABSENT;
+        }
+
+        /**
+         * Returns the id of the reason for a test, or {@link #NO_REASON}.
+         */
+        int getReasonId(int testId) {
+            return (reasonIds != null && testId < size) ? reasonIds[testId] : NO_REASON;
+        }
+
+        private void add(String testName, Status status) {
+            int id = getTestId(testName);
+            if (id >= types.length) {
+                int newLength = Math.max(id + 1, types.length * 2);
+                int oldLength = types.length;
+                types = Arrays.copyOf(types, newLength);
+                Arrays.fill(types, oldLength, newLength, ABSENT);
+                if (reasonIds != null) {
+                    reasonIds = Arrays.copyOf(reasonIds, newLength);
+                    Arrays.fill(reasonIds, oldLength, newLength, NO_REASON);
+                }
+            }
+            int type = (status == null) ? Status.NOT_RUN : status.getType();
+            types[id] = (byte) type;
+            if (reasonIds != null)
+                reasonIds[id] = ResultIndex.this.getReasonId(status == null ? "" : status.getReason());
+            size = Math.max(size, id + 1);
+            counts[type]++;
+        }
+
+        private void trim() {
+            types = Arrays.copyOf(types, size);
+            if (reasonIds != null)
+                reasonIds = Arrays.copyOf(reasonIds, size);
+        }
+
+        private final String name;
+        private final File workDir;
+        private final int[] counts = new int[Status.NUM_STATES];
+        private byte[] types = new byte[0];
+        private int[] reasonIds = includeReasons ? new int[0] : null;
+        private int size;
+    }
+
+    private final boolean includeReasons;
+    private final List<String> testNames = new ArrayList<>();
+    private final Map<String, Integer> testIdMap = new HashMap<>();
+    private final List<String> reasons = new ArrayList<>();
+    private final Map<String, Integer> reasonIdMap = new HashMap<>();
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.diff;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+import com.sun.javatest.Status;
+import com.sun.javatest.TestResult;
+
+/**
+ * A table of the results being compared, with a column for each set of
+ * results, and a row for each test that is present in any of the sets,
+ * ordered by the name of the test.
+ * The table is a view of columns in a {@link ResultIndex}, and only holds
+ * the ids of the tests in each row.
+ */
+public class ResultTable {
+    ResultTable(ResultIndex index, List<ResultIndex.Column> columns) {
+        this.index = index;
+        this.columns = columns;
+
+        BitSet present = new BitSet();
+        for (ResultIndex.Column c: columns) {
+            for (int id = 0; id < c.size(); id++) {
+                if (c.getType(id) != ResultIndex.ABSENT)
+                    present.set(id);
+            }
+        }
+        int[] ids = present.stream().toArray();
+        String[] names = new String[ids.length];
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            names[i] = index.getTestName(ids[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> names[i]));
+
+        rowIds = new int[ids.length];
+        rowNames = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            rowIds[i] = ids[order[i]];
+            rowNames[i] = names[order[i]];
+        }
+    }
+
+    int getColumns() {
+        return columns.size();
+    }
+
+    String getColumnName(int col) {
+        return columns.get(col).getName();
+    }
+
+    int getRows() {
+        return rowIds.length;
+    }
+
+    String getTestName(int row) {
+        return rowNames[row];
+    }
+
+    /**
+     * Returns whether a test is present in a set of results.
+     */
+    boolean isPresent(int row, int col) {
+        return columns.get(col).getType(rowIds[row]) != ResultIndex.ABSENT;
+    }
+
+    /**
+     * Returns the type of status for a test in a set of results,
+     * treating tests that are not present as not run.
+     */
+    int getType(int row, int col) {
+        int type = columns.get(col).getType(rowIds[row]);
+        return (type == ResultIndex.ABSENT) ? Status.NOT_RUN : type;
+    }
+
+    /**
+     * Returns an id for the reason for the status of a test in a set of results,
+     * such that two reasons are equal if and only if their ids are equal,
+     * or {@link ResultIndex#NO_REASON} if the test is not present or if reasons
+     * are not being recorded.
+     */
+    int getReasonId(int row, int col) {
+        return columns.get(col).getReasonId(rowIds[row]);
+    }
+
+    String getReason(int row, int col) {
+        return index.getReason(getReasonId(row, col));
+    }
+
+    /**
+     * Returns the results file for a test in a set of results,
+     * or {@code null} if the test is not present or if the results were not
+     * read from a work directory.
+     */
+    File getResultFile(int row, int col) {
+        File wd = columns.get(col).getWorkDirectory();
+        if (wd == null || !isPresent(row, col))
+            return null;
+        return new File(wd, TestResult.getWorkRelativePath(rowNames[row]));
+    }
+
+    /**
+     * Returns whether the results for a test are the same in all the columns.
+     */
+    boolean allEqual(int row, StatusComparator c) {
+        for (int col = 1; col < columns.size(); col++) {
+            if (c.compare(this, row, col, 0) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    private final ResultIndex index;
+    private final List<ResultIndex.Column> columns;
+    private final String[] rowNames;
+    private final int[] rowIds;
+}
@@ -29,10 +29,8 @@ package com.sun.javatest.diff;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Map;
 
 import com.sun.javatest.Status;
-import com.sun.javatest.TestResult;
 import com.sun.javatest.util.I18NResourceBundle;
 
 /**
@@ -58,7 +56,7 @@ public class SimpleReporter extends Reporter {
             maxStatusStringLength = Math.max(maxStatusStringLength, ss.length());
     }
 
-    public void write(MultiMap<String, TestResult> table) throws IOException {
+    public void write(ResultTable table) throws IOException {
         this.table = table;
         size = table.getColumns();
 
@@ -95,23 +93,20 @@ public class SimpleReporter extends Reporter {
 
     private void writeBody() throws IOException {
         diffs = 0;
-        for (Map.Entry<String, MultiMap.Entry<TestResult>> e: table.entrySet()) {
-            String testName = e.getKey();
-            MultiMap.Entry<TestResult> result = e.getValue();
-            if (result.allEqual(comparator))
+        for (int row = 0; row < table.getRows(); row++) {
+            String testName = table.getTestName(row);
+            if (table.allEqual(row, comparator))
                 continue;
             if (diffs == 0) {
                 println();
-                for (int i = 0; i < result.getSize(); i++) {
+                for (int i = 0; i < size; i++) {
                     print(String.valueOf(i), maxStatusStringLength + 2);
                 }
                 writeI18N("simple.test");
                 println();
             }
-            for (int i = 0; i < result.getSize(); i++) {
-                TestResult tr = result.get(i);
-                Status s = (tr == null ? null : tr.getStatus());
-                print(getStatusString(s), maxStatusStringLength + 2);
+            for (int i = 0; i < size; i++) {
+                print(statusStrings[table.getType(row, i)], maxStatusStringLength + 2);
             }
             println(testName);
             diffs++;
@@ -149,11 +144,7 @@ public class SimpleReporter extends Reporter {
         out.println(o.toString());
     }
 
-    private String getStatusString(Status s) {
-        return statusStrings[s == null ? Status.NOT_RUN : s.getType()];
-    }
-
-    private MultiMap<String, TestResult> table;
+    private ResultTable table;
     private int size;
     private PrintWriter out;
 
@@ -25,15 +25,10 @@
 
 package com.sun.javatest.diff;
 
-import java.util.Comparator;
-
-import com.sun.javatest.Status;
-import com.sun.javatest.TestResult;
-
 /**
- * A comparator for the status contained in a test result.
+ * A comparator for the status of a test in different sets of results.
  */
-public class StatusComparator implements Comparator<TestResult> {
+public class StatusComparator {
 
     /** Creates a new instance of StatusComparator */
     public StatusComparator() {
@@ -44,9 +39,19 @@ public class StatusComparator implements Comparator<TestResult> {
         this.includeReason = includeReason;
     }
 
-    public int compare(TestResult o1, TestResult o2) {
-        int t1 = getType(o1);
-        int t2 = getType(o2);
+    /**
+     * Compares the status of a test in two columns of a table.
+     *
+     * @param table the table
+     * @param row the row for the test
+     * @param col1 the first column
+     * @param col2 the second column
+     * @return a negative integer, zero, or a positive integer as the first
+     *      status is less than, equal to, or greater than the second
+     */
+    public int compare(ResultTable table, int row, int col1, int col2) {
+        int t1 = table.getType(row, col1);
+        int t2 = table.getType(row, col2);
 
         if (t1 < t2)
             return -1;
@@ -57,23 +62,13 @@ public class StatusComparator implements Comparator<TestResult> {
         if (!includeReason)
             return 0;
 
-        String r1 = getReason(o1);
-        String r2 = getReason(o2);
-        return r1.compareTo(r2);
-    }
-
-    private static int getType(TestResult tr) {
-        if (tr == null)
-            return Status.NOT_RUN;
-        Status s = tr.getStatus();
-        return (s == null ? Status.NOT_RUN : s.getType());
-    }
+        // reasons are held in a dictionary, so equal ids imply equal reasons
+        if (table.getReasonId(row, col1) == table.getReasonId(row, col2))
+            return 0;
 
-    private static String getReason(TestResult tr) {
-        if (tr == null)
-            return "";
-        Status s = tr.getStatus();
-        return (s == null ? "" : s.getReason());
+        String r1 = table.getReason(row, col1);
+        String r2 = table.getReason(row, col2);
+        return r1.compareTo(r2);
     }
 
     private boolean includeReason;
@@ -45,6 +45,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import com.sun.javatest.util.I18NResourceBundle;
 
@@ -55,35 +60,70 @@ class SuperDiff extends Diff {
         table = new SuperTable(dir, resultPath);
     }
 
+    /**
+     * Writes the comparisons for each date and each platform.
+     * Each set of results is read just once, the first time it is needed,
+     * and is kept in memory until the last comparison that uses it has
+     * read it. If more than one job may be used, the comparisons are
+     * written concurrently.
+     */
     @Override
     public boolean report(File outDir) throws Fault, InterruptedException {
         baseTitle = title;
-        boolean ok = true;
+        List<OutputDiff> diffs = new ArrayList<>();
         for (YearDay yearDay: table.getRecentKeys(historySize))
-            ok &= diffPlatforms(yearDay, outDir);
+            diffs.add(diffPlatforms(yearDay, outDir));
         for (String platform : table.platforms) {
-            ok &= diffHistory(platform, outDir);
+            diffs.add(diffHistory(platform, outDir));
+        }
+
+        for (OutputDiff d: diffs) {
+            for (File f: d.files)
+                uses.merge(f, 1, Integer::sum);
         }
+
+        boolean ok = true;
+        if (jobs <= 1) {
+            for (OutputDiff d: diffs)
+                ok &= d.report(d.outFile);
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(jobs);
+            try {
+                List<Future<Boolean>> futures = new ArrayList<>();
+                for (OutputDiff d: diffs)
+                    futures.add(executor.submit(() -> d.report(d.outFile)));
+                for (Future<Boolean> f: futures)
+                    ok &= getResult(f);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
         writeIndex(outDir, baseTitle);
         return ok;
     }
 
-    protected boolean diff(List<File> files, File outFile, String title) throws Fault, InterruptedException {
-        this.title = title;
-        reporter = null;
-        return diff(files, outFile);
-    }
-
+    /**
+     * Returns the column for a set of results, reading the results if they have
+     * not already been read for another comparison.
+     */
     @Override
-    protected void initReporter() throws Fault {
+    protected ResultIndex.Column read(File f) throws Fault, InterruptedException {
+        FutureTask<ResultIndex.Column> task = new FutureTask<>(() -> super.read(f));
+        FutureTask<ResultIndex.Column> prev = columns.putIfAbsent(f, task);
+        if (prev == null) {
+            task.run();
+            prev = task;
+        }
         try {
-             reporter = new SuperReporter(out);
-        } catch (IOException e) {
-            throw new Fault(i18n, "main.cantOpenReport", e);
+            return getResult(prev);
+        } finally {
+            if (uses.computeIfPresent(f, (k, n) -> (n > 1) ? n - 1 : null) == null)
+                columns.remove(f);
         }
     }
 
-    private boolean diffPlatforms(YearDay yearDay, File outDir) throws Fault, InterruptedException {
+    private OutputDiff diffPlatforms(YearDay yearDay, File outDir) {
         Map<String, File> pMap = table.get(yearDay);
         List<File> pDirs = new ArrayList<>();
         for (String platform : table.platforms) {
@@ -95,10 +135,10 @@ class SuperDiff extends Diff {
         File file = new File(outDir, yearDay.year + "_" + yearDay.dayOfYear + ".html");
         platformIndex.put(yearDay.toDateString(monthDayFormat), file);
         String prefix = baseTitle == null ? "" : baseTitle + ": ";
-        return diff(pDirs, file, prefix + yearDay.toDateString(mediumDateFormat)); // I18N a better title?
+        return new OutputDiff(pDirs, file, prefix + yearDay.toDateString(mediumDateFormat)); // I18N a better title?
     }
 
-    private boolean diffHistory(String platform, File outDir) throws Fault, InterruptedException {
+    private OutputDiff diffHistory(String platform, File outDir) {
         List<File> pDirs = new ArrayList<>();
         for (YearDay yearDay: table.getRecentKeys(historySize, platform)) {
             pDirs.add(table.get(yearDay).get(platform));
@@ -106,7 +146,48 @@ class SuperDiff extends Diff {
         File file = new File(outDir, platform + ".html");
         historyIndex.put(platform, file);
         String prefix = baseTitle == null ? "" : baseTitle + ": ";
-        return diff(pDirs, file, prefix + platform); // I18N a better title?
+        return new OutputDiff(pDirs, file, prefix + platform); // I18N a better title?
+    }
+
+    /**
+     * The comparison of a list of result sets, written to a single file.
+     * Each comparison has its own output and reporter, so that different
+     * comparisons can be written at the same time.
+     */
+    private class OutputDiff extends Diff {
+        OutputDiff(List<File> files, File outFile, String title) {
+            this.files = files;
+            this.outFile = outFile;
+            this.title = title;
+            this.out = SuperDiff.this.out;
+            this.includeReason = SuperDiff.this.includeReason;
+        }
+
+        @Override
+        public boolean report(File outFile) throws Fault, InterruptedException {
+            return diff(files, outFile);
+        }
+
+        @Override
+        protected void initReporter() throws Fault {
+            try {
+                 reporter = new SuperReporter(out);
+            } catch (IOException e) {
+                throw new Fault(i18n, "main.cantOpenReport", e);
+            }
+        }
+
+        @Override
+        protected ResultIndex getIndex() {
+            return SuperDiff.this.getIndex();
+        }
+
+        @Override
+        protected ResultIndex.Column read(File f) throws Fault, InterruptedException {
+            return SuperDiff.this.read(f);
+        }
+
+        final List<File> files;
     }
 
     private void writeIndex(File outDir, String title) throws Fault {
@@ -134,9 +215,16 @@ class SuperDiff extends Diff {
     private String baseTitle;
     private Map<String, File> historyIndex = new LinkedHashMap<>();
     private Map<String, File> platformIndex = new LinkedHashMap<>();
+    private final Map<File, FutureTask<ResultIndex.Column>> columns = new ConcurrentHashMap<>();
+    private final Map<File, Integer> uses = new ConcurrentHashMap<>();
 
     private static DateFormat monthDayFormat = new SimpleDateFormat("MMM d");
     private static DateFormat mediumDateFormat = DateFormat.getDateInstance(DateFormat.MEDIUM);
+
+    // DateFormat is not thread-safe, and reports may be written concurrently
+    private static synchronized String formatMonthDay(Date date) {
+        return monthDayFormat.format(date);
+    }
     private static I18NResourceBundle i18n = I18NResourceBundle.getBundleForClass(Main.class);
 
     static class Info {
@@ -171,7 +259,7 @@ class SuperDiff extends Diff {
             out.endTag(TD);
             out.startTag(TD);
             if (info != null)
-                out.write(monthDayFormat.format(info.date));
+                out.write(formatMonthDay(info.date));
             out.endTag(TD);
         }
 
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.agent;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures the state of an agent VM after an action has been executed,
+ * and the state of the VM has been restored, to help detect agents that
+ * have accumulated threads, classes or memory leaked by earlier tests.
+ *
+ * The values are reported as a map of names to values, using the names
+ * defined in this class.
+ */
+public class AgentHealth {
+    /** Number of live threads. */
+    public static final String LIVE_THREADS = "liveThreads";
+    /** Number of loaded classes. */
+    public static final String LOADED_CLASSES = "loadedClasses";
+    /** Use of the Java heap after the most recent garbage collection, in kilobytes. */
+    public static final String HEAP_AFTER_GC = "heapAfterGC";
+    /** Use of metaspace, in kilobytes. */
+    public static final String METASPACE = "metaspace";
+
+    private AgentHealth() { }
+
+    /**
+     * Returns the current values for the state of the VM.
+     * No garbage collection is triggered; the heap usage is that recorded
+     * after the most recent collection.
+     * Values that are not available are omitted.
+     *
+     * @return a map containing the values
+     */
+    public static Map<String, String> measure() {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put(LIVE_THREADS, String.valueOf(ManagementFactory.getThreadMXBean().getThreadCount()));
+        map.put(LOADED_CLASSES, String.valueOf(ManagementFactory.getClassLoadingMXBean().getLoadedClassCount()));
+        long heap = -1;
+        long metaspace = -1;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (!pool.isValid()) {
+                continue;
+            }
+            if (pool.getType() == MemoryType.HEAP) {
+                MemoryUsage u = pool.getCollectionUsage();
+                if (u != null) {
+                    heap = Math.max(heap, 0) + u.getUsed();
+                }
+            } else if (pool.getName().equals("Metaspace")) {
+                MemoryUsage u = pool.getUsage();
+                if (u != null) {
+                    metaspace = u.getUsed();
+                }
+            }
+        }
+        if (heap >= 0) {
+            map.put(HEAP_AFTER_GC, String.valueOf(heap / 1024));
+        }
+        if (metaspace >= 0) {
+            map.put(METASPACE, String.valueOf(metaspace / 1024));
+        }
+        return map;
+    }
+}
@@ -46,6 +46,7 @@ import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.EnumMap;
 import java.util.HashMap;
@@ -53,6 +54,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 
@@ -85,6 +88,16 @@ public final class AgentServer implements ActionHelper.OutputHandler {
     public static final String TIMEOUTFACTOR = "-timeoutFactor";
     public static final String CUSTOM_TEST_THREAD_FACTORY = "-testThreadFactory";
     public static final String CUSTOM_TEST_THREAD_FACTORY_PATH = "-testThreadFactoryPath";
+    public static final String MULTIPLEX = "-multiplex";
+    public static final String PROTOCOL = "-protocol";
+    /**
+     * Enables the use of a cache of class loaders for the libraries used by
+     * main actions. When this option is given, the class path in each
+     * {@code DO_MAIN} request is followed by the library class path,
+     * containing entries that may be loaded by a shared class loader.
+     * See {@link LibraryClassLoaders}.
+     */
+    public static final String LIBRARY_LOADERS = "-libraryLoaders";
 
     public static final byte DO_COMPILE = 1;
     public static final byte DO_MAIN = 2;
@@ -92,6 +105,61 @@ public final class AgentServer implements ActionHelper.OutputHandler {
     public static final byte STATUS = 4;
     public static final byte KEEPALIVE = 5;
     public static final byte CLOSE = 6;
+    public static final byte HELLO = 7;
+
+    /**
+     * The original protocol, in which output is sent in chunks of text,
+     * each tagged with the name of the stream, using modified UTF-8.
+     * This protocol is used if the client does not request a specific version.
+     */
+    public static final int PROTOCOL_TEXT_OUTPUT = 1;
+
+    /**
+     * A protocol in which output is sent as length-prefixed blocks of bytes,
+     * each tagged with a one-byte stream id. Small writes are batched together.
+     * See {@link FramedOutputStream}.
+     */
+    public static final int PROTOCOL_FRAMED_OUTPUT = 2;
+
+    /**
+     * A protocol which extends {@link #PROTOCOL_FRAMED_OUTPUT}, in which each
+     * {@code STATUS} frame is followed by a map of the resources used by the action,
+     * as measured by {@link ResourceMonitor}.
+     */
+    public static final int PROTOCOL_RESOURCE_USAGE = 3;
+
+    /**
+     * A protocol which extends {@link #PROTOCOL_RESOURCE_USAGE}, in which each
+     * {@code STATUS} frame is also followed by a map describing the state of the
+     * agent VM after the action, as measured by {@link AgentHealth}.
+     * The map is empty for actions executed in multiplexed mode.
+     */
+    public static final int PROTOCOL_AGENT_HEALTH = 4;
+
+    /**
+     * The latest version of the protocol supported by the server.
+     * If the client requests a version with the {@code -protocol} option, the server
+     * responds to the connection with a {@code HELLO} frame, containing the version that
+     * will be used, which is the lower of the requested version and this version, followed
+     * by the name of the native encoding used for output written to byte streams.
+     */
+    public static final int PROTOCOL_VERSION = PROTOCOL_AGENT_HEALTH;
+
+    /**
+     * A flag in the stream id for frames in the framed output protocol, to indicate
+     * that the data is in the native encoding, instead of UTF-8.
+     */
+    public static final byte NATIVE_ENCODING = (byte) 0x80;
+
+    /**
+     * The channel id used in frames of the multiplexed protocol to identify
+     * output that cannot be associated with any specific request.
+     * When the server is running in multiplexed mode, each request from the
+     * client is tagged with a channel id, chosen by the client, and all the
+     * OUTPUT and STATUS frames written in response to that request are tagged
+     * with the same id. In non-multiplexed mode, no channel ids are written.
+     */
+    public static final int NO_CHANNEL = -1;
 
     /**
      * Send KEEPALIVE bytes periodically to a stream.
@@ -159,6 +227,7 @@ public final class AgentServer implements ActionHelper.OutputHandler {
         InetAddress host = InetAddress.getLoopbackAddress();
         int id = 0;
         int port = -1;
+        int requestedVersion = 0;
         File logFile = null;
         for (int i = 0; i < args.length; i++) {
             String arg = args[i];
@@ -182,12 +251,19 @@ public final class AgentServer implements ActionHelper.OutputHandler {
                 testThreadFactory = args[++i];
             } else if (arg.equals(CUSTOM_TEST_THREAD_FACTORY_PATH) && i + 1 < args.length) {
                 testThreadFactoryPath = args[++i];
-        }   else {
+            } else if (arg.equals(MULTIPLEX)) {
+                multiplexed = true;
+            } else if (arg.equals(LIBRARY_LOADERS)) {
+                libraryLoaders = new LibraryClassLoaders(this::log);
+            } else if (arg.equals(PROTOCOL) && i + 1 < args.length) {
+                requestedVersion = Integer.parseInt(args[++i]);
+            } else {
                 throw new IllegalArgumentException(arg);
             }
         }
 
         this.id = id;
+        this.defaultChannel = new Channel(NO_CHANNEL);
 
         PrintWriter pw = null;
         if (logFile != null) {
@@ -218,6 +294,17 @@ public final class AgentServer implements ActionHelper.OutputHandler {
             out = new DataOutputStream(new BufferedOutputStream(System.out));
         }
 
+        if (requestedVersion > 0) {
+            protocolVersion = Math.min(requestedVersion, PROTOCOL_VERSION);
+            out.writeByte(HELLO);
+            out.writeShort(protocolVersion);
+            out.writeUTF(getNativeCharset().name());
+            out.flush();
+            log("Using protocol version " + protocolVersion);
+        } else {
+            protocolVersion = PROTOCOL_TEXT_OUTPUT;
+        }
+
         keepAlive = new KeepAlive(out, traceServer);
         RegressionSecurityManager.install();
         SecurityManager sm = System.getSecurityManager();
@@ -229,9 +316,20 @@ public final class AgentServer implements ActionHelper.OutputHandler {
             }
             rsm.setAllowSetIO(true);
         }
+
+        if (multiplexed) {
+            // Output written to System.out and System.err by concurrent actions
+            // is routed to the channel for the action running on the current thread.
+            System.setOut(new PrintStream(new RoutingOutputStream(System.out, OutputKind.STDOUT), true));
+            System.setErr(new PrintStream(new RoutingOutputStream(System.err, OutputKind.STDERR), true));
+        }
     }
 
     public void run() throws IOException {
+        if (multiplexed) {
+            runMultiplexed();
+            return;
+        }
         log("Running");
         try {
             int op;
@@ -254,6 +352,60 @@ public final class AgentServer implements ActionHelper.OutputHandler {
                 out.flush();
             }
         } finally {
+            keepAlive.finished();
+            if (libraryLoaders != null) {
+                libraryLoaders.close();
+            }
+            log("Exiting");
+            logWriter.close();
+        }
+    }
+
+
+    /**
+     * Runs the server in multiplexed mode, in which requests for several actions
+     * may be outstanding at the same time. Each request is read from the client,
+     * along with its channel id, and then executed on a separate thread,
+     * such that any output and the final status for the action are written
+     * back to the client tagged with the channel id for the request.
+     *
+     * Only actions that do not depend on or modify the global state of the VM
+     * may be executed in this mode.
+     */
+    private void runMultiplexed() throws IOException {
+        log("Running (multiplexed)");
+        // KEEPALIVE messages are always sent in this mode, since the client
+        // is always listening for frames from any outstanding action.
+        keepAlive.setEnabled(true);
+        ExecutorService executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r);
+            t.setName("AgentServer channel worker");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            int op;
+            while ((op = in.read()) != -1) {
+                switch (op) {
+                    case DO_COMPILE: {
+                        // See corresponding list in Agent.doCompileAction
+                        final Channel channel = new Channel(in.readInt());
+                        final String testName = in.readUTF();
+                        readMap(in); // system properties are not set for shared compilations
+                        final List<String> cmdArgs = readList(in);
+                        executor.execute(() -> channel.doCompile(testName, cmdArgs));
+                        break;
+                    }
+                    case KEEPALIVE:
+                        break;
+                    case CLOSE:
+                        return;
+                    default:
+                        throw new Error("Agent.Server: unexpected op in multiplexed mode: " + op);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
             keepAlive.finished();
             log("Exiting");
             logWriter.close();
@@ -271,8 +423,9 @@ public final class AgentServer implements ActionHelper.OutputHandler {
         log(testName + ": starting compilation");
         keepAlive.setEnabled(true);
         try {
+            ResourceMonitor monitor = startResourceMonitor(true);
             AStatus status = CompileActionHelper.runCompile(testName, testProps, cmdArgs, 0, this);
-            writeStatus(status);
+            writeStatus(status, finishResourceMonitor(monitor));
         } finally {
             keepAlive.setEnabled(false);
             log(testName + ": finished compilation");
@@ -293,6 +446,7 @@ public final class AgentServer implements ActionHelper.OutputHandler {
         Set<String> addOpens = readSet(in);
         Set<String> addMods = readSet(in);
         SearchPath classPath = new SearchPath(in.readUTF());
+        SearchPath libraryClassPath = (libraryLoaders != null) ? new SearchPath(in.readUTF()) : null;
         SearchPath modulePath = new SearchPath(in.readUTF());
         String className = in.readUTF();
         List<String> classArgs = readList(in);
@@ -302,12 +456,14 @@ public final class AgentServer implements ActionHelper.OutputHandler {
         log(testName + ": starting execution of " + className);
         keepAlive.setEnabled(true);
         try {
+            ResourceMonitor monitor = startResourceMonitor(true);
             AStatus status = new MainActionHelper(testName)
                     .properties(testProps)
                     .addExports(addExports)
                     .addOpens(addOpens)
                     .addMods(addMods)
                     .classpath(classPath)
+                    .libraryClasspath(libraryClassPath, libraryLoaders)
                     .modulepath(modulePath)
                     .className(className)
                     .classArgs(classArgs)
@@ -317,7 +473,7 @@ public final class AgentServer implements ActionHelper.OutputHandler {
                     .testThreadFactoryPath(testThreadFactoryPath)
                     .outputHandler(this)
                     .runClass();
-            writeStatus(status);
+            writeStatus(status, finishResourceMonitor(monitor));
         } finally {
             keepAlive.setEnabled(false);
             log(testName + ": finished execution of " + className);
@@ -354,16 +510,87 @@ public final class AgentServer implements ActionHelper.OutputHandler {
         return p;
     }
 
-    private void writeStatus(AStatus s) throws IOException {
-        if (traceServer) {
-            traceOut.println("Agent.Server.writeStatus: " + s);
+    private void writeStatus(AStatus s, Map<String, String> resources) throws IOException {
+        defaultChannel.writeStatus(s, resources, measureHealth());
+    }
+
+    /**
+     * Measures the state of the VM after an action has been executed.
+     * The measurement is not available if the action may have installed a
+     * security manager that does not permit it, or if the {@code java.management}
+     * module is not available, in which case health limits do not apply.
+     */
+    private Map<String, String> measureHealth() {
+        if (protocolVersion < PROTOCOL_AGENT_HEALTH || !managementAvailable) {
+            return Collections.emptyMap();
         }
-        synchronized (out) {
-            out.writeByte(STATUS);
-            out.writeByte(s.getType());
-            out.writeUTF(s.getReason());
+        try {
+            return AgentHealth.measure();
+        } catch (SecurityException e) {
+            log("cannot measure agent health: " + e);
+            return Collections.emptyMap();
+        } catch (LinkageError e) {
+            managementUnavailable(e);
+            return Collections.emptyMap();
         }
-        writers.clear();
+    }
+
+    /**
+     * Starts monitoring the resources used by an action.
+     * Monitoring is not available if the action may have installed a security
+     * manager that does not permit it, or if the {@code java.management} module
+     * is not available, such as when the agent is started with
+     * {@code --limit-modules}.
+     */
+    private ResourceMonitor startResourceMonitor(boolean exclusive) {
+        if (protocolVersion < PROTOCOL_RESOURCE_USAGE || !managementAvailable) {
+            return null;
+        }
+        try {
+            return ResourceMonitor.start(exclusive);
+        } catch (SecurityException e) {
+            log("cannot monitor resources: " + e);
+            return null;
+        } catch (LinkageError e) {
+            managementUnavailable(e);
+            return null;
+        }
+    }
+
+    private Map<String, String> finishResourceMonitor(ResourceMonitor monitor) {
+        if (monitor == null) {
+            return Collections.emptyMap();
+        }
+        try {
+            return monitor.finish();
+        } catch (SecurityException e) {
+            log("cannot monitor resources: " + e);
+            return Collections.emptyMap();
+        } catch (LinkageError e) {
+            managementUnavailable(e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Records that the {@code java.management} API cannot be used in this VM,
+     * so that no further attempts are made to use it.
+     */
+    private void managementUnavailable(LinkageError e) {
+        if (managementAvailable) {
+            managementAvailable = false;
+            log("java.management is not available: " + e);
+        }
+    }
+
+    /**
+     * Returns the encoding used for output written to byte streams, such as
+     * {@code System.out} and {@code System.err}.
+     */
+    private static Charset getNativeCharset() {
+        return Charset.forName(
+                System.getProperty("sun.stdout.encoding", System.getProperty("sun.jnu.encoding",
+                        Charset.defaultCharset().name())));
     }
 
     // This format is also used by Agent.java in the client-side log messages.
@@ -386,146 +613,306 @@ public final class AgentServer implements ActionHelper.OutputHandler {
     private final PrintStream traceOut = System.err;
     private final PrintWriter logWriter;
     private final int id;
-    private final Map<OutputKind, Writer> writers = new EnumMap<>(OutputKind.class);
+    private final Channel defaultChannel;
+    private boolean multiplexed;
+    private LibraryClassLoaders libraryLoaders;
+    private final int protocolVersion;
+
+    /**
+     * Whether the {@code java.management} API can be used to measure the
+     * resources used by actions. It is not available if the agent has been
+     * started with options such as {@code --limit-modules=java.base}.
+     */
+    private volatile boolean managementAvailable = true;
+
+    /**
+     * The channel for the action being executed on the current thread,
+     * when running in multiplexed mode.
+     */
+    private final ThreadLocal<Channel> currentChannel = new ThreadLocal<>();
 
     /**
      * Create an output stream for output to be sent back to the client via the server connection.
      * @param kind the kind of stream
      * @return the output stream
      */
+    @Override
     public PrintWriter getPrintWriter(OutputKind kind, boolean autoFlush) {
-        return new PrintWriter(getWriter(kind), autoFlush);
+        return defaultChannel.getPrintWriter(kind, autoFlush);
+    }
+
+    /**
+     * Create an output stream for output to be sent back to the client via the server connection,
+     * and use it to write the given content.
+     * @param kind the kind of stream
+     * @param autoFlush whether or not to flush the stream on '\n'
+     */
+    @Override
+    public PrintStream getPrintStream(OutputKind kind, boolean autoFlush) {
+        return defaultChannel.getPrintStream(kind, autoFlush);
     }
 
-    private Writer getWriter(final OutputKind kind) {
-        Writer w = writers.get(kind);
-        if (w == null) {
-            w = new Writer() {
+    /**
+     * A channel provides the streams for the output of a single action,
+     * and a means to report the final status of the action.
+     * In multiplexed mode, all frames written for the action are tagged
+     * with the id of the channel; otherwise, no id is written.
+     */
+    private class Channel implements ActionHelper.OutputHandler {
+        private final int channelId;
+        private final Map<OutputKind, Writer> writers = new EnumMap<>(OutputKind.class);
+        private final Map<OutputKind, OutputStream> routedStreams = new EnumMap<>(OutputKind.class);
+        private final List<FramedOutputStream> framedStreams = new ArrayList<>();
+
+        Channel(int channelId) {
+            this.channelId = channelId;
+        }
+
+        OutputStream getRoutedStream(OutputKind kind) {
+            return routedStreams.computeIfAbsent(kind, this::getOutputStream);
+        }
+
+        void doCompile(String testName, List<String> cmdArgs) {
+            log(testName + ": starting compilation on channel " + channelId);
+            currentChannel.set(this);
+            try {
+                ResourceMonitor monitor = startResourceMonitor(false);
+                AStatus status = CompileActionHelper.runSharedCompile(cmdArgs, this);
+                for (OutputStream s : routedStreams.values()) {
+                    s.close();
+                }
+                writeStatus(status, finishResourceMonitor(monitor), Collections.emptyMap());
+            } catch (IOException e) {
+                log(testName + ": error writing status on channel " + channelId + ": " + e);
+            } finally {
+                currentChannel.remove();
+                log(testName + ": finished compilation on channel " + channelId);
+            }
+        }
+
+        private void writeHeader(byte op) throws IOException {
+            out.writeByte(op);
+            if (channelId != NO_CHANNEL) {
+                out.writeInt(channelId);
+            }
+        }
+
+        void writeStatus(AStatus s, Map<String, String> resources, Map<String, String> health)
+                throws IOException {
+            if (traceServer) {
+                traceOut.println("Agent.Server.writeStatus[" + channelId + "]: " + s);
+            }
+            // ensure any buffered output is written before the status
+            List<FramedOutputStream> streams;
+            synchronized (this) {
+                streams = new ArrayList<>(framedStreams);
+                framedStreams.clear();
+            }
+            for (FramedOutputStream fs : streams) {
+                fs.writeBuffer();
+            }
+            synchronized (out) {
+                writeHeader(STATUS);
+                out.writeByte(s.getType());
+                out.writeUTF(s.getReason());
+                if (protocolVersion >= PROTOCOL_RESOURCE_USAGE) {
+                    out.writeShort(resources.size());
+                    for (Map.Entry<String, String> e : resources.entrySet()) {
+                        out.writeUTF(e.getKey());
+                        out.writeUTF(e.getValue());
+                    }
+                }
+                if (protocolVersion >= PROTOCOL_AGENT_HEALTH) {
+                    out.writeShort(health.size());
+                    for (Map.Entry<String, String> e : health.entrySet()) {
+                        out.writeUTF(e.getKey());
+                        out.writeUTF(e.getValue());
+                    }
+                }
+                if (channelId != NO_CHANNEL) {
+                    out.flush();
+                }
+            }
+            writers.clear();
+        }
+
+        @Override
+        public PrintWriter getPrintWriter(OutputKind kind, boolean autoFlush) {
+            return new PrintWriter(getWriter(kind), autoFlush);
+        }
+
+        @Override
+        public PrintStream getPrintStream(OutputKind kind, boolean autoFlush) {
+            return new PrintStream(getOutputStream(kind), autoFlush);
+        }
+
+        private Writer getWriter(final OutputKind kind) {
+            if (protocolVersion >= PROTOCOL_FRAMED_OUTPUT) {
+                return writers.computeIfAbsent(kind, k -> new FramedOutputStream.FramedWriter(
+                        newFramedStream((byte) k.ordinal())));
+            }
+            Writer w = writers.get(kind);
+            if (w == null) {
+                w = new Writer() {
+                    @Override
+                    public void write(char[] cbuf, int off, int len) throws IOException {
+                        if (traceServer) {
+                            traceOut.println("Agent.Server.write[" + kind + ",writer] " + new String(cbuf, off, len));
+                        }
+                        final int BLOCKSIZE = 4096;
+                        while (len > 0) {
+                            int n = len > BLOCKSIZE ? BLOCKSIZE : len;
+                            synchronized (out) {
+                                writeHeader(OUTPUT);
+                                out.writeUTF(kind.name);
+                                out.writeUTF(new String(cbuf, off, n));
+                            }
+                            off += n;
+                            len -= n;
+                        }
+                        if (traceServer) {
+                            traceOut.println("Agent.Server.write[" + kind + ",writer]--done");
+                        }
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        out.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        out.flush();
+                    }
+                };
+                writers.put(kind, w);
+            }
+            return w;
+        }
+
+        private synchronized FramedOutputStream newFramedStream(byte streamId) {
+            FramedOutputStream fs = new FramedOutputStream(out, channelId, streamId);
+            framedStreams.add(fs);
+            return fs;
+        }
+
+        private OutputStream getOutputStream(final OutputKind kind) {
+            if (protocolVersion >= PROTOCOL_FRAMED_OUTPUT) {
+                // the bytes are sent as-is, to be decoded by the client
+                return newFramedStream((byte) (kind.ordinal() | NATIVE_ENCODING));
+            }
+            final Writer w = getWriter(kind);
+            return new OutputStream() {
+                private static final int BUFSIZE = 1024;
+                private ByteBuffer byteBuffer = ByteBuffer.allocate(BUFSIZE);
+                private CharBuffer charBuffer = CharBuffer.allocate(BUFSIZE);
+                private CharsetDecoder decoder = getNativeCharset()
+                    .newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
                 @Override
-                public void write(char[] cbuf, int off, int len) throws IOException {
+                public void write(byte[] bytes, int off, int len) throws IOException {
                     if (traceServer) {
-                        traceOut.println("Agent.Server.write[" + kind + ",writer] " + new String(cbuf, off, len));
+                        traceOut.println("Agent.Server.write[" + kind + ",stream] " + new String(bytes, off, len));
                     }
-                    final int BLOCKSIZE = 4096;
-                    while (len > 0) {
-                        int n = len > BLOCKSIZE ? BLOCKSIZE : len;
-                        synchronized (out) {
-                            out.writeByte(OUTPUT);
-                            out.writeUTF(kind.name);
-                            out.writeUTF(new String(cbuf, off, n));
-                        }
+                    int n;
+                    while (len > 0 && len >= (n = byteBuffer.remaining())) {
+                        byteBuffer.put(bytes, off, n);
+                        decode();
                         off += n;
                         len -= n;
                     }
+                    byteBuffer.put(bytes, off, len);
                     if (traceServer) {
-                        traceOut.println("Agent.Server.write[" + kind + ",writer]--done");
+                        traceOut.println("Agent.Server.write[" + kind + ",stream]--done");
+                    }
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    byteBuffer.put((byte) b);
+                    if (!byteBuffer.hasRemaining()) {
+                        decode();
                     }
                 }
 
                 @Override
                 public void flush() throws IOException {
-                    out.flush();
+                    decode();
+                    // let any content that has been decoded into the charBuffer be written out
+                    // to the writer so that the writer can then flush it to underlying stream
+                    writeCharBuffer();
+                    w.flush();
                 }
 
                 @Override
                 public void close() throws IOException {
-                    out.flush();
+                    decode();
+                    byteBuffer.flip();
+                    decoder.decode(byteBuffer, charBuffer, true);
+                    writeCharBuffer();
+                    w.flush();
+                }
+
+                private void decode() throws IOException {
+                    byteBuffer.flip();
+                    CoderResult cr;
+                    // The decoder has been configured to replace unmappable character and
+                    // malformed input, so this decoder.decode() will only report either
+                    // UNDERFLOW or OVERFLOW.
+                    // We transfer the decoded content in charBuffer to the writer only when the
+                    // charBuffer is full. i.e. the decoder.decode() reports OVERFLOW. In the case of
+                    // UNDERFLOW, we keep the decoded content in the charBuffer, until either this
+                    // OutputStream instance is flushed or additional data is written into this
+                    // OutputStream and the resultant decode() operation results in an OVERFLOW
+                    while ((cr = decoder.decode(byteBuffer, charBuffer, false)) != CoderResult.UNDERFLOW) {
+                        writeCharBuffer();
+                    }
+                    byteBuffer.compact();
+                }
+
+                private void writeCharBuffer() throws IOException {
+                    charBuffer.flip();
+                    w.write(charBuffer.toString());
+                    charBuffer.clear();
                 }
             };
-            writers.put(kind, w);
         }
-        return w;
     }
 
     /**
-     * Create an output stream for output to be sent back to the client via the server connection,
-     * and use it to write the given content.
-     * @param kind the kind of stream
-     * @param autoFlush whether or not to flush the stream on '\n'
+     * An output stream that writes to the appropriate stream of the channel for
+     * the action being executed on the current thread, if there is one,
+     * or to a default stream otherwise.
      */
-    public PrintStream getPrintStream(OutputKind kind, boolean autoFlush) {
-        return new PrintStream(getOutputStream(kind), autoFlush);
-    }
-
-    private OutputStream getOutputStream(final OutputKind kind) {
-        final Writer w = getWriter(kind);
-        return new OutputStream() {
-            private static final int BUFSIZE = 1024;
-            private ByteBuffer byteBuffer = ByteBuffer.allocate(BUFSIZE);
-            private CharBuffer charBuffer = CharBuffer.allocate(BUFSIZE);
-            private CharsetDecoder decoder = Charset.forName(
-                    System.getProperty("sun.stdout.encoding", System.getProperty("sun.jnu.encoding",
-                        Charset.defaultCharset().name())))
-                .newDecoder()
-                .onMalformedInput(CodingErrorAction.REPLACE)
-                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private class RoutingOutputStream extends OutputStream {
+        private final OutputStream defaultStream;
+        private final OutputKind kind;
 
-            @Override
-            public void write(byte[] bytes, int off, int len) throws IOException {
-                if (traceServer) {
-                    traceOut.println("Agent.Server.write[" + kind + ",stream] " + new String(bytes, off, len));
-                }
-                int n;
-                while (len > 0 && len >= (n = byteBuffer.remaining())) {
-                    byteBuffer.put(bytes, off, n);
-                    decode();
-                    off += n;
-                    len -= n;
-                }
-                byteBuffer.put(bytes, off, len);
-                if (traceServer) {
-                    traceOut.println("Agent.Server.write[" + kind + ",stream]--done");
-                }
-            }
-
-            @Override
-            public void write(int b) throws IOException {
-                byteBuffer.put((byte) b);
-                if (!byteBuffer.hasRemaining()) {
-                    decode();
-                }
-            }
+        RoutingOutputStream(OutputStream defaultStream, OutputKind kind) {
+            this.defaultStream = defaultStream;
+            this.kind = kind;
+        }
 
-            @Override
-            public void flush() throws IOException {
-                decode();
-                // let any content that has been decoded into the charBuffer be written out
-                // to the writer so that the writer can then flush it to underlying stream
-                writeCharBuffer();
-                w.flush();
-            }
+        private OutputStream getStream() {
+            Channel c = currentChannel.get();
+            return (c == null) ? defaultStream : c.getRoutedStream(kind);
+        }
 
-            @Override
-            public void close() throws IOException {
-                decode();
-                byteBuffer.flip();
-                decoder.decode(byteBuffer, charBuffer, true);
-                writeCharBuffer();
-                w.flush();
-            }
+        @Override
+        public void write(int b) throws IOException {
+            getStream().write(b);
+        }
 
-            private void decode() throws IOException {
-                byteBuffer.flip();
-                CoderResult cr;
-                // The decoder has been configured to replace unmappable character and
-                // malformed input, so this decoder.decode() will only report either
-                // UNDERFLOW or OVERFLOW.
-                // We transfer the decoded content in charBuffer to the writer only when the
-                // charBuffer is full. i.e. the decoder.decode() reports OVERFLOW. In the case of
-                // UNDERFLOW, we keep the decoded content in the charBuffer, until either this
-                // OutputStream instance is flushed or additional data is written into this
-                // OutputStream and the resultant decode() operation results in an OVERFLOW
-                while ((cr = decoder.decode(byteBuffer, charBuffer, false)) != CoderResult.UNDERFLOW) {
-                    writeCharBuffer();
-                }
-                byteBuffer.compact();
-            }
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            getStream().write(bytes, off, len);
+        }
 
-            private void writeCharBuffer() throws IOException {
-                charBuffer.flip();
-                w.write(charBuffer.toString());
-                charBuffer.clear();
-            }
-        };
+        @Override
+        public void flush() throws IOException {
+            getStream().flush();
+        }
     }
 }
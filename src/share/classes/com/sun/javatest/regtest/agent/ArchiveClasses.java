@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.agent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Loads the classes that are expected to be used by an agent, so that they
+ * will be included in a CDS archive created with {@code -XX:ArchiveClassesAtExit}.
+ * Usage: {@code
+ *   java -XX:ArchiveClassesAtExit=<file> ArchiveClasses <package-prefix>*
+ * }
+ * All the classes in the jar files on the class path whose names begin
+ * with any of the given prefixes are loaded, but not initialized.
+ */
+public class ArchiveClasses {
+    public static void main(String... args) {
+        ClassLoader loader = ArchiveClasses.class.getClassLoader();
+        int count = 0;
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (!entry.endsWith(".jar")) {
+                continue;
+            }
+            try (JarFile jar = new JarFile(entry)) {
+                Enumeration<JarEntry> e = jar.entries();
+                while (e.hasMoreElements()) {
+                    String name = e.nextElement().getName();
+                    if (!name.endsWith(".class") || name.startsWith("META-INF/")
+                            || name.endsWith("module-info.class")) {
+                        continue;
+                    }
+                    String cn = name.substring(0, name.length() - 6).replace('/', '.');
+                    if (matches(cn, args) && load(cn, loader)) {
+                        count++;
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading " + entry + ": " + e);
+            }
+        }
+        System.out.println("loaded " + count + " classes");
+    }
+
+    private static boolean matches(String cn, String[] prefixes) {
+        for (String p : prefixes) {
+            if (cn.startsWith(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean load(String cn, ClassLoader loader) {
+        try {
+            Class.forName(cn, false, loader);
+            return true;
+        } catch (Throwable t) {
+            // ignore: the class may depend on classes that are not available
+            return false;
+        }
+    }
+}
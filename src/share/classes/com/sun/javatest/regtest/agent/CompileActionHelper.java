@@ -81,15 +81,7 @@ public class CompileActionHelper extends ActionHelper {
                 alarm = Alarm.schedulePeriodicInterrupt(timeout, TimeUnit.SECONDS, alarmOut, Thread.currentThread());
             }
             try {
-                RegressionCompileCommand jcc = new RegressionCompileCommand() {
-                    @Override
-                    protected AStatus getStatus(int exitCode) {
-                        JDK_Version v = JDK_Version.forThisJVM();
-                        return getStatusForJavacExitCode(v, exitCode);
-                    }
-                };
-                String[] c = cmdArgs.toArray(new String[cmdArgs.size()]);
-                status = jcc.run(c, err, out);
+                status = compile(cmdArgs, out, err);
             } finally {
                 alarm.cancel();
             }
@@ -105,6 +97,40 @@ public class CompileActionHelper extends ActionHelper {
         return status;
     }
 
+    /**
+     * Runs the compiler without modifying any global state of the VM,
+     * such as the system properties or the standard output streams,
+     * so that several such compilations may be run concurrently in the same VM.
+     * It is the responsibility of the caller to route any output written to
+     * {@code System.out} and {@code System.err} to the given output handler.
+     *
+     * @param cmdArgs the arguments for the compiler
+     * @param outputHandler the handler for the output from the compiler
+     * @return the status of the compilation
+     */
+    public static AStatus runSharedCompile(List<String> cmdArgs, OutputHandler outputHandler) {
+        PrintWriter out = outputHandler.getPrintWriter(OutputHandler.OutputKind.DIRECT, false);
+        PrintWriter err = outputHandler.getPrintWriter(OutputHandler.OutputKind.DIRECT_LOG, false);
+        try {
+            return compile(cmdArgs, out, err);
+        } finally {
+            out.close();
+            err.close();
+        }
+    }
+
+    private static AStatus compile(List<String> cmdArgs, PrintWriter out, PrintWriter err) {
+        RegressionCompileCommand jcc = new RegressionCompileCommand() {
+            @Override
+            protected AStatus getStatus(int exitCode) {
+                JDK_Version v = JDK_Version.forThisJVM();
+                return getStatusForJavacExitCode(v, exitCode);
+            }
+        };
+        String[] c = cmdArgs.toArray(new String[cmdArgs.size()]);
+        return jcc.run(c, err, out);
+    }
+
     public static AStatus getStatusForJavacExitCode(JDK_Version v, int exitCode) {
         if (v == null || v.compareTo(JDK_Version.V1_6) < 0)
             return (exitCode == 0 ? passed : failed);
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.agent;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An output stream that sends data back to the client of an agent server,
+ * using the framed output protocol, {@link AgentServer#PROTOCOL_FRAMED_OUTPUT}.
+ *
+ * <p>Each frame consists of the {@link AgentServer#OUTPUT OUTPUT} op, the channel id
+ * (in multiplexed mode only), a one-byte stream id, a 4-byte length, and the given
+ * number of bytes of raw data. The stream id is the ordinal of the kind of output,
+ * possibly combined with {@link AgentServer#NATIVE_ENCODING}, to indicate that the
+ * data is encoded in the native encoding of the agent, instead of UTF-8.
+ *
+ * <p>Small writes are collected in a buffer, which is written as a single frame
+ * when it is full, when the stream is closed, or when the oldest data in the
+ * buffer has been waiting for longer than the flush deadline. Calls of
+ * {@code flush}, such as from a {@code PrintStream} with automatic flushing,
+ * do not write the buffer immediately, but leave it to be written by the deadline,
+ * so that output written a line at a time is still sent in large frames.
+ * Any buffered data must be written with {@link #writeBuffer} before
+ * the final status for an action is written.
+ */
+class FramedOutputStream extends OutputStream {
+    static final int BUFFER_SIZE = 32 * 1024;
+    static final long FLUSH_DEADLINE_MILLIS = 100;
+
+    private final DataOutputStream out;
+    private final int channelId;
+    private final byte streamId;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int count;
+    private long pendingSince;
+
+    /**
+     * Creates a stream to write frames to the given connection.
+     *
+     * @param out       the connection to the client
+     * @param channelId the channel id, or {@link AgentServer#NO_CHANNEL} if none
+     * @param streamId  the stream id
+     */
+    FramedOutputStream(DataOutputStream out, int channelId, byte streamId) {
+        this.out = out;
+        this.channelId = channelId;
+        this.streamId = streamId;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        if (count == buf.length) {
+            writeBuffer();
+        }
+        if (count == 0) {
+            startPending();
+        }
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (len >= buf.length) {
+            // too big to be worth buffering
+            writeBuffer();
+            writeFrame(b, off, len);
+            return;
+        }
+        if (len > buf.length - count) {
+            writeBuffer();
+        }
+        if (count == 0 && len > 0) {
+            startPending();
+        }
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    @Override
+    public void flush() {
+        // any buffered data will be written by the flush deadline
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushNow();
+    }
+
+    private synchronized void flushNow() throws IOException {
+        writeBuffer();
+        synchronized (out) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes the contents of the buffer if it has been waiting for longer than the deadline.
+     */
+    private synchronized void flushIfExpired(long now) throws IOException {
+        if (count > 0 && now - pendingSince >= FLUSH_DEADLINE_MILLIS) {
+            flushNow();
+        }
+    }
+
+    private void startPending() {
+        pendingSince = System.currentTimeMillis();
+        Flusher.register(this);
+    }
+
+    /**
+     * Writes any data in the buffer as a frame, without flushing the connection.
+     */
+    synchronized void writeBuffer() throws IOException {
+        if (count > 0) {
+            writeFrame(buf, 0, count);
+            count = 0;
+            Flusher.unregister(this);
+        }
+    }
+
+    private void writeFrame(byte[] b, int off, int len) throws IOException {
+        synchronized (out) {
+            out.writeByte(AgentServer.OUTPUT);
+            if (channelId != AgentServer.NO_CHANNEL) {
+                out.writeInt(channelId);
+            }
+            out.writeByte(streamId);
+            out.writeInt(len);
+            out.write(b, off, len);
+        }
+    }
+
+    /**
+     * Periodically writes the buffers of any streams whose data has been
+     * waiting for longer than the flush deadline.
+     */
+    private static class Flusher {
+        private static final Set<FramedOutputStream> pending = ConcurrentHashMap.newKeySet();
+        private static Alarm alarm = Alarm.NONE;
+
+        static synchronized void register(FramedOutputStream s) {
+            pending.add(s);
+            if (alarm == Alarm.NONE) {
+                alarm = Alarm.schedule(FLUSH_DEADLINE_MILLIS, TimeUnit.MILLISECONDS, null, Flusher::run);
+            }
+        }
+
+        static void unregister(FramedOutputStream s) {
+            pending.remove(s);
+        }
+
+        private static void run() {
+            long now = System.currentTimeMillis();
+            for (FramedOutputStream s : pending) {
+                try {
+                    s.flushIfExpired(now);
+                } catch (IOException e) {
+                    // the connection is broken; the error will also be reported
+                    // to the thread writing to the stream
+                    pending.remove(s);
+                }
+            }
+            synchronized (Flusher.class) {
+                alarm = pending.isEmpty()
+                        ? Alarm.NONE
+                        : Alarm.schedule(FLUSH_DEADLINE_MILLIS, TimeUnit.MILLISECONDS, null, Flusher::run);
+            }
+        }
+    }
+
+    /**
+     * A writer that encodes characters as UTF-8 and writes them to a framed output stream.
+     * The encoder is stateful, so that a surrogate pair that is split across two
+     * calls of {@code write} is encoded correctly.
+     */
+    static class FramedWriter extends Writer {
+        private final FramedOutputStream out;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer byteBuffer = ByteBuffer.allocate(8192);
+        private CharBuffer leftover;
+
+        FramedWriter(FramedOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public synchronized void write(char[] cbuf, int off, int len) throws IOException {
+            CharBuffer cb;
+            if (leftover == null) {
+                cb = CharBuffer.wrap(cbuf, off, len);
+            } else {
+                cb = CharBuffer.allocate(leftover.remaining() + len);
+                cb.put(leftover).put(cbuf, off, len).flip();
+                leftover = null;
+            }
+            encode(cb, false);
+            if (cb.hasRemaining()) {
+                // an incomplete surrogate pair
+                leftover = CharBuffer.allocate(cb.remaining()).put(cb);
+                leftover.flip();
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            encode(leftover == null ? CharBuffer.allocate(0) : leftover, true);
+            leftover = null;
+            while (encoder.flush(byteBuffer) == CoderResult.OVERFLOW) {
+                writeByteBuffer();
+            }
+            writeByteBuffer();
+            encoder.reset();
+            out.close();
+        }
+
+        private void encode(CharBuffer cb, boolean endOfInput) throws IOException {
+            while (encoder.encode(cb, byteBuffer, endOfInput) == CoderResult.OVERFLOW) {
+                writeByteBuffer();
+            }
+            writeByteBuffer();
+        }
+
+        private void writeByteBuffer() throws IOException {
+            byteBuffer.flip();
+            out.write(byteBuffer.array(), 0, byteBuffer.limit());
+            byteBuffer.clear();
+        }
+    }
+}
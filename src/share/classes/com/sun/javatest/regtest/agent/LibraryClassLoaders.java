@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.agent;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A cache of class loaders for the libraries used by main actions executed
+ * in an agent server, so that library classes need not be loaded, verified
+ * and initialized again for each action that uses them.
+ *
+ * Loaders are identified by the library search path, and are only reused
+ * while the content of the entries on the path is unchanged, as determined
+ * by a digest of the names, sizes and modification times of the files.
+ * The number of loaders is bounded; the least recently used loader is closed
+ * when another loader is required.
+ *
+ * Note that library classes loaded by a cached loader are shared by all the
+ * actions that use the same libraries, including any static state, and that
+ * classes in a library take precedence over classes of the same name in the
+ * test's own directories. For these reasons, the cache is only used by agents
+ * that are explicitly configured to use it.
+ */
+class LibraryClassLoaders {
+    private static final int DEFAULT_MAX_LOADERS = 8;
+
+    private final int maxLoaders;
+    private final Consumer<String> log;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Creates a cache of library class loaders.
+     *
+     * @param log a log for messages about the loaders that are created or reused
+     */
+    LibraryClassLoaders(Consumer<String> log) {
+        this(DEFAULT_MAX_LOADERS, log);
+    }
+
+    LibraryClassLoaders(int maxLoaders, Consumer<String> log) {
+        this.maxLoaders = maxLoaders;
+        this.log = log;
+    }
+
+    /**
+     * Returns a class loader for the classes on a library search path,
+     * whose parent is the system class loader.
+     *
+     * @param path the library search path
+     * @return the class loader
+     * @throws IOException if an error occurs while determining the content of the path
+     */
+    synchronized ClassLoader getLoader(SearchPath path) throws IOException {
+        String key = path.toString();
+        String stamp = getStamp(path);
+        Entry e = entries.get(key);
+        if (e != null) {
+            if (e.stamp.equals(stamp)) {
+                log.accept("reusing library class loader for " + key);
+                return e.loader;
+            }
+            log.accept("library changed; discarding class loader for " + key);
+            entries.remove(key);
+            close(e);
+        }
+
+        Iterator<Entry> iter = entries.values().iterator();
+        while (entries.size() >= maxLoaders && iter.hasNext()) {
+            Entry eldest = iter.next();
+            iter.remove();
+            close(eldest);
+        }
+
+        List<URL> urls = new ArrayList<>();
+        for (Path f : path.asList()) {
+            try {
+                urls.add(f.toUri().toURL());
+            } catch (MalformedURLException ex) {
+                // the entry cannot be used in a class loader; classes in it will not be found
+                log.accept("ignoring bad library path entry " + f + ": " + ex);
+            }
+        }
+        URLClassLoader loader = new URLClassLoader(urls.toArray(new URL[urls.size()]),
+                ClassLoader.getSystemClassLoader());
+        entries.put(key, new Entry(stamp, loader));
+        log.accept("created library class loader for " + key);
+        return loader;
+    }
+
+    /**
+     * Closes all the loaders in the cache.
+     */
+    synchronized void close() {
+        for (Entry e : entries.values()) {
+            close(e);
+        }
+        entries.clear();
+    }
+
+    private void close(Entry e) {
+        try {
+            e.loader.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    /**
+     * Returns a digest of the names, sizes and modification times of the files
+     * found on a search path.
+     */
+    private static String getStamp(SearchPath path) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        for (Path entry : path.asList()) {
+            if (Files.isDirectory(entry)) {
+                List<Path> files;
+                try (Stream<Path> s = Files.walk(entry)) {
+                    files = s.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+                for (Path f : files) {
+                    update(md, f);
+                }
+            } else if (Files.isRegularFile(entry)) {
+                update(md, entry);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+
+    private static void update(MessageDigest md, Path file) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        md.update(file.toString().getBytes(StandardCharsets.UTF_8));
+        md.update((":" + attrs.size() + ":" + attrs.lastModifiedTime().toMillis() + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class Entry {
+        final String stamp;
+        final URLClassLoader loader;
+
+        Entry(String stamp, URLClassLoader loader) {
+            this.stamp = stamp;
+            this.loader = loader;
+        }
+    }
+}
@@ -25,6 +25,7 @@
 
 package com.sun.javatest.regtest.agent;
 
+import java.io.IOException;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
@@ -52,6 +53,8 @@ public class MainActionHelper extends ActionHelper {
     private Set<String> addOpens;
     private Set<String> addMods;
     private SearchPath classpath;
+    private SearchPath libraryClasspath;
+    private LibraryClassLoaders libraryLoaders;
     private SearchPath modulepath;
     private String className;
     private List<String> classArgs;
@@ -90,6 +93,19 @@ public class MainActionHelper extends ActionHelper {
         return this;
     }
 
+    /**
+     * Sets the part of the class path containing libraries that may be loaded
+     * by a class loader that is shared with other actions.
+     * If no cache of library class loaders is set, or if a module path is used,
+     * the libraries are loaded by the same class loader as the rest of the
+     * class path, following it on the path.
+     */
+    MainActionHelper libraryClasspath(SearchPath libraryClasspath, LibraryClassLoaders libraryLoaders) {
+        this.libraryClasspath = libraryClasspath;
+        this.libraryLoaders = libraryLoaders;
+        return this;
+    }
+
     MainActionHelper modulepath(SearchPath modulepath) {
         this.modulepath = modulepath;
         return this;
@@ -153,6 +169,23 @@ public class MainActionHelper extends ActionHelper {
         try {
             Class<?> c;
             ClassLoader loader = ClassLoader.getSystemClassLoader();
+            SearchPath classpath = this.classpath;
+            if (libraryClasspath != null && !libraryClasspath.isEmpty()) {
+                ClassLoader libraryLoader = null;
+                if (libraryLoaders != null && (modulepath == null || modulepath.isEmpty())) {
+                    try {
+                        libraryLoader = libraryLoaders.getLoader(libraryClasspath);
+                    } catch (IOException e) {
+                        err.println(MSG_PREFIX + "cannot use shared library class loader: " + e);
+                    }
+                }
+                if (libraryLoader != null) {
+                    loader = libraryLoader;
+                } else {
+                    classpath = (classpath == null)
+                            ? libraryClasspath : new SearchPath(classpath, libraryClasspath);
+                }
+            }
             if (modulepath != null && !modulepath.isEmpty()) {
                 loader = ModuleHelper.addModules(modulepath.asList(), addMods);
             }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.agent;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures the resources used by the JVM while an action is executed by an agent.
+ *
+ * The values are reported as a map of names to values, using the names defined
+ * in this class, which are also the names of the corresponding properties in
+ * the test result for a test.
+ */
+public class ResourceMonitor {
+    /** CPU time, in milliseconds. */
+    public static final String CPU_TIME = "cpuTime";
+    /** Peak resident set size of a process, in kilobytes. */
+    public static final String MAX_RSS = "maxRSS";
+    /** Peak use of the Java heap, in kilobytes. */
+    public static final String MAX_HEAP = "maxHeap";
+    /** Number of garbage collections. */
+    public static final String GC_COUNT = "gcCount";
+    /** Time spent in garbage collection, in milliseconds. */
+    public static final String GC_TIME = "gcTime";
+    /** Peak number of live threads. */
+    public static final String MAX_THREADS = "maxThreads";
+
+    /**
+     * Starts monitoring the resources used by an action.
+     *
+     * If the action has exclusive use of the JVM, the values for the whole
+     * JVM are measured. Otherwise, when other actions may be executing
+     * concurrently, only the CPU time of the current thread is measured.
+     *
+     * @param exclusive whether the action has exclusive use of the JVM
+     * @return the monitor
+     */
+    public static ResourceMonitor start(boolean exclusive) {
+        return new ResourceMonitor(exclusive);
+    }
+
+    private final boolean exclusive;
+    private final long startCpuTime;
+    private final long startGcCount;
+    private final long startGcTime;
+
+    private ResourceMonitor(boolean exclusive) {
+        this.exclusive = exclusive;
+        if (exclusive) {
+            ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+            threadBean.resetPeakThreadCount();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                    pool.resetPeakUsage();
+                }
+            }
+            startCpuTime = getProcessCpuTime();
+            startGcCount = getGcCount();
+            startGcTime = getGcTime();
+        } else {
+            startCpuTime = getThreadCpuTime();
+            startGcCount = -1;
+            startGcTime = -1;
+        }
+    }
+
+    /**
+     * Returns the resources used since the monitor was started.
+     * Values that are not available are omitted.
+     *
+     * @return a map containing the values for the resources that were used
+     */
+    public Map<String, String> finish() {
+        Map<String, String> map = new LinkedHashMap<>();
+        long cpuTime = exclusive ? getProcessCpuTime() : getThreadCpuTime();
+        if (startCpuTime >= 0 && cpuTime >= 0) {
+            map.put(CPU_TIME, String.valueOf((cpuTime - startCpuTime) / 1_000_000));
+        }
+        if (exclusive) {
+            long heap = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                    MemoryUsage u = pool.getPeakUsage();
+                    if (u != null) {
+                        heap += u.getUsed();
+                    }
+                }
+            }
+            map.put(MAX_HEAP, String.valueOf(heap / 1024));
+            long gcCount = getGcCount();
+            if (startGcCount >= 0 && gcCount >= 0) {
+                map.put(GC_COUNT, String.valueOf(gcCount - startGcCount));
+            }
+            long gcTime = getGcTime();
+            if (startGcTime >= 0 && gcTime >= 0) {
+                map.put(GC_TIME, String.valueOf(gcTime - startGcTime));
+            }
+            map.put(MAX_THREADS, String.valueOf(ManagementFactory.getThreadMXBean().getPeakThreadCount()));
+        }
+        return map;
+    }
+
+    /**
+     * Returns the CPU time used by the process, in nanoseconds, or -1 if not available.
+     * The method is not part of the standard {@code OperatingSystemMXBean},
+     * and so is accessed reflectively.
+     */
+    private static long getProcessCpuTime() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        Method m = getProcessCpuTimeMethod();
+        if (m != null && m.getDeclaringClass().isInstance(os)) {
+            try {
+                return (Long) m.invoke(os);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // ignore
+            }
+        }
+        return -1;
+    }
+
+    private static synchronized Method getProcessCpuTimeMethod() {
+        if (!processCpuTimeMethodInitialized) {
+            try {
+                Class<?> c = Class.forName("com.sun.management.OperatingSystemMXBean");
+                processCpuTimeMethod = c.getMethod("getProcessCpuTime");
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                processCpuTimeMethod = null;
+            }
+            processCpuTimeMethodInitialized = true;
+        }
+        return processCpuTimeMethod;
+    }
+
+    private static Method processCpuTimeMethod;
+    private static boolean processCpuTimeMethodInitialized;
+
+    private static long getThreadCpuTime() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        try {
+            return threadBean.isCurrentThreadCpuTimeSupported()
+                    ? threadBean.getCurrentThreadCpuTime()
+                    : -1;
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    private static long getGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            long c = gc.getCollectionCount();
+            if (c > 0) {
+                total += c;
+            }
+        }
+        return total;
+    }
+
+    private static long getGcTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            long t = gc.getCollectionTime();
+            if (t > 0) {
+                total += t;
+            }
+        }
+        return total;
+    }
+}
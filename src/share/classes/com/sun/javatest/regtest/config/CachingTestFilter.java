@@ -27,14 +27,24 @@ package com.sun.javatest.regtest.config;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 import com.sun.javatest.TestDescription;
 import com.sun.javatest.TestFilter;
 
 /**
  * A test filter that caches its results.
+ *
+ * The filter may be used concurrently by multiple threads.
+ * The value for each key is computed at most once: if other threads need
+ * the value for a key while it is being computed, they wait for the result.
  */
 public abstract class CachingTestFilter extends TestFilter {
     private final String name;
@@ -49,7 +59,9 @@ public abstract class CachingTestFilter extends TestFilter {
             this.value = v;
         }
     }
-    private final Map<String, Entry> cache = new HashMap<>();
+    private final Map<String, FutureTask<Entry>> cache = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
 
     /**
      * Creates a CachingTestFilter.
@@ -83,10 +95,23 @@ public abstract class CachingTestFilter extends TestFilter {
 
     /**
      * Returns the unmodifiable collection of entries in the cache.
+     * Entries for which a value is still being computed, or for which an
+     * error occurred, are not included.
      * @return the entries
      */
     public Collection<Entry> getCacheEntries() {
-        return Collections.unmodifiableCollection(cache.values());
+        List<Entry> entries = cache.values().stream()
+                .filter(FutureTask::isDone)
+                .map(f -> {
+                    try {
+                        return getUninterruptibly(f);
+                    } catch (ExecutionException e) {
+                        return null;
+                    }
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return Collections.unmodifiableCollection(entries);
     }
 
     /**
@@ -96,6 +121,23 @@ public abstract class CachingTestFilter extends TestFilter {
         cache.clear();
     }
 
+    /**
+     * Returns the number of times a value was found in the cache.
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of times a value was not found in the cache,
+     * and so needed to be computed.
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
     @Override
     public String getName() {
         return name;
@@ -124,10 +166,53 @@ public abstract class CachingTestFilter extends TestFilter {
     @Override
     public final boolean accepts(TestDescription td) throws Fault {
         String key = getCacheKey(td);
-        Entry e = cache.get(key);
-        if (e == null) {
-            cache.put(key, e = new Entry(td, getCacheableValue(td)));
+        FutureTask<Entry> f = cache.get(key);
+        if (f == null) {
+            FutureTask<Entry> newTask = new FutureTask<>(() -> new Entry(td, getCacheableValue(td)));
+            f = cache.putIfAbsent(key, newTask);
+            if (f == null) {
+                f = newTask;
+                misses.increment();
+                newTask.run();
+            } else {
+                hits.increment();
+            }
+        } else {
+            hits.increment();
+        }
+
+        try {
+            return getUninterruptibly(f).value;
+        } catch (ExecutionException e) {
+            // do not cache failures; a later call will try again
+            cache.remove(key, f);
+            Throwable cause = e.getCause();
+            if (cause instanceof Fault) {
+                throw (Fault) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    private static <T> T getUninterruptibly(FutureTask<T> f) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return f.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
-        return e.value;
     }
 }
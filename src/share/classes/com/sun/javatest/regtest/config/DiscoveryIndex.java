@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A persistent index of the test descriptions found in the files of a test suite.
+ *
+ * The index records the tag values parsed from each file, keyed by the path,
+ * size and last-modified time of the file, together with a fingerprint of the
+ * configuration files that affect how the file is parsed. Files that have not
+ * changed since the index was last saved can be served from the index, without
+ * reading and parsing the file again.
+ *
+ * Optionally, a digest of the content of each file may also be recorded; this
+ * allows files whose last-modified time has changed but whose content has not,
+ * such as after switching between branches in a source code repository, to
+ * still be served from the index.
+ *
+ * The index may be used concurrently by multiple threads: entries are looked up
+ * and recorded without locking, so that the files of a test suite can be examined
+ * and digested in parallel.
+ */
+public class DiscoveryIndex {
+    /**
+     * The tag values for a single test description found in a file.
+     */
+    public static class Description {
+        public final int line;
+        public final Map<String, String> tagValues;
+
+        Description(int line, Map<String, String> tagValues) {
+            this.line = line;
+            this.tagValues = tagValues;
+        }
+    }
+
+    private static class Entry {
+        final long size;
+        final long lastModified;
+        final String context;
+        final String digest;
+        final List<Description> descriptions;
+
+        Entry(long size, long lastModified, String context, String digest, List<Description> descriptions) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.context = context;
+            this.digest = digest;
+            this.descriptions = descriptions;
+        }
+    }
+
+    /**
+     * Opens an index, reading any entries previously saved in a given file.
+     * If the file does not exist, cannot be read, or was written by a different
+     * version of jtreg, the index will initially be empty.
+     *
+     * @param file the file in which the index is stored
+     * @param stamp a string identifying the version of jtreg, used to invalidate
+     *              indexes written by other versions
+     * @param checkContent whether to record and compare a digest of the content of each file
+     * @param clear whether to discard any entries previously saved in the file
+     * @return the index
+     */
+    public static DiscoveryIndex open(Path file, String stamp, boolean checkContent, boolean clear) {
+        DiscoveryIndex index = new DiscoveryIndex(file, stamp, checkContent);
+        if (clear) {
+            index.modified = true;
+        } else {
+            try {
+                index.read();
+            } catch (NoSuchFileException e) {
+                // ignore: no previous index
+            } catch (IOException e) {
+                // ignore: the index will be rebuilt
+                index.entries.clear();
+                index.modified = true;
+            }
+        }
+        return index;
+    }
+
+    private DiscoveryIndex(Path file, String stamp, boolean checkContent) {
+        this.file = file;
+        this.stamp = stamp;
+        this.checkContent = checkContent;
+    }
+
+    /**
+     * Returns the test descriptions recorded for a file, or {@code null} if there
+     * is no entry for the file, or if the file or its context has changed since
+     * the entry was recorded.
+     *
+     * @param f the file
+     * @param context a fingerprint of the configuration that affects how the file is parsed
+     * @return the test descriptions, or {@code null}
+     */
+    public List<Description> get(File f, String context) {
+        Entry e = lookup(f, context);
+        if (e == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return e.descriptions;
+    }
+
+    /**
+     * Returns whether the index contains an up-to-date entry for a file.
+     * Unlike {@link #get(File, String) get}, this does not affect the
+     * number of hits and misses reported for the index.
+     *
+     * @param f the file
+     * @param context a fingerprint of the configuration that affects how the file is parsed
+     * @return {@code true} if and only if the index contains an up-to-date entry for the file
+     */
+    public boolean isCurrent(File f, String context) {
+        return lookup(f, context) != null;
+    }
+
+    private Entry lookup(File f, String context) {
+        String path = f.getPath();
+        Entry e = entries.get(path);
+        if (e == null || !e.context.equals(context)) {
+            return null;
+        }
+        long size = f.length();
+        long lastModified = f.lastModified();
+        if (e.size != size) {
+            return null;
+        }
+        if (e.lastModified != lastModified) {
+            if (!checkContent || e.digest == null || !e.digest.equals(digest(f))) {
+                return null;
+            }
+            // the content is unchanged, so just update the time stamp,
+            // unless the entry has been replaced in the meantime
+            Entry updated = new Entry(size, lastModified, e.context, e.digest, e.descriptions);
+            if (entries.replace(path, e, updated)) {
+                modified = true;
+            }
+            e = updated;
+        }
+        return e;
+    }
+
+    /**
+     * Records the test descriptions found in a file.
+     *
+     * @param f the file
+     * @param size the size of the file when it was read
+     * @param lastModified the last-modified time of the file when it was read
+     * @param context a fingerprint of the configuration that affects how the file is parsed
+     * @param descriptions the test descriptions
+     */
+    public void put(File f, long size, long lastModified, String context,
+            List<Description> descriptions) {
+        // If the file was modified while it was being read, do not record the results
+        if (f.length() != size || f.lastModified() != lastModified)
+            return;
+        // compute the digest before the entry is published
+        String d = checkContent ? digest(f) : null;
+        entries.put(f.getPath(), new Entry(size, lastModified, context, d,
+                Collections.unmodifiableList(new ArrayList<>(descriptions))));
+        modified = true;
+    }
+
+    /**
+     * Returns the number of files that have been served from the index.
+     *
+     * @return the number of files
+     */
+    public int getHits() {
+        return hits.intValue();
+    }
+
+    /**
+     * Returns the number of files that could not be served from the index,
+     * and which therefore had to be read.
+     *
+     * @return the number of files
+     */
+    public int getMisses() {
+        return misses.intValue();
+    }
+
+    /**
+     * Saves the index, if it has been modified since it was opened.
+     * Entries for files that no longer exist are discarded.
+     *
+     * @throws IOException if there is a problem writing the index
+     */
+    public synchronized void save() throws IOException {
+        if (!modified)
+            return;
+
+        entries.keySet().removeIf(p -> !new File(p).exists());
+
+        // clear the flag before writing the entries, so that any entries
+        // recorded while the index is being written will be saved next time
+        modified = false;
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            modified = true;
+            throw e;
+        }
+    }
+
+    private void write() throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            writeString(out, stamp);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> me : entries.entrySet()) {
+                Entry e = me.getValue();
+                writeString(out, me.getKey());
+                out.writeLong(e.size);
+                out.writeLong(e.lastModified);
+                writeString(out, e.context);
+                writeString(out, e.digest == null ? "" : e.digest);
+                out.writeInt(e.descriptions.size());
+                for (Description d : e.descriptions) {
+                    out.writeInt(d.line);
+                    out.writeInt(d.tagValues.size());
+                    for (Map.Entry<String, String> tv : d.tagValues.entrySet()) {
+                        writeString(out, tv.getKey());
+                        writeString(out, tv.getValue());
+                    }
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void read() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || !readString(in).equals(stamp)) {
+                // written by a different version: discard it
+                modified = true;
+                return;
+            }
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String path = readString(in);
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                String context = readString(in);
+                String digest = readString(in);
+                int nd = in.readInt();
+                List<Description> descriptions = new ArrayList<>(nd);
+                for (int j = 0; j < nd; j++) {
+                    int line = in.readInt();
+                    int nt = in.readInt();
+                    Map<String, String> tagValues = new LinkedHashMap<>();
+                    for (int k = 0; k < nt; k++) {
+                        String key = readString(in);
+                        tagValues.put(key, readString(in));
+                    }
+                    descriptions.add(new Description(line, Collections.unmodifiableMap(tagValues)));
+                }
+                entries.put(path, new Entry(size, lastModified, context,
+                        digest.isEmpty() ? null : digest, Collections.unmodifiableList(descriptions)));
+            }
+        }
+    }
+
+    // DataOutputStream.writeUTF is limited to 64K bytes, which may not be
+    // enough for the tag values of some tests
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0)
+            throw new IOException("bad string length: " + n);
+        byte[] bytes = new byte[n];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String digest(File f) {
+        try (InputStream in = Files.newInputStream(f.toPath())) {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                md.update(buf, 0, n);
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    private static final int MAGIC = 0x6a744449; // "jtDI"
+
+    private final Path file;
+    private final String stamp;
+    private final boolean checkContent;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean modified;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+}
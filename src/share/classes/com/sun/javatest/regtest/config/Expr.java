@@ -25,6 +25,9 @@
 
 package com.sun.javatest.regtest.config;
 
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
 import static com.sun.javatest.regtest.config.Expr.Token.*;
 
 /**
@@ -49,10 +52,35 @@ public abstract class Expr {
         return p.parse();
     }
 
+    /**
+     * Parses an expression, and compiles it for repeated evaluation in a given context.
+     * Names are looked up in the context when the expression is compiled, and
+     * any subexpressions that can be evaluated without error are replaced by
+     * their values; regular expressions with a constant pattern are compiled.
+     * The result gives the same results and reports the same errors as the
+     * result of {@link #parse(String, Context) parse}, but may only be evaluated
+     * in the same context, whose values should not change.
+     *
+     * @param s the text of the expression
+     * @param c the context in which the expression will be evaluated
+     * @return the compiled expression
+     * @throws Fault if there is an error parsing the expression
+     */
+    public static Expr compile(String s, Context c) throws Fault {
+        return parse(s, c).compile(c);
+    }
+
     public abstract String eval(Context c) throws Fault;
 
     public boolean evalBoolean(Context c) throws Fault {
-        String s = eval(c);
+        return toBoolean(eval(c));
+    }
+
+    public long evalNumber(Context c) throws Fault {
+        return toNumber(eval(c));
+    }
+
+    boolean toBoolean(String s) throws Fault {
         if (s.equals("true")) {
             return true;
         } else if (s.equals("false")) {
@@ -62,8 +90,7 @@ public abstract class Expr {
         }
     }
 
-    public long evalNumber(Context c) throws Fault {
-        String s = eval(c);
+    static long toNumber(String s) throws Fault {
         try {
             return Long.parseLong(s);
         } catch (NumberFormatException ex) {
@@ -71,6 +98,43 @@ public abstract class Expr {
         }
     }
 
+    /**
+     * Returns whether the value of this expression is always either "true" or "false",
+     * such that {@link #evalBoolean(Context) evalBoolean} cannot fail because of
+     * the form of the value.
+     *
+     * @return whether the value of this expression is always a boolean value
+     */
+    boolean isBoolean() {
+        return false;
+    }
+
+    /**
+     * Returns an equivalent expression, simplified for repeated evaluation in a given context.
+     *
+     * @param c the context
+     * @return the simplified expression
+     */
+    Expr compile(Context c) {
+        return fold(c);
+    }
+
+    /**
+     * Returns a constant expression for the value of this expression in a given context,
+     * or this expression if the value cannot be determined without error.
+     *
+     * @param c the context
+     * @return a constant expression, or this expression
+     */
+    Expr fold(Context c) {
+        try {
+            return new ConstantExpr(toString(), eval(c));
+        } catch (Fault | RuntimeException e) {
+            // leave the error to be reported if and when the expression is evaluated
+            return this;
+        }
+    }
+
     abstract int precedence();
 
     Expr order() {
@@ -467,20 +531,65 @@ public abstract class Expr {
                 return this;
             }
         }
+        @Override
+        Expr compile(Context c) {
+            left = left.compile(c);
+            right = right.compile(c);
+            return (left instanceof ConstantExpr && right instanceof ConstantExpr) ? fold(c) : this;
+        }
+
         protected Expr left;
         protected Expr right;
     }
 
     //--------------------------------------------------------------------------
 
-    static class AddExpr extends BinaryExpr {
+    abstract static class BooleanExpr extends BinaryExpr {
 
-        AddExpr(Expr left, Expr right) {
+        BooleanExpr(Expr left, Expr right) {
             super(left, right);
         }
 
         public String eval(Context c) throws Fault {
-            return String.valueOf(left.evalNumber(c) + right.evalNumber(c));
+            return String.valueOf(evalBoolean(c));
+        }
+
+        @Override
+        public abstract boolean evalBoolean(Context c) throws Fault;
+
+        @Override
+        boolean isBoolean() {
+            return true;
+        }
+    }
+
+    //--------------------------------------------------------------------------
+
+    abstract static class NumericExpr extends BinaryExpr {
+
+        NumericExpr(Expr left, Expr right) {
+            super(left, right);
+        }
+
+        public String eval(Context c) throws Fault {
+            return String.valueOf(evalNumber(c));
+        }
+
+        @Override
+        public abstract long evalNumber(Context c) throws Fault;
+    }
+
+    //--------------------------------------------------------------------------
+
+    static class AddExpr extends NumericExpr {
+
+        AddExpr(Expr left, Expr right) {
+            super(left, right);
+        }
+
+        @Override
+        public long evalNumber(Context c) throws Fault {
+            return left.evalNumber(c) + right.evalNumber(c);
         }
 
         int precedence() {
@@ -495,14 +604,23 @@ public abstract class Expr {
 
     //--------------------------------------------------------------------------
 
-    static class AndExpr extends BinaryExpr {
+    static class AndExpr extends BooleanExpr {
 
         AndExpr(Expr left, Expr right) {
             super(left, right);
         }
 
-        public String eval(Context c) throws Fault {
-            return String.valueOf(left.evalBoolean(c) && right.evalBoolean(c));
+        @Override
+        public boolean evalBoolean(Context c) throws Fault {
+            return left.evalBoolean(c) && right.evalBoolean(c);
+        }
+
+        @Override
+        Expr compile(Context c) {
+            Expr e = super.compile(c);
+            // if the left operand is false, the right operand is never evaluated
+            return (e == this && left instanceof ConstantExpr
+                    && ((ConstantExpr) left).value.equals("false")) ? fold(c) : e;
         }
 
         int precedence() {
@@ -517,14 +635,15 @@ public abstract class Expr {
 
     //--------------------------------------------------------------------------
 
-    static class DivideExpr extends BinaryExpr {
+    static class DivideExpr extends NumericExpr {
 
         DivideExpr(Expr left, Expr right) {
             super(left, right);
         }
 
-        public String eval(Context c) throws Fault {
-            return String.valueOf(left.evalNumber(c) / right.evalNumber(c));
+        @Override
+        public long evalNumber(Context c) throws Fault {
+            return left.evalNumber(c) / right.evalNumber(c);
         }
 
         int precedence() {
@@ -539,14 +658,15 @@ public abstract class Expr {
 
     //--------------------------------------------------------------------------
 
-    static class EqualExpr extends BinaryExpr {
+    static class EqualExpr extends BooleanExpr {
 
         EqualExpr(Expr left, Expr right) {
             super(left, right);
         }
 
-        public String eval(Context c) throws Fault {
-            return String.valueOf(left.eval(c).equalsIgnoreCase(right.eval(c)));
+        @Override
+        public boolean evalBoolean(Context c) throws Fault {
+            return left.eval(c).equalsIgnoreCase(right.eval(c));
         }
 
         int precedence() {
@@ -561,14 +681,15 @@ public abstract class Expr {
 
     //--------------------------------------------------------------------------
 
-    static class GreaterExpr extends BinaryExpr {
+    static class GreaterExpr extends BooleanExpr {
 
         GreaterExpr(Expr left, Expr right) {
             super(left, right);
         }
 
-        public String eval(Context c) throws Fault {
-            return String.valueOf(left.evalNumber(c) > right.evalNumber(c));
+        @Override
+        public boolean evalBoolean(Context c) throws Fault {
+            return left.evalNumber(c) > right.evalNumber(c);
         }
 
         int precedence() {
@@ -583,14 +704,15 @@ public abstract class Expr {
 
     //--------------------------------------------------------------------------
 
-    static class GreaterEqualExpr extends BinaryExpr {
+    static class GreaterEqualExpr extends BooleanExpr {
 
         GreaterEqualExpr(Expr left, Expr right) {
             super(left, right);
         }
 
-        public String eval(Context c) throws Fault {
-            return String.valueOf(left.evalNumber(c) >= right.evalNumber(c));
+        @Override
+        public boolean evalBoolean(Context c) throws Fault {
+            return left.evalNumber(c) >= right.evalNumber(c);
         }
 
         int precedence() {
@@ -605,14 +727,15 @@ public abstract class Expr {
 
     //--------------------------------------------------------------------------
 
-    static class LessExpr extends BinaryExpr {
+    static class LessExpr extends BooleanExpr {
 
         LessExpr(Expr left, Expr right) {
             super(left, right);
         }
 
-        public String eval(Context c) throws Fault {
-            return String.valueOf(left.evalNumber(c) < right.evalNumber(c));
+        @Override
+        public boolean evalBoolean(Context c) throws Fault {
+            return left.evalNumber(c) < right.evalNumber(c);
         }
 
         int precedence() {
@@ -627,14 +750,15 @@ public abstract class Expr {
 
     //--------------------------------------------------------------------------
 
-    static class LessEqualExpr extends BinaryExpr {
+    static class LessEqualExpr extends BooleanExpr {
 
         LessEqualExpr(Expr left, Expr right) {
             super(left, right);
         }
 
-        public String eval(Context c) throws Fault {
-            return String.valueOf(left.evalNumber(c) <= right.evalNumber(c));
+        @Override
+        public boolean evalBoolean(Context c) throws Fault {
+            return left.evalNumber(c) <= right.evalNumber(c);
         }
 
         int precedence() {
@@ -649,16 +773,33 @@ public abstract class Expr {
 
     //--------------------------------------------------------------------------
 
-    static class MatchExpr extends BinaryExpr {
+    static class MatchExpr extends BooleanExpr {
 
         MatchExpr(Expr left, Expr right) {
             super(left, right);
         }
 
-        public String eval(Context c) throws Fault {
-            return String.valueOf(left.eval(c).matches(right.eval(c)));
+        @Override
+        public boolean evalBoolean(Context c) throws Fault {
+            String s = left.eval(c);
+            return (pattern != null) ? pattern.matcher(s).matches() : s.matches(right.eval(c));
         }
 
+        @Override
+        Expr compile(Context c) {
+            Expr e = super.compile(c);
+            if (e == this && right instanceof ConstantExpr) {
+                try {
+                    pattern = Pattern.compile(((ConstantExpr) right).value);
+                } catch (PatternSyntaxException ex) {
+                    // leave the error to be reported when the expression is evaluated
+                }
+            }
+            return e;
+        }
+
+        private Pattern pattern;
+
         int precedence() {
             return PREC_EQ;
         }
@@ -671,14 +812,15 @@ public abstract class Expr {
 
     //--------------------------------------------------------------------------
 
-    static class MultiplyExpr extends BinaryExpr {
+    static class MultiplyExpr extends NumericExpr {
 
         MultiplyExpr(Expr left, Expr right) {
             super(left, right);
         }
 
-        public String eval(Context c) throws Fault {
-            return String.valueOf(left.evalNumber(c) * right.evalNumber(c));
+        @Override
+        public long evalNumber(Context c) throws Fault {
+            return left.evalNumber(c) * right.evalNumber(c);
         }
 
         int precedence() {
@@ -720,14 +862,15 @@ public abstract class Expr {
 
     //--------------------------------------------------------------------------
 
-    static class NotEqualExpr extends BinaryExpr {
+    static class NotEqualExpr extends BooleanExpr {
 
         NotEqualExpr(Expr left, Expr right) {
             super(left, right);
         }
 
-        public String eval(Context c) throws Fault {
-            return String.valueOf(!left.eval(c).equalsIgnoreCase(right.eval(c)));
+        @Override
+        public boolean evalBoolean(Context c) throws Fault {
+            return !left.eval(c).equalsIgnoreCase(right.eval(c));
         }
 
         int precedence() {
@@ -749,7 +892,23 @@ public abstract class Expr {
         }
 
         public String eval(Context c) throws Fault {
-            return String.valueOf(!expr.evalBoolean(c));
+            return String.valueOf(evalBoolean(c));
+        }
+
+        @Override
+        public boolean evalBoolean(Context c) throws Fault {
+            return !expr.evalBoolean(c);
+        }
+
+        @Override
+        boolean isBoolean() {
+            return true;
+        }
+
+        @Override
+        Expr compile(Context c) {
+            expr = expr.compile(c);
+            return (expr instanceof ConstantExpr) ? fold(c) : this;
         }
 
         int precedence() {
@@ -761,7 +920,7 @@ public abstract class Expr {
             return "!" + expr;
         }
 
-        private final Expr expr;
+        private Expr expr;
     }
 
     //--------------------------------------------------------------------------
@@ -804,14 +963,23 @@ public abstract class Expr {
 
     //--------------------------------------------------------------------------
 
-    static class OrExpr extends BinaryExpr {
+    static class OrExpr extends BooleanExpr {
 
         OrExpr(Expr left, Expr right) {
             super(left, right);
         }
 
-        public String eval(Context c) throws Fault {
-            return String.valueOf(left.evalBoolean(c) || right.evalBoolean(c));
+        @Override
+        public boolean evalBoolean(Context c) throws Fault {
+            return left.evalBoolean(c) || right.evalBoolean(c);
+        }
+
+        @Override
+        Expr compile(Context c) {
+            Expr e = super.compile(c);
+            // if the left operand is true, the right operand is never evaluated
+            return (e == this && left instanceof ConstantExpr
+                    && ((ConstantExpr) left).value.equals("true")) ? fold(c) : e;
         }
 
         int precedence() {
@@ -836,6 +1004,28 @@ public abstract class Expr {
             return expr.eval(c);
         }
 
+        @Override
+        public boolean evalBoolean(Context c) throws Fault {
+            // if the value is not boolean, report the error for this expression
+            return expr.isBoolean() ? expr.evalBoolean(c) : super.evalBoolean(c);
+        }
+
+        @Override
+        public long evalNumber(Context c) throws Fault {
+            return expr.evalNumber(c);
+        }
+
+        @Override
+        boolean isBoolean() {
+            return expr.isBoolean();
+        }
+
+        @Override
+        Expr compile(Context c) {
+            expr = expr.compile(c);
+            return (expr instanceof ConstantExpr) ? fold(c) : this;
+        }
+
         int precedence() {
             return PREC_PRN;
         }
@@ -845,19 +1035,20 @@ public abstract class Expr {
             return "(" + expr + ")";
         }
 
-        private final Expr expr;
+        private Expr expr;
     }
 
     //--------------------------------------------------------------------------
 
-    static class RemainderExpr extends BinaryExpr {
+    static class RemainderExpr extends NumericExpr {
 
         RemainderExpr(Expr left, Expr right) {
             super(left, right);
         }
 
-        public String eval(Context c) throws Fault {
-            return String.valueOf(left.evalNumber(c) % right.evalNumber(c));
+        @Override
+        public long evalNumber(Context c) throws Fault {
+            return left.evalNumber(c) % right.evalNumber(c);
         }
 
         int precedence() {
@@ -896,14 +1087,15 @@ public abstract class Expr {
 
     //--------------------------------------------------------------------------
 
-    static class SubtractExpr extends BinaryExpr {
+    static class SubtractExpr extends NumericExpr {
 
         SubtractExpr(Expr left, Expr right) {
             super(left, right);
         }
 
-        public String eval(Context c) throws Fault {
-            return String.valueOf(left.evalNumber(c) - right.evalNumber(c));
+        @Override
+        public long evalNumber(Context c) throws Fault {
+            return left.evalNumber(c) - right.evalNumber(c);
         }
 
         int precedence() {
@@ -916,4 +1108,83 @@ public abstract class Expr {
         }
     }
 
+    //--------------------------------------------------------------------------
+
+    /**
+     * The value of an expression that has been evaluated when it was compiled.
+     * The values of the expression as a boolean and as a number are precomputed,
+     * along with any errors that would occur when evaluating them.
+     */
+    static class ConstantExpr extends Expr {
+
+        ConstantExpr(String text, String value) {
+            this.text = text;
+            this.value = value;
+            booleanValue = value.equals("true") ? Boolean.TRUE
+                    : value.equals("false") ? Boolean.FALSE
+                    : null;
+            numberValue = isNumber(value) ? toNumberOrNull(value) : null;
+        }
+
+        // avoid the cost of creating exceptions for the common case of non-numeric values
+        private static boolean isNumber(String s) {
+            int start = (s.startsWith("-") || s.startsWith("+")) ? 1 : 0;
+            if (s.length() == start) {
+                return false;
+            }
+            for (int i = start; i < s.length(); i++) {
+                if (!Character.isDigit(s.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static Long toNumberOrNull(String s) {
+            try {
+                return Long.parseLong(s);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        public String eval(Context c) {
+            return value;
+        }
+
+        @Override
+        public boolean evalBoolean(Context c) throws Fault {
+            return (booleanValue != null) ? booleanValue : toBoolean(value);
+        }
+
+        @Override
+        public long evalNumber(Context c) throws Fault {
+            return (numberValue != null) ? numberValue : toNumber(value);
+        }
+
+        @Override
+        boolean isBoolean() {
+            return booleanValue != null;
+        }
+
+        @Override
+        Expr compile(Context c) {
+            return this;
+        }
+
+        int precedence() {
+            return PREC_LIT;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+
+        private final String text;
+        private final String value;
+        private final Boolean booleanValue;
+        private final Long numberValue;
+    }
+
 }
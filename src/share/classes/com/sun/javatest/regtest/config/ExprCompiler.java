@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles expressions for repeated evaluation in a given context,
+ * sharing the compiled form of expressions with the same text.
+ *
+ * @see Expr#compile(String, Expr.Context)
+ */
+public class ExprCompiler {
+    /**
+     * Creates a compiler for expressions to be evaluated in a given context.
+     * The values in the context should not change.
+     *
+     * @param context the context
+     */
+    public ExprCompiler(Expr.Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Returns the context in which compiled expressions will be evaluated.
+     *
+     * @return the context
+     */
+    public Expr.Context getContext() {
+        return context;
+    }
+
+    /**
+     * Returns the compiled form of an expression.
+     *
+     * @param text the text of the expression
+     * @return the compiled expression
+     * @throws Expr.Fault if there is an error parsing the expression
+     */
+    public Expr compile(String text) throws Expr.Fault {
+        Object o = cache.get(text);
+        if (o == null) {
+            try {
+                o = Expr.compile(text, context);
+            } catch (Expr.Fault f) {
+                o = f.getMessage();
+            }
+            cache.putIfAbsent(text, o);
+        }
+        if (o instanceof Expr) {
+            return (Expr) o;
+        } else {
+            throw new Expr.Fault((String) o);
+        }
+    }
+
+    /**
+     * Evaluates an expression as a boolean value.
+     *
+     * @param text the text of the expression
+     * @return the value of the expression
+     * @throws Expr.Fault if there is an error parsing or evaluating the expression
+     */
+    public boolean evalBoolean(String text) throws Expr.Fault {
+        return compile(text).evalBoolean(context);
+    }
+
+    private final Expr.Context context;
+    /** The compiled expression, or the message for the error parsing it, for each expression. */
+    private final Map<String, Object> cache = new ConcurrentHashMap<>();
+}
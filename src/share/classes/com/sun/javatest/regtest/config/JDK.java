@@ -43,6 +43,8 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.function.Consumer;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -108,6 +110,22 @@ public class JDK {
 
     private static final Map<Path, JDK> cache = new HashMap<>();
 
+    /**
+     * Sets the directory for a cache of the information obtained by running
+     * JDKs, which may be shared between invocations of jtreg.
+     *
+     * @param dir the directory, or {@code null} if the information should not be cached
+     */
+    public static synchronized void setProbeCacheDirectory(Path dir) {
+        probeCache = (dir == null) ? null : new JDKProbeCache(dir);
+    }
+
+    private static synchronized JDKProbeCache getProbeCache() {
+        return probeCache;
+    }
+
+    private static JDKProbeCache probeCache;
+
     /**
      * Creates a JDK object, given its "$JAVA_HOME" path.
      *
@@ -316,10 +334,30 @@ public class JDK {
         final String VERSION_PROPERTY = "java.specification.version";
 
         for (Info info : infoMap.values()) {
-            if (info.jdkProperties != null) {
-                javaSpecificationVersion = info.jdkProperties.getProperty(VERSION_PROPERTY);
-                if (javaSpecificationVersion != null)
+            if (info.jdkProperties != null && info.jdkProperties.isDone()) {
+                try {
+                    javaSpecificationVersion = info.jdkProperties.get().getProperty(VERSION_PROPERTY);
+                    if (javaSpecificationVersion != null)
+                        return javaSpecificationVersion;
+                } catch (ExecutionException | InterruptedException e) {
+                    // ignore; the version will be determined separately
+                }
+            }
+        }
+
+        JDKProbeCache pc = getProbeCache();
+        String key = null;
+        if (pc != null) {
+            try {
+                key = pc.getKey(this, VERSION_PROPERTY, List.of(pc.getSearchPathStamp(getSysPropClassPath)));
+                Properties entry = pc.get(key);
+                if (entry != null && entry.getProperty(VERSION_PROPERTY) != null) {
+                    javaSpecificationVersion = entry.getProperty(VERSION_PROPERTY);
                     return javaSpecificationVersion;
+                }
+            } catch (IOException e) {
+                logger.accept("Error accessing JDK probe cache: " + e);
+                pc = null;
             }
         }
 
@@ -345,6 +383,10 @@ public class JDK {
                 if (javaSpecificationVersion.equals("unknown")) {
                     logger.accept("Error getting " + VERSION_PROPERTY + " for " + jdk + ": property not found in output");
                     lines.forEach(logger::accept);
+                } else if (pc != null) {
+                    Properties entry = new Properties();
+                    entry.setProperty(VERSION_PROPERTY, javaSpecificationVersion);
+                    putProbe(pc, key, entry, logger);
                 }
             } else {
                 logger.accept("Error getting " + VERSION_PROPERTY + " for " + jdk + ": exit code " + rc);
@@ -371,40 +413,68 @@ public class JDK {
      *
      * @return the output from "{@code java -version}"
      */
-    public synchronized String getVersionText(Collection<String> vmOpts, Consumer<String> logger) {
+    public String getVersionText(Collection<String> vmOpts, Consumer<String> logger) {
+        try {
+            return await(getVersionTextTask(vmOpts, logger));
+        } catch (Fault f) {
+            throw new IllegalStateException(f);
+        }
+    }
+
+    private synchronized FutureTask<String> getVersionTextTask(Collection<String> vmOpts, Consumer<String> logger) {
         if (fullVersions == null)
             fullVersions = new HashMap<>();
 
+        List<String> vmOptsList = List.copyOf(vmOpts);
+        return fullVersions.computeIfAbsent(new LinkedHashSet<>(vmOpts),
+                s -> new FutureTask<>(() -> execGetVersionText(vmOptsList, logger)));
+    }
+
+    private String execGetVersionText(List<String> vmOpts, Consumer<String> logger) {
         final String VERSION_OPTION = "-version";
 
-        Set<String> vmOptsSet = new LinkedHashSet<>(vmOpts);
-        String fullVersion = fullVersions.get(vmOptsSet);
-        if (fullVersion == null) {
-            fullVersion = "";  // default
-            List<String> cmdArgs = new ArrayList<>();
-            cmdArgs.add(getJavaProg().toString());
-            cmdArgs.addAll(vmOpts);
-            cmdArgs.add(VERSION_OPTION);
+        String fullVersion = "";  // default
+        List<String> cmdArgs = new ArrayList<>();
+        cmdArgs.add(getJavaProg().toString());
+        cmdArgs.addAll(vmOpts);
+        cmdArgs.add(VERSION_OPTION);
 
+        JDKProbeCache pc = getProbeCache();
+        String key = null;
+        if (pc != null) {
             try {
-                Process p = new ProcessBuilder(cmdArgs)
-                        .redirectErrorStream(true)
-                        .start();
-                List<String> lines = getOutput(p, logger);
-                int rc = p.waitFor();
-                if (rc == 0) {
-                    fullVersion = StringUtils.join(lines, "\n");
-                } else {
-                    logger.accept("Error running 'java " + VERSION_OPTION + "' for " + jdk + ": exit code " + rc);
-                    lines.forEach(logger::accept);
+                key = pc.getKey(this, VERSION_OPTION, cmdArgs);
+                Properties entry = pc.get(key);
+                if (entry != null && entry.getProperty("output") != null) {
+                    return entry.getProperty("output");
                 }
-            } catch (InterruptedException
-                     | IOException e) {
-                // ignore, leave version as default
-                logger.accept("Error running 'java " + VERSION_OPTION + "' for " + jdk + ": " + e);
+            } catch (IOException e) {
+                logger.accept("Error accessing JDK probe cache: " + e);
+                pc = null;
             }
+        }
 
-            fullVersions.put(vmOptsSet, fullVersion);
+        try {
+            Process p = new ProcessBuilder(cmdArgs)
+                    .redirectErrorStream(true)
+                    .start();
+            List<String> lines = getOutput(p, logger);
+            int rc = p.waitFor();
+            if (rc == 0) {
+                fullVersion = StringUtils.join(lines, "\n");
+                if (pc != null) {
+                    Properties entry = new Properties();
+                    entry.setProperty("output", fullVersion);
+                    putProbe(pc, key, entry, logger);
+                }
+            } else {
+                logger.accept("Error running 'java " + VERSION_OPTION + "' for " + jdk + ": exit code " + rc);
+                lines.forEach(logger::accept);
+            }
+        } catch (InterruptedException
+                 | IOException e) {
+            // ignore, leave version as default
+            logger.accept("Error running 'java " + VERSION_OPTION + "' for " + jdk + ": " + e);
         }
 
         return fullVersion;
@@ -426,22 +496,96 @@ public class JDK {
      * @return the properties
      * @throws Fault if an error occurred while getting the properties
      */
-    public synchronized Properties getProperties(RegressionParameters params,
-                                                 Consumer<String> logger) throws Fault {
+    public Properties getProperties(RegressionParameters params,
+                                    Consumer<String> logger) throws Fault {
+        return await(getPropertiesTask(params, logger));
+    }
+
+    private synchronized FutureTask<Properties> getPropertiesTask(RegressionParameters params,
+                                                                  Consumer<String> logger) {
         Info info = getInfo(params);
 
         if (info.jdkProperties == null) {
             // get default modules as well
-            info.jdkProperties = execGetProperties(params,
+            info.jdkProperties = new FutureTask<>(() -> execGetProperties(params,
                     Collections.emptyList(),
                     List.of("--system-properties", "--modules=boot-layer"),
                     true,
-                    logger);
+                    logger));
         }
 
         return info.jdkProperties;
     }
 
+    /**
+     * Starts obtaining the information about this JDK that will be needed to run tests,
+     * such as its properties, system modules and version, so that the processes that are
+     * used to get the information all run at the same time, instead of one after another.
+     * The information is subsequently available from the corresponding methods,
+     * which will wait for the information if it is not yet available.
+     *
+     * @param params the parameters used to run the tests
+     * @param vmOpts the VM options to be used when {@code java -version} is run
+     * @param includeProperties whether to get the properties and modules of the JDK,
+     *                          as well as its version
+     * @param logger an object to which to write logging messages
+     */
+    public void startProbes(RegressionParameters params, Collection<String> vmOpts,
+                            boolean includeProperties, Consumer<String> logger) {
+        List<FutureTask<?>> tasks = new ArrayList<>();
+        if (includeProperties) {
+            tasks.add(getPropertiesTask(params, logger));
+            tasks.add(getSystemModulesTask(params, logger));
+        }
+        tasks.add(getVersionTextTask(vmOpts, logger));
+        for (FutureTask<?> t : tasks) {
+            if (!t.isDone()) {
+                Thread thread = new Thread(t, "JDK probe " + jdk);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    /**
+     * Waits for a task to complete, running it in the current thread if it has
+     * not yet been started, and returns the result.
+     *
+     * @param task the task
+     * @param <T> the type of the result
+     * @return the result
+     * @throws Fault if the task threw a fault
+     */
+    private static <T> T await(FutureTask<T> task) throws Fault {
+        // does nothing if the task has already been run, or is running in another thread
+        task.run();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Fault) {
+                throw (Fault) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new Fault(String.valueOf(cause), cause);
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /**
      * Checks whether or not the JDK has modules.
      * Any errors will be logged to {@link System#err}.
@@ -472,12 +616,26 @@ public class JDK {
      *
      * @return the set of installed modules
      */
-    public synchronized Set<String> getDefaultModules(RegressionParameters params, Consumer<String> logger) {
-        Info info = getInfo(params);
+    public Set<String> getDefaultModules(RegressionParameters params, Consumer<String> logger) {
+        synchronized (this) {
+            Info info = getInfo(params);
+            if (info.defaultModules != null) {
+                return info.defaultModules;
+            }
+        }
 
-        if (info.defaultModules == null) {
-            try {
-                Properties props = getProperties(params, logger);
+        // wait for the properties without holding the lock, since they may be
+        // being obtained in another thread
+        Properties props;
+        try {
+            props = getProperties(params, logger);
+        } catch (Fault f) {
+            throw new IllegalStateException(f);
+        }
+
+        synchronized (this) {
+            Info info = getInfo(params);
+            if (info.defaultModules == null) {
                 String m = props.getProperty(GetJDKProperties.JTREG_MODULES);
                 if (m == null) {
                     info.defaultModules = Collections.emptySet();
@@ -485,15 +643,12 @@ public class JDK {
                     info.defaultModules = Collections.unmodifiableSet(
                                 new LinkedHashSet<>(List.of(m.split(" +"))));
                 }
-            } catch (Fault f) {
-                throw new IllegalStateException(f);
-            }
-            if (showModules) {
-                System.err.println("default modules: " + new TreeSet<>(info.defaultModules));
+                if (showModules) {
+                    System.err.println("default modules: " + new TreeSet<>(info.defaultModules));
+                }
             }
+            return info.defaultModules;
         }
-
-        return info.defaultModules;
     }
 
     /**
@@ -507,52 +662,65 @@ public class JDK {
      *
      * @return the set of installed modules
      */
-    public synchronized Set<String> getSystemModules(RegressionParameters params,
-                                                     Consumer<String> logger) {
+    public Set<String> getSystemModules(RegressionParameters params,
+                                        Consumer<String> logger) {
+        try {
+            return await(getSystemModulesTask(params, logger));
+        } catch (Fault f) {
+            throw new IllegalStateException(f);
+        }
+    }
+
+    private synchronized FutureTask<Set<String>> getSystemModulesTask(RegressionParameters params,
+                                                                      Consumer<String> logger) {
         Info info = getInfo(params);
 
         if (info.systemModules == null) {
-            if (getVersion(params, logger).compareTo(JDK_Version.V9) >= 0) {
-                try {
-                    // Despite the name, --add-modules=ALL-SYSTEM does not
-                    // resolve all system modules: it excludes those marked
-                    // "do not resolve by default". This can cause tests
-                    // to be incorrectly filtered out because of an @modules
-                    // declaration that might refer to one of those modules.
-                    // To work around this, by default we get all system modules
-                    // using ModuleFinder.ofSystem() on the target platform,
-                    // unless the user has explicitly used any --(add|limit)-modules
-                    // options, in which case we get the standard modules that
-                    // are resolved in the boot layer.
-                    String modulesOpt = "--modules=all-system";
-                    for (String vmOpt : params.getTestVMJavaOptions()) {
-                        if (vmOpt.matches("--(add|limit)-modules(=.*)?")) {
-                            modulesOpt = "--modules=boot-layer";
-                            break;
-                        }
-                    }
-                    Properties props = execGetProperties(params,
-                            Collections.emptyList(),    // vm options
-                            List.of(modulesOpt), false, logger);  // requested info from probe
-                    String m = props.getProperty(GetJDKProperties.JTREG_MODULES);
-                    if (m == null) {
-                        info.systemModules = Collections.emptySet();
-                    } else {
-                        info.systemModules = Collections.unmodifiableSet(
-                                new LinkedHashSet<>(List.of(m.split(" +"))));
-                    }
-                } catch (Fault f) {
-                    throw new IllegalStateException(f);
+            info.systemModules = new FutureTask<>(() -> execGetSystemModules(params, logger));
+        }
+
+        return info.systemModules;
+    }
+
+    private Set<String> execGetSystemModules(RegressionParameters params, Consumer<String> logger)
+            throws Fault {
+        Set<String> systemModules;
+        if (getVersion(params, logger).compareTo(JDK_Version.V9) >= 0) {
+            // Despite the name, --add-modules=ALL-SYSTEM does not
+            // resolve all system modules: it excludes those marked
+            // "do not resolve by default". This can cause tests
+            // to be incorrectly filtered out because of an @modules
+            // declaration that might refer to one of those modules.
+            // To work around this, by default we get all system modules
+            // using ModuleFinder.ofSystem() on the target platform,
+            // unless the user has explicitly used any --(add|limit)-modules
+            // options, in which case we get the standard modules that
+            // are resolved in the boot layer.
+            String modulesOpt = "--modules=all-system";
+            for (String vmOpt : params.getTestVMJavaOptions()) {
+                if (vmOpt.matches("--(add|limit)-modules(=.*)?")) {
+                    modulesOpt = "--modules=boot-layer";
+                    break;
                 }
-            } else {
-                info.systemModules = Collections.emptySet();
             }
-            if (showModules) {
-                System.err.println("system modules: " + new TreeSet<>(info.systemModules));
+            Properties props = execGetProperties(params,
+                    Collections.emptyList(),    // vm options
+                    List.of(modulesOpt), false, logger);  // requested info from probe
+            String m = props.getProperty(GetJDKProperties.JTREG_MODULES);
+            if (m == null) {
+                systemModules = Collections.emptySet();
+            } else {
+                systemModules = Collections.unmodifiableSet(
+                        new LinkedHashSet<>(List.of(m.split(" +"))));
             }
+        } else {
+            systemModules = Collections.emptySet();
+        }
+        if (showModules) {
+            System.err.println("system modules: " + new TreeSet<>(systemModules));
         }
 
-        return info.systemModules;
+        return systemModules;
     }
 
     /**
@@ -650,6 +818,30 @@ public class JDK {
             cmdArgs.addAll(opts);
             cmdArgs.addAll(epd.getClasses());
 
+            JDKProbeCache pc = getProbeCache();
+            String key = null;
+            if (pc != null) {
+                try {
+                    List<String> keyArgs = new ArrayList<>(cmdArgs);
+                    // the name of the output file is different every time
+                    keyArgs.remove("--output-file=" + tmpOutputFile);
+                    keyArgs.add(pc.getSearchPathStamp(params.getJavaTestClassPath()));
+                    if (includeExtraPropDefns) {
+                        keyArgs.add(pc.getDirectoryDigest(epd.getClassDir()));
+                        keyArgs.add(pc.getDirectoryDigest(epd.getBootClassDir()));
+                    }
+                    key = pc.getKey(this, GetJDKProperties.class.getName(), keyArgs);
+                    Properties props = pc.get(key);
+                    if (props != null) {
+                        Files.delete(tmpOutputFile);
+                        return props;
+                    }
+                } catch (IOException e) {
+                    logger.accept("Error accessing JDK probe cache: " + e);
+                    pc = null;
+                }
+            }
+
             final Process p = new ProcessBuilder(cmdArgs)
                     .directory(scratchDir)
                     .start();
@@ -667,7 +859,12 @@ public class JDK {
                 throw new Fault(msg);
             }
             Properties props = new Properties();
-            props.load(Files.newBufferedReader(tmpOutputFile));
+            try (BufferedReader in = Files.newBufferedReader(tmpOutputFile)) {
+                props.load(in);
+            }
+            if (pc != null) {
+                putProbe(pc, key, props, logger);
+            }
             // delete the temp file
             try {
                 Files.delete(tmpOutputFile);
@@ -684,6 +881,14 @@ public class JDK {
         }
     }
 
+    private void putProbe(JDKProbeCache pc, String key, Properties entry, Consumer<String> logger) {
+        try {
+            pc.put(key, entry);
+        } catch (IOException e) {
+            logger.accept("Error writing JDK probe cache: " + e);
+        }
+    }
+
     private List<String> readLines(InputStream is) throws IOException {
         List<String> lines = new ArrayList<>();
         try (BufferedReader in = new BufferedReader(new InputStreamReader(is))) {
@@ -743,16 +948,16 @@ public class JDK {
     private JDK_Version jdkVersion;
 
     /** Value of java VMOPTS -version for this JDK. Lazily evaluated as needed. */
-    private Map<Set<String>, String> fullVersions;
+    private Map<Set<String>, FutureTask<String>> fullVersions;
 
     private Boolean hasOldSymbolFile = null;
 
     private final Map<RegressionParameters, Info> infoMap = new HashMap<>();
 
     static class Info {
-        Properties jdkProperties;
+        FutureTask<Properties> jdkProperties;
         Set<String> defaultModules;
-        Set<String> systemModules;
+        FutureTask<Set<String>> systemModules;
     }
 
     private static final boolean showModules = Flags.get("showModules");
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.sun.javatest.regtest.agent.SearchPath;
+
+/**
+ * An on-disk cache of the information obtained by running a JDK, such as
+ * its system properties and modules, so that the information can be reused
+ * by subsequent invocations of jtreg, without running the JDK again.
+ *
+ * Each entry is identified by a key that is a digest of everything that
+ * might affect the information: the identity of the JDK, as given by the
+ * contents of its {@code release} file, the size, modification time and
+ * content digest of its {@code lib/modules} file, and the size and modification
+ * time of its VM libraries; the environment variables that provide options
+ * for the VM; the command that is used to run the JDK, the version of jtreg,
+ * and the host on which jtreg is running.
+ * A change to any of these results in a different key, so stale entries are
+ * never used. Entries are written atomically, and an entry that cannot be read
+ * is ignored, and is replaced when the information is next obtained.
+ */
+class JDKProbeCache {
+    /**
+     * The version of the format of the cache, to be incremented whenever
+     * the format or the information in the cache changes incompatibly.
+     */
+    private static final String FORMAT_VERSION = "2";
+
+    /**
+     * The environment variables that are read by the VM or the launcher,
+     * and which may therefore affect the information obtained by running the JDK.
+     */
+    private static final List<String> ENV_VARS = List.of("JAVA_TOOL_OPTIONS", "_JAVA_OPTIONS", "JDK_JAVA_OPTIONS");
+
+    /**
+     * The names of the files containing the VM, which may be rebuilt without
+     * any change to the {@code release} or {@code lib/modules} files.
+     */
+    private static final List<String> VM_LIBRARIES = List.of("libjvm.so", "libjvm.dylib", "jvm.dll");
+
+    private final Path dir;
+    private final Map<JDK, String> identities = new HashMap<>();
+
+    JDKProbeCache(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Returns the key for an entry in the cache.
+     *
+     * @param jdk the JDK that is run
+     * @param kind the kind of information
+     * @param args the command-line arguments, and any other values that
+     *             may affect the information
+     * @return the key
+     * @throws IOException if an error occurs while determining the identity of the JDK
+     */
+    String getKey(JDK jdk, String kind, List<String> args) throws IOException {
+        MessageDigest md = newDigest();
+        update(md, FORMAT_VERSION);
+        update(md, getIdentity(jdk));
+        update(md, kind);
+        for (String arg : args) {
+            update(md, arg);
+        }
+        return toHex(md.digest());
+    }
+
+    /**
+     * Returns an entry in the cache, or {@code null} if there is no entry
+     * for the given key, or if the entry cannot be read.
+     *
+     * @param key the key
+     * @return the entry
+     */
+    Properties get(String key) {
+        Path file = dir.resolve(key + ".properties");
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Properties p = new Properties();
+            p.load(in);
+            return p;
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Saves an entry in the cache.
+     * The entry is written to a temporary file which is then atomically
+     * moved into place, so that concurrent invocations of jtreg never see
+     * a partially written entry.
+     *
+     * @param key the key
+     * @param entry the entry
+     * @throws IOException if an error occurs while saving the entry
+     */
+    void put(String key, Properties entry) throws IOException {
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, key, ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                entry.store(out, null);
+            }
+            Files.move(tmp, dir.resolve(key + ".properties"), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Returns a digest of the content of the files in a directory, or
+     * an empty string if the directory does not exist.
+     *
+     * @param d the directory
+     * @return the digest
+     * @throws IOException if an error occurs while reading the files
+     */
+    String getDirectoryDigest(Path d) throws IOException {
+        if (d == null || !Files.isDirectory(d)) {
+            return "";
+        }
+        MessageDigest md = newDigest();
+        List<Path> files;
+        try (Stream<Path> s = Files.walk(d)) {
+            files = s.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path f : files) {
+            update(md, d.relativize(f).toString());
+            update(md, getContentDigest(f));
+        }
+        return toHex(md.digest());
+    }
+
+    /**
+     * Returns a string that identifies the files on a search path,
+     * such as the path used to run the classes in jtreg that get
+     * information from the JDK.
+     *
+     * @param path the search path
+     * @return the string
+     * @throws IOException if an error occurs while reading the attributes of the files
+     */
+    String getSearchPathStamp(SearchPath path) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Path p : path.asList()) {
+            sb.append(getFileStamp(p)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a string that identifies a JDK and the environment in which it is run.
+     */
+    private String getIdentity(JDK jdk) throws IOException {
+        // the identity is computed at most once for each JDK, even when the JDK
+        // is being probed in several threads at once
+        synchronized (identities) {
+            String identity = identities.get(jdk);
+            if (identity == null) {
+                StringBuilder sb = new StringBuilder();
+                Path home = jdk.getAbsoluteHomeDirectory();
+                sb.append(home).append('\n');
+                Path release = home.resolve("release");
+                if (Files.exists(release)) {
+                    sb.append(new String(Files.readAllBytes(release), StandardCharsets.UTF_8)).append('\n');
+                }
+                Path java = jdk.getJavaProg();
+                sb.append(getFileStamp(java)).append('\n');
+                for (String name : List.of("lib/modules", "jre/lib/rt.jar", "lib/rt.jar")) {
+                    Path image = home.resolve(name);
+                    if (Files.exists(image)) {
+                        sb.append(getFileStamp(image)).append(' ').append(getStoredDigest(image)).append('\n');
+                        break;
+                    }
+                }
+                for (Path lib : getVMLibraries(home)) {
+                    sb.append(getFileStamp(lib)).append('\n');
+                }
+                for (String name : ENV_VARS) {
+                    String value = System.getenv(name);
+                    if (value != null) {
+                        sb.append(name).append('=').append(value).append('\n');
+                    }
+                }
+                sb.append(OS.current()).append('\n');
+                sb.append(System.getProperty("user.name")).append('\n');
+                identity = sb.toString();
+                identities.put(jdk, identity);
+            }
+            return identity;
+        }
+    }
+
+    /**
+     * Returns the VM libraries in a JDK, such as {@code lib/server/libjvm.so},
+     * {@code bin/server/jvm.dll}, or {@code jre/lib/amd64/server/libjvm.so}
+     * in older JDKs.
+     */
+    private static List<Path> getVMLibraries(Path home) throws IOException {
+        List<Path> libs = new ArrayList<>();
+        for (String name : List.of("lib", "bin", "jre/lib", "jre/bin")) {
+            Path d = home.resolve(name);
+            if (Files.isDirectory(d)) {
+                try (Stream<Path> s = Files.walk(d, 3)) {
+                    s.filter(f -> VM_LIBRARIES.contains(String.valueOf(f.getFileName())))
+                            .filter(Files::isRegularFile)
+                            .sorted()
+                            .forEach(libs::add);
+                }
+            }
+        }
+        return libs;
+    }
+
+    /**
+     * Returns the digest of the content of a file, using a digest saved in the
+     * cache if the file has not been modified since the digest was saved,
+     * so that large files such as {@code lib/modules} are only read once.
+     */
+    private String getStoredDigest(Path file) throws IOException {
+        String stamp = getFileStamp(file);
+        String key = "digest-" + toHex(newDigest().digest(file.toString().getBytes(StandardCharsets.UTF_8)));
+        Properties p = get(key);
+        if (p != null && stamp.equals(p.getProperty("stamp"))) {
+            String digest = p.getProperty("digest");
+            if (digest != null) {
+                return digest;
+            }
+        }
+        String digest = getContentDigest(file);
+        p = new Properties();
+        p.setProperty("file", file.toString());
+        p.setProperty("stamp", stamp);
+        p.setProperty("digest", digest);
+        try {
+            put(key, p);
+        } catch (IOException e) {
+            // ignore: the digest will be computed again next time
+        }
+        return digest;
+    }
+
+    private static String getFileStamp(Path file) throws IOException {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return file + " " + attrs.size() + " " + attrs.lastModifiedTime().toMillis();
+        } catch (NoSuchFileException e) {
+            return file + " -";
+        }
+    }
+
+    private static String getContentDigest(Path file) throws IOException {
+        MessageDigest md = newDigest();
+        byte[] buf = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                md.update(buf, 0, n);
+            }
+        }
+        return toHex(md.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest md, String s) {
+        md.update(s.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
@@ -91,6 +91,17 @@ public final class Locations {
             return name == null;
         }
 
+        /**
+         * Returns a location for the same library, with a different directory
+         * for the compiled classes.
+         *
+         * @param absClsDir the directory for the compiled classes
+         * @return the location
+         */
+        public LibLocn withClassDirectory(Path absClsDir) {
+            return new LibLocn(name, absSrcDir, absClsDir, kind);
+        }
+
         @Override
         public boolean equals(Object other) {
             if (other instanceof LibLocn) {
@@ -161,6 +172,7 @@ public final class Locations {
     private final Path absBaseSrcDir;
     private final Path absTestSrcDir;
     private final Path absBaseClsDir;
+    private final Path absSharedLibClsDir;
     private final Path absTestClsDir;
     private final Path absTestPatchDir;
     private final Path absTestModulesDir;
@@ -210,7 +222,14 @@ public final class Locations {
         Path relTestWorkDir = relTestDir.resolve(uniqueTestSubDir);
         absTestWorkDir = workDirRoot.resolve(relTestWorkDir);
 
-        absBaseClsDir = getThreadSafeDir(workDirRoot.resolve("classes"), params.getConcurrency());
+        Path absClassesDir = workDirRoot.resolve("classes");
+        absBaseClsDir = getThreadSafeDir(absClassesDir, params.getConcurrency());
+        // Shared libraries are compiled into a single directory, even when
+        // tests are run concurrently, so that each is compiled just once;
+        // BuildAction serializes the compilation of each library.
+        absSharedLibClsDir = (params.getConcurrency() == 1)
+                ? absBaseClsDir
+                : absClassesDir.resolve(SHARED_LIB_DIR);
         Path relTestClsDir = (packageRoot != null) ? Path.of(packageRoot)
                 : useUniqueClassDir ? relTestDir.resolve(uniqueTestSubDir)
                 : relTestDir;
@@ -246,7 +265,7 @@ public final class Locations {
     private LibLocn getLibLocn(TestDescription td, String lib) throws Fault {
         Path libDir = absTestClsDir;
         if (testSuite.getShareLibraries(td)) {
-            libDir = absBaseClsDir;
+            libDir = absSharedLibClsDir;
         }
         if (lib.startsWith("/")) {
             String libTail = lib.substring(1);
@@ -484,6 +503,30 @@ public final class Locations {
         return absBaseClsDir;
     }
 
+    /**
+     * Returns the directory in which the classes for shared libraries are placed.
+     * This is the same as {@link #absBaseClsDir()} unless tests are being run
+     * concurrently.
+     *
+     * @return the directory
+     */
+    public Path absSharedLibClsDir() {
+        return absSharedLibClsDir;
+    }
+
+    /**
+     * Returns whether the classes for a library are placed in a directory that
+     * may be used by tests running concurrently in other threads.
+     *
+     * @param l the library
+     * @return {@code true} if the directory is shared by concurrent tests
+     */
+    public boolean isShared(LibLocn l) {
+        return l.isLibrary()
+                && !absSharedLibClsDir.equals(absBaseClsDir)
+                && l.absClsDir.startsWith(absSharedLibClsDir);
+    }
+
     /**
      * Gets the directory for the compiled classes of a test in the unnamed module.
      * @return the directory
@@ -802,6 +845,13 @@ public final class Locations {
         return uniqueNum.get();
     }
 
+    /**
+     * The name of the subdirectory of the classes directory in which shared
+     * libraries are placed, when tests are run concurrently. The name cannot
+     * conflict with the per-thread directories, which are numbered.
+     */
+    private static final String SHARED_LIB_DIR = "shared";
+
     //----------misc statics---------------------------------------------------
 
     public static final String
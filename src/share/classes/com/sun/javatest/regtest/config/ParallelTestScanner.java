@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.config;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Scans the files in a test suite for test descriptions ahead of time,
+ * using a fork-join pool to walk directories and parse files in parallel.
+ *
+ * The results are held until they are requested by the {@link RegressionTestFinder}
+ * for which the scan is being done. The finder remains responsible for reporting
+ * the test descriptions to the harness, in the order in which the harness reads
+ * the files, so that the order in which tests are found is unchanged.
+ * If the finder requests the results for a file that has not yet been scanned,
+ * or if there was any problem scanning the file, the finder scans the file itself.
+ */
+class ParallelTestScanner {
+    /**
+     * The test descriptions found in a file.
+     */
+    static class Result {
+        final long size;
+        final long lastModified;
+        final List<DiscoveryIndex.Description> descriptions;
+
+        Result(long size, long lastModified, List<DiscoveryIndex.Description> descriptions) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.descriptions = descriptions;
+        }
+    }
+
+    /**
+     * A file to be scanned. The scan is done by whichever of a worker thread
+     * and the finder first claims the file.
+     */
+    private static class Task {
+        final AtomicBoolean claimed = new AtomicBoolean();
+        final CompletableFuture<Result> result = new CompletableFuture<>();
+    }
+
+    /**
+     * Creates a scanner.
+     *
+     * @param finder the finder for which the files are being scanned
+     * @param nThreads the number of threads to use
+     */
+    ParallelTestScanner(RegressionTestFinder finder, int nThreads) {
+        this.finder = finder;
+        allowedExtensions = new HashSet<>(finder.getAllowedExtensions());
+        ignoredDirectories = new HashSet<>(finder.getIgnoredDirectories());
+        workers = ThreadLocal.withInitial(finder::createWorker);
+        // asyncMode gives FIFO order for tasks that are forked but never joined,
+        // which is closer to the order in which the finder will request the results
+        pool = new ForkJoinPool(nThreads, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("Test scanner-" + t.getPoolIndex());
+            return t;
+        }, null, true);
+    }
+
+    /**
+     * Starts scanning the given files and directories.
+     * Directories are scanned recursively.
+     *
+     * @param files the files and directories
+     */
+    void start(Collection<File> files) {
+        for (File f : files) {
+            if (f.isDirectory()) {
+                pool.execute(new Walk(f));
+            } else if (f.isFile()) {
+                pool.execute(new Scan(f));
+            }
+        }
+    }
+
+    /**
+     * Returns the results of scanning a file, waiting for the scan to complete
+     * if necessary, or {@code null} if the finder should scan the file itself.
+     *
+     * @param file the file
+     * @return the results, or {@code null}
+     */
+    Result getResult(File file) {
+        Task t = tasks.putIfAbsent(file, CLAIMED);
+        if (t == null || t == CLAIMED) {
+            return null;
+        }
+        tasks.put(file, CLAIMED);
+        if (t.claimed.compareAndSet(false, true)) {
+            // not yet started: it is as quick for the finder to scan the file itself
+            return null;
+        }
+        return t.result.join();
+    }
+
+    /**
+     * Stops scanning, and discards any results that have not been requested.
+     */
+    void shutdown() {
+        pool.shutdownNow();
+        tasks.clear();
+    }
+
+    private class Walk extends RecursiveAction {
+        private static final long serialVersionUID = 0;
+        private final File dir;
+
+        Walk(File dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected void compute() {
+            String[] names = dir.list();
+            if (names == null) {
+                return;
+            }
+            Arrays.sort(names);
+            for (String name : names) {
+                if (ignoredDirectories.contains(name)) {
+                    continue;
+                }
+                File f = new File(dir, name);
+                if (f.isDirectory()) {
+                    new Walk(f).fork();
+                } else {
+                    int dot = name.indexOf('.');
+                    if (dot != -1 && allowedExtensions.contains(name.substring(dot))) {
+                        new Scan(f).fork();
+                    }
+                }
+            }
+        }
+    }
+
+    private class Scan extends RecursiveAction {
+        private static final long serialVersionUID = 0;
+        private final File file;
+
+        Scan(File file) {
+            this.file = file;
+        }
+
+        @Override
+        protected void compute() {
+            if (finder.isIndexed(file)) {
+                return;
+            }
+            Task t = new Task();
+            if (tasks.putIfAbsent(file, t) != null) {
+                return; // already requested by the finder
+            }
+            if (t.claimed.compareAndSet(false, true)) {
+                Result r = null;
+                try {
+                    r = scan(file);
+                } finally {
+                    t.result.complete(r);
+                }
+            }
+        }
+    }
+
+    private Result scan(File file) {
+        long size = file.length();
+        long lastModified = file.lastModified();
+        List<DiscoveryIndex.Description> descriptions = workers.get().scanForDescriptions(file);
+        return (descriptions == null) ? null : new Result(size, lastModified, descriptions);
+    }
+
+    private static final Task CLAIMED = new Task();
+
+    private final RegressionTestFinder finder;
+    private final Set<String> allowedExtensions;
+    private final Set<String> ignoredDirectories;
+    private final ForkJoinPool pool;
+    private final Map<File, Task> tasks = new ConcurrentHashMap<>();
+    private final ThreadLocal<RegressionTestFinder> workers;
+}
@@ -36,13 +36,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Pattern;
@@ -194,16 +195,28 @@ public final class RegressionParameters
      * The following map provides a way of recording whether a problem
      * was encountered by a filter.
      */
-    public Map<String, String> filterFaults = new HashMap<>();
+    public Map<String, String> filterFaults = new ConcurrentHashMap<>();
 
     /* A RegressionContext is used by various filters, but initializing it may throw an
      * exception. Therefore, it should be initialized explicitly, and the exception
      * handled, rather than lazily, in circumstances where the exception might be ignored.
      */
     private Expr.Context exprContext;
+    private ExprCompiler exprCompiler;
 
     public void initExprContext() throws JDK.Fault {
+        // start the probes for the JDKs concurrently; RegressionContext will
+        // wait for the properties of the test JDK
+        JDK testJDK = getTestJDK();
+        JDK compileJDK = getCompileJDK();
+        if (testJDK != null) {
+            testJDK.startProbes(this, getTestVMOptions(), true, logger);
+            if (compileJDK != null && !compileJDK.equals(testJDK)) {
+                compileJDK.startProbes(this, Collections.emptyList(), false, logger);
+            }
+        }
         exprContext = new RegressionContext(this, logger);
+        exprCompiler = new ExprCompiler(exprContext);
     }
 
     public Expr.Context getExprContext() {
@@ -229,6 +242,10 @@ public final class RegressionParameters
             if (mlf != null)
                 filters.add(mlf);
 
+            TestFilter cff = getChangedFilesFilter();
+            if (cff != null)
+                filters.add(cff);
+
             // Do not cache the results of the composite filter,
             // to not affect the filter stats, which handle CompositeFilters specially.
             // Cache the individual filters.
@@ -250,7 +267,7 @@ public final class RegressionParameters
         if (availModules.isEmpty())
             return null;
 
-        return new CachingTestFilter(
+        return track(new CachingTestFilter(
                 "ModulesFilter",
                 "Select tests for which all required modules are available",
                 "A required module is not available") {
@@ -279,11 +296,11 @@ public final class RegressionParameters
 
                 return true;
             }
-        };
+        });
     }
 
     TestFilter getRequiresFilter() {
-        return new CachingTestFilter(
+        return track(new CachingTestFilter(
                 "RequiresFilter",
                 "Select tests that satisfy a given set of platform requirements",
                 "The platform does not meet the specified requirements") {
@@ -301,7 +318,7 @@ public final class RegressionParameters
                     String requires = td.getParameter(REQUIRES);
                     if (requires == null)
                         return true;
-                    return Expr.parse(requires, exprContext).evalBoolean(exprContext);
+                    return exprCompiler.evalBoolean(requires);
                 } catch (Expr.Fault ex) {
                     filterFaults.put(td.getRootRelativeURL(), "Error evaluating expression: " + ex.getMessage());
                     // While it may seem more obvious to return false in this case,
@@ -313,14 +330,14 @@ public final class RegressionParameters
                     return true;
                 }
             }
-        };
+        });
     }
 
     TestFilter getTimeLimitFilter() {
         if (timeLimit <= 0)
             return null;
 
-        return new CachingTestFilter(
+        return track(new CachingTestFilter(
                 "TimeLimitFilter",
                 "Select tests that do not exceed a specified timeout value",
                 "Test declares a timeout which exceeds the requested time limit") {
@@ -346,7 +363,7 @@ public final class RegressionParameters
                 }
                 return true;
             }
-        };
+        });
     }
 
 
@@ -448,7 +465,7 @@ public final class RegressionParameters
             if (el == null) {
                 excludeListFilter = null;
             } else {
-                excludeListFilter = new CachingTestFilter(
+                excludeListFilter = track(new CachingTestFilter(
                         "jtregExcludeListFilter",
                         "Select tests which are not excluded on any exclude list",
                         "Test has been excluded by an exclude list") {
@@ -462,7 +479,7 @@ public final class RegressionParameters
                     public boolean getCacheableValue(TestDescription td) {
                         return !list.match(td);
                     }
-                };
+                });
             }
         }
         return excludeListFilter;
@@ -484,7 +501,7 @@ public final class RegressionParameters
                 } catch (ExcludeList.Fault | IOException e) {
                     throw new Error(e);
                 }
-                matchListFilter = new CachingTestFilter(
+                matchListFilter = track(new CachingTestFilter(
                         "jtregMatchListFilter",
                         "Select tests which are in a match list",
                         "Test is not in a match list") {
@@ -498,7 +515,7 @@ public final class RegressionParameters
                     public boolean getCacheableValue(TestDescription td) {
                         return list.match(td);
                     }
-                };
+                });
             }
         }
         return matchListFilter;
@@ -506,6 +523,45 @@ public final class RegressionParameters
 
     private TestFilter matchListFilter = UNSET;
 
+    private TestFilter getChangedFilesFilter() {
+        if (changedFilesFilter == UNSET) {
+            Path changedFilesList = getChangedFilesList();
+            if (changedFilesList == null) {
+                changedFilesFilter = null;
+            } else {
+                final Set<Path> changedFiles;
+                try {
+                    changedFiles = TestInputs.readChangedFiles(changedFilesList,
+                            getTestSuite().getRootDir().toPath());
+                } catch (IOException | InvalidPathException e) {
+                    throw new Error(e);
+                }
+                final TestInputs testInputs = TestInputs.get(this);
+                if (!changedFiles.isEmpty() && !testInputs.isAnyRecorded(changedFiles)) {
+                    logger.accept("Warning: none of the files listed in " + changedFilesList
+                            + " is a recorded input of any test");
+                }
+                changedFilesFilter = track(new CachingTestFilter(
+                        "jtregChangedFilesFilter",
+                        "Select tests whose inputs have changed",
+                        "Test inputs have not changed") {
+                    @Override
+                    protected String getCacheKey(TestDescription td) {
+                        return td.getRootRelativeURL();
+                    }
+
+                    @Override
+                    public boolean getCacheableValue(TestDescription td) {
+                        return testInputs.isAffected(td.getRootRelativeURL(), changedFiles);
+                    }
+                });
+            }
+        }
+        return changedFilesFilter;
+    }
+
+    private TestFilter changedFilesFilter = UNSET;
+
     /**
      * {@inheritDoc}
      *
@@ -527,7 +583,7 @@ public final class RegressionParameters
 
     public static class KeywordsTestFilter extends TestFilter {
         private final TestFilter delegate;
-        public final Set<String> ignored = new HashSet<>();
+        public final Set<String> ignored = ConcurrentHashMap.newKeySet();
 
         KeywordsTestFilter(TestFilter delegate) {
             this.delegate = delegate;
@@ -562,6 +618,28 @@ public final class RegressionParameters
         }
     }
 
+    /**
+     * Records a caching filter, so that its statistics can be reported
+     * at the end of the test run.
+     */
+    private <T extends CachingTestFilter> T track(T filter) {
+        cachingFilters.add(filter);
+        return filter;
+    }
+
+    /**
+     * Returns the caching filters that have been created for these parameters.
+     * Some filters may be created more than once, in which case there will be
+     * more than one filter with the same name.
+     *
+     * @return the caching filters
+     */
+    public List<CachingTestFilter> getCachingFilters() {
+        return Collections.unmodifiableList(cachingFilters);
+    }
+
+    private final List<CachingTestFilter> cachingFilters = new CopyOnWriteArrayList<>();
+
     private static final CachingTestFilter UNSET = new CachingTestFilter("", "", "") {
         public String getCacheKey(TestDescription td) {
             throw new IllegalStateException();
@@ -581,7 +659,7 @@ public final class RegressionParameters
             if (psf == null) {
                 priorStatusFilter = null;
             } else {
-                priorStatusFilter = new CachingTestFilter(
+                priorStatusFilter = track(new CachingTestFilter(
                         "jtregPriorStatusFilter",
                         "Select tests which match a specified status",
                         "Test did not match a specified status") {
@@ -594,7 +672,7 @@ public final class RegressionParameters
                     public boolean getCacheableValue(TestDescription td) throws Fault {
                         return psf.accepts(td);
                     }
-                };
+                });
             }
         }
         return priorStatusFilter;
@@ -628,6 +706,10 @@ public final class RegressionParameters
     private static final String REPORTDIR = ".reportDir";
     private static final String EXCLUSIVE_LOCK = ".exclLock";
     private static final String NATIVEDIR = ".nativeDir";
+    private static final String BUILD_CACHE = ".buildCache";
+    private static final String ASYNC_SCRATCH_CLEANUP = ".asyncScratchCleanup";
+    private static final String SAMPLE_PROCESS_RESOURCES = ".sampleProcessResources";
+    private static final String RESOURCE_BUDGET = ".resourceBudget";
     private static final String TIMEOUT_HANDLER = ".timeoutHandler";
     private static final String TIMEOUT_HANDLER_PATH = ".timeoutHandlerPath";
     private static final String TIMEOUT_HANDLER_TIMEOUT = ".timeoutHandlerTimeout";
@@ -712,6 +794,22 @@ public final class RegressionParameters
             if (v != null)
                 setNativeDir(Path.of(v));
 
+            v = data.get(prefix + BUILD_CACHE);
+            if (v != null)
+                setBuildCacheDirectory(Path.of(v));
+
+            v = data.get(prefix + ASYNC_SCRATCH_CLEANUP);
+            if (v != null)
+                setAsyncScratchCleanup(v.equals("true"));
+
+            v = data.get(prefix + SAMPLE_PROCESS_RESOURCES);
+            if (v != null)
+                setSampleProcessResources(v.equals("true"));
+
+            v = data.get(prefix + RESOURCE_BUDGET);
+            if (v != null)
+                setResourceBudget(v);
+
             v = data.get(prefix + TIMEOUT_HANDLER);
             if (v != null)
                 setTimeoutHandler(v);
@@ -801,6 +899,18 @@ public final class RegressionParameters
         if (nativeDir != null)
             data.put(prefix + NATIVEDIR, nativeDir.toString());
 
+        if (buildCacheDir != null)
+            data.put(prefix + BUILD_CACHE, buildCacheDir.toString());
+
+        if (asyncScratchCleanup)
+            data.put(prefix + ASYNC_SCRATCH_CLEANUP, "true");
+
+        if (sampleProcessResources)
+            data.put(prefix + SAMPLE_PROCESS_RESOURCES, "true");
+
+        if (resourceBudgetCores > 0)
+            data.put(prefix + RESOURCE_BUDGET, resourceBudgetCores + "," + resourceBudgetMemory);
+
         if (timeoutHandlerClassName != null)
             data.put(prefix + TIMEOUT_HANDLER, timeoutHandlerClassName);
 
@@ -1228,6 +1338,93 @@ public final class RegressionParameters
 
     //---------------------------------------------------------------------
 
+    /**
+     * Sets the directory for a cache of compiled library classes,
+     * which may be shared between test runs and work directories.
+     *
+     * @param buildCacheDir the directory, or {@code null} if no cache should be used
+     */
+    public void setBuildCacheDirectory(Path buildCacheDir) {
+        this.buildCacheDir = buildCacheDir;
+    }
+
+    public Path getBuildCacheDirectory() {
+        return buildCacheDir;
+    }
+
+    private Path buildCacheDir;
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Sets whether the files in scratch directories should be deleted in the
+     * background, instead of before the next test can use the directory.
+     *
+     * @param b whether the files should be deleted in the background
+     */
+    public void setAsyncScratchCleanup(boolean b) {
+        this.asyncScratchCleanup = b;
+    }
+
+    public boolean isAsyncScratchCleanup() {
+        return asyncScratchCleanup;
+    }
+
+    private boolean asyncScratchCleanup;
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Sets whether the resources used by the processes started by tests
+     * should be sampled while the processes are running.
+     *
+     * @param b whether the resources should be sampled
+     */
+    public void setSampleProcessResources(boolean b) {
+        this.sampleProcessResources = b;
+    }
+
+    public boolean isSampleProcessResources() {
+        return sampleProcessResources;
+    }
+
+    private boolean sampleProcessResources;
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Sets the resources that may be used by the tests that are running
+     * at any one time. Tests are only started when their expected use of
+     * resources fits within the budget.
+     *
+     * @param cores the number of processor cores, or 0 if tests should not
+     *              be scheduled according to a budget
+     * @param memory the amount of memory, in megabytes
+     */
+    public void setResourceBudget(int cores, long memory) {
+        this.resourceBudgetCores = cores;
+        this.resourceBudgetMemory = memory;
+    }
+
+    private void setResourceBudget(String budget) {
+        int sep = budget.indexOf(',');
+        setResourceBudget(Integer.parseInt(budget.substring(0, sep)),
+                Long.parseLong(budget.substring(sep + 1)));
+    }
+
+    public int getResourceBudgetCores() {
+        return resourceBudgetCores;
+    }
+
+    public long getResourceBudgetMemory() {
+        return resourceBudgetMemory;
+    }
+
+    private int resourceBudgetCores;
+    private long resourceBudgetMemory;
+
+    //---------------------------------------------------------------------
+
     public void setTimeoutHandler(String timeoutHandlerClassName) {
         this.timeoutHandlerClassName = Objects.requireNonNull(timeoutHandlerClassName);
     }
@@ -1310,6 +1507,25 @@ public final class RegressionParameters
 
     //---------------------------------------------------------------------
 
+    /**
+     * Sets a file listing files that have changed since an earlier run.
+     * If set, only the tests whose recorded inputs may be affected by the
+     * changes will be selected.
+     *
+     * @param file the file, or {@code null} to select tests regardless of changes
+     */
+    public void setChangedFilesList(Path file) {
+        this.changedFilesList = file;
+    }
+
+    public Path getChangedFilesList() {
+        return changedFilesList;
+    }
+
+    private Path changedFilesList;
+
+    //---------------------------------------------------------------------
+
     public void setUseWindowsSubsystemForLinux(boolean useWindowsSubsystemForLinux) {
         this.useWindowsSubsystemForLinux = useWindowsSubsystemForLinux;
     }
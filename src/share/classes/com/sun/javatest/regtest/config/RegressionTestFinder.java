@@ -32,6 +32,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.StreamTokenizer;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -39,6 +40,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -132,6 +134,57 @@ public final class RegressionTestFinder extends TagTestFinder
             System.err.println("RegressionTestFinder: reading " + file);
         }
 
+        if (recordOnly) {
+            recording = new ArrayList<>();
+            scanFileContents(file);
+            recorded = recording;
+            recording = null;
+            return;
+        }
+
+        if (discoveryIndex == null && parallelScanner == null) {
+            scanFileContents(file);
+            return;
+        }
+
+        String context = (discoveryIndex == null) ? null : getDiscoveryContext(file);
+        List<DiscoveryIndex.Description> descriptions =
+                (discoveryIndex == null) ? null : discoveryIndex.get(file, context);
+        if (descriptions == null && parallelScanner != null) {
+            ParallelTestScanner.Result r = parallelScanner.getResult(file);
+            if (r != null) {
+                descriptions = r.descriptions;
+                if (discoveryIndex != null) {
+                    discoveryIndex.put(file, r.size, r.lastModified, context, descriptions);
+                }
+            }
+        }
+        if (descriptions != null) {
+            for (DiscoveryIndex.Description d : descriptions) {
+                foundTestDescription(new HashMap<>(d.tagValues), file, d.line);
+            }
+            return;
+        }
+
+        if (discoveryIndex == null) {
+            scanFileContents(file);
+            return;
+        }
+
+        long size = file.length();
+        long lastModified = file.lastModified();
+        recording = new ArrayList<>();
+        try {
+            scanFileContents(file);
+        } finally {
+            if (recording != null) {
+                discoveryIndex.put(file, size, lastModified, context, recording);
+                recording = null;
+            }
+        }
+    }
+
+    private void scanFileContents(File file) {
         try {
             File tngRoot = properties.getTestNGRoot(file);
             if (tngRoot != null) {
@@ -146,6 +199,7 @@ public final class RegressionTestFinder extends TagTestFinder
                 }
             }
         } catch (TestSuite.Fault e) {
+            discardRecording();
             error(i18n, "finder.cant.read.test.properties", e.getMessage());
         }
     }
@@ -185,6 +239,7 @@ public final class RegressionTestFinder extends TagTestFinder
         String extn = name.substring(dot);
         Class<? extends CommentStream> csc = getClassForExtension(extn);
         if (csc == null) {
+            discardRecording();
             error(super_i18n, "tag.noParser", file, extn);
             return;
         }
@@ -193,6 +248,7 @@ public final class RegressionTestFinder extends TagTestFinder
             cs = csc.getDeclaredConstructor().newInstance();
         }
         catch (ReflectiveOperationException e) {
+            discardRecording();
             error(super_i18n, "tag.cantCreateClass", csc.getName(), extn);
             return;
         }
@@ -235,7 +291,7 @@ public final class RegressionTestFinder extends TagTestFinder
                     // still needs to evaluate to a valid test description.)
                     tagValues.remove("test");
 
-                    foundTestDescription(tagValues, file, commentLine);
+                    reportTestDescription(tagValues, file, commentLine);
                 }
 
                 comment = nextComment;
@@ -243,9 +299,11 @@ public final class RegressionTestFinder extends TagTestFinder
             }
         }
         catch (FileNotFoundException e) {
+            discardRecording();
             error(super_i18n, "tag.cantFindFile", file);
         }
         catch (IOException e) {
+            discardRecording();
             error(super_i18n, "tag.ioError", file);
         }
         finally {
@@ -257,6 +315,144 @@ public final class RegressionTestFinder extends TagTestFinder
         }
     }
 
+    /**
+     * Reports the tag values for a test description found in a file,
+     * recording a copy in the discovery index if one is in use.
+     */
+    private void reportTestDescription(Map<String, String> tagValues, File file, int line) {
+        if (recording != null) {
+            recording.add(new DiscoveryIndex.Description(line, new HashMap<>(tagValues)));
+        }
+        if (!recordOnly) {
+            foundTestDescription(tagValues, file, line);
+        }
+    }
+
+    /**
+     * Discards the test descriptions recorded for the file currently being scanned,
+     * so that the file will be scanned again, and any errors reported again,
+     * the next time it is read.
+     */
+    private void discardRecording() {
+        recording = null;
+    }
+
+    /**
+     * Sets the discovery index used to avoid parsing files that have not changed
+     * since the index was last saved.
+     *
+     * @param index the index, or {@code null} if no index should be used
+     */
+    public void setDiscoveryIndex(DiscoveryIndex index) {
+        discoveryIndex = index;
+    }
+
+    /**
+     * Returns the discovery index used to avoid parsing files that have not changed
+     * since the index was last saved.
+     *
+     * @return the index, or {@code null} if no index is being used
+     */
+    public DiscoveryIndex getDiscoveryIndex() {
+        return discoveryIndex;
+    }
+
+    /**
+     * Starts scanning files for test descriptions in parallel, ahead of the files
+     * being read by the harness. Test descriptions are still reported to the harness
+     * when the harness reads each file, so the order in which they are found is
+     * not affected. If a parallel scan has already been started, this method has
+     * no effect.
+     *
+     * @param nThreads the number of threads to use
+     * @param files the files and directories to be scanned; directories are scanned recursively
+     */
+    public void startParallelScan(int nThreads, Collection<File> files) {
+        if (parallelScanner == null) {
+            parallelScanner = new ParallelTestScanner(this, nThreads);
+            parallelScanner.start(files);
+        }
+    }
+
+    /**
+     * Stops any parallel scan of the files in the test suite.
+     * Any files that are subsequently read will be scanned on the calling thread.
+     */
+    public void stopParallelScan() {
+        if (parallelScanner != null) {
+            parallelScanner.shutdown();
+            parallelScanner = null;
+        }
+    }
+
+    /**
+     * Creates a finder to scan files on a worker thread of a parallel scan.
+     * The finder records the tag values it finds, instead of reporting them,
+     * and does not report any errors; files which cannot be scanned successfully
+     * are scanned again by the main finder, which will report the errors.
+     */
+    RegressionTestFinder createWorker() {
+        RegressionTestFinder w = new RegressionTestFinder(properties, msg -> { });
+        w.recordOnly = true;
+        try {
+            w.init(new String[] { }, getRoot(), null);
+        } catch (Fault e) {
+            throw new Error(e);
+        }
+        return w;
+    }
+
+    /**
+     * Scans a file in a worker finder, returning the tag values that were found,
+     * or {@code null} if there was a problem scanning the file.
+     */
+    List<DiscoveryIndex.Description> scanForDescriptions(File file) {
+        read(file);
+        List<DiscoveryIndex.Description> r = recorded;
+        recorded = null;
+        return r;
+    }
+
+    /**
+     * Returns whether the discovery index contains an up-to-date entry for a file.
+     */
+    boolean isIndexed(File file) {
+        return discoveryIndex != null && discoveryIndex.isCurrent(file, getDiscoveryContext(file));
+    }
+
+    /**
+     * Returns a fingerprint of the configuration files that may affect the way
+     * that a file is parsed: that is, {@code TEST.ROOT} and any {@code TEST.properties}
+     * files in the directories between the test suite root directory and the file.
+     */
+    private String getDiscoveryContext(File file) {
+        return getDiscoveryContextForDir(file.getParentFile());
+    }
+
+    private String getDiscoveryContextForDir(File dir) {
+        String c = discoveryContexts.get(dir);
+        if (c == null) {
+            StringBuilder sb = new StringBuilder();
+            if (dir.equals(getRootDir()) || dir.getParentFile() == null) {
+                appendFingerprint(sb, new File(dir, "TEST.ROOT"));
+            } else {
+                sb.append(getDiscoveryContextForDir(dir.getParentFile()));
+            }
+            appendFingerprint(sb, new File(dir, "TEST.properties"));
+            c = sb.toString();
+            discoveryContexts.put(dir, c);
+        }
+        return c;
+    }
+
+    private void appendFingerprint(StringBuilder sb, File f) {
+        if (f.exists()) {
+            sb.append(f.getPath()).append(':')
+                    .append(f.length()).append(':')
+                    .append(f.lastModified()).append(';');
+        }
+    }
+
     private static class LineCounterBufferedReader extends BufferedReader {
         int lineNumber;
 
@@ -334,8 +530,9 @@ public final class RegressionTestFinder extends TagTestFinder
                 tagValues.put("library", StringUtils.join(libDirs, " "));
             }
 
-            foundTestDescription(tagValues, file, /*line*/0);
+            reportTestDescription(tagValues, file, /*line*/0);
         } catch (IOException e) {
+            discardRecording();
             error(i18n, "finder.ioError", file);
         }
     }
@@ -398,6 +595,7 @@ public final class RegressionTestFinder extends TagTestFinder
                     }
                 }
             } catch (IOException e) {
+                discardRecording();
                 error(i18n, "finder.ioError", file);
             }
         }
@@ -436,7 +634,7 @@ public final class RegressionTestFinder extends TagTestFinder
             } else {
                 tv.put("error", PARSE_MULTIPLE_COMMENTS_NOT_ALLOWED);
                 tv.put("id", String.valueOf(index++));
-                foundTestDescription(tv, file, /*line*/0);
+                reportTestDescription(tv, file, /*line*/0);
             }
 
             // The "test" marker can now be removed so that we don't waste
@@ -755,6 +953,13 @@ public final class RegressionTestFinder extends TagTestFinder
     }
     Map<String, TestDescription> paths = new HashMap<>();
 
+    private DiscoveryIndex discoveryIndex;
+    private List<DiscoveryIndex.Description> recording;
+    private final Map<File, String> discoveryContexts = new ConcurrentHashMap<>();
+    private ParallelTestScanner parallelScanner;
+    private boolean recordOnly;
+    private List<DiscoveryIndex.Description> recorded;
+
     //-----internal routines----------------------------------------------------
 
     //---------- parsing -------------------------------------------------------
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.config;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the inputs used by each test, so that a later run can select
+ * just those tests whose inputs have changed.
+ *
+ * The inputs of a test are the source files used by its actions,
+ * the TEST.ROOT and TEST.properties files that apply to the test,
+ * and the source directories of any libraries it uses.
+ * Files are recorded with a hash of their content; directories are
+ * recorded without a hash, and any change to a file within a recorded
+ * directory is treated as a change to the inputs of the test.
+ * The record is kept in a file in the work directory, and is updated
+ * after each run, for the tests that were run.
+ *
+ * All paths, both those that are recorded and those of the files that
+ * are said to have changed, are converted to a canonical form with
+ * {@link #canonicalize}, so that they can be compared directly.
+ */
+public class TestInputs {
+
+    static Map<RegressionParameters, TestInputs> instances = new WeakHashMap<>();
+
+    /**
+     * Returns the record of test inputs for a set of parameters.
+     *
+     * @param params the parameters
+     * @return the record of test inputs
+     */
+    public static synchronized TestInputs get(RegressionParameters params) {
+        TestInputs ti = instances.get(params);
+        if (ti == null) {
+            Path file = params.getWorkDirectory().getSystemFile(INPUTS_FILE).toPath();
+            ti = new TestInputs(file);
+            instances.put(params, ti);
+        }
+        return ti;
+    }
+
+    /**
+     * Saves the inputs that were recorded for the tests that were run.
+     *
+     * @param params the parameters
+     * @throws IOException if an error occurs while saving the record
+     */
+    public static synchronized void close(RegressionParameters params) throws IOException {
+        TestInputs ti = instances.remove(params);
+        if (ti != null) {
+            ti.save();
+        }
+    }
+
+    /**
+     * The name of the file in the work directory in which to record the
+     * inputs used by tests.
+     */
+    private static final String INPUTS_FILE = "test.inputs";
+
+    /**
+     * The hash recorded for a directory.
+     */
+    private static final String DIRECTORY = "-";
+
+    private final Path inputsFile;
+    private final Map<String, Map<Path, String>> inputs = new ConcurrentHashMap<>();
+    private final Map<Path, String> currentHashes = new ConcurrentHashMap<>();
+    private volatile boolean changed;
+
+    private TestInputs(Path inputsFile) {
+        this.inputsFile = inputsFile;
+        load();
+    }
+
+    /**
+     * Reads a file listing files that have changed, one per line.
+     * Blank lines and lines beginning with {@code #} are ignored.
+     * A relative path may be relative to the directory containing the list,
+     * the current directory, or the test suite root directory or any of its
+     * parent directories, such as the root of a source code repository
+     * containing the test suite; all of these possibilities are included
+     * in the result.
+     *
+     * @param list the file containing the list
+     * @param testSuiteRoot the root directory of the test suite
+     * @return the canonical paths of the files that have changed
+     * @throws IOException if an error occurs while reading the list
+     */
+    public static Set<Path> readChangedFiles(Path list, Path testSuiteRoot) throws IOException {
+        List<Path> baseDirs = new ArrayList<>();
+        Path listDir = list.toAbsolutePath().getParent();
+        if (listDir != null) {
+            baseDirs.add(listDir);
+        }
+        baseDirs.add(Path.of("").toAbsolutePath());
+        for (Path d = testSuiteRoot.toAbsolutePath(); d != null; d = d.getParent()) {
+            baseDirs.add(d);
+        }
+        Set<Path> changedFiles = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(list)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            Path p = Path.of(line);
+            if (p.isAbsolute()) {
+                changedFiles.add(canonicalize(p));
+            } else {
+                for (Path d : baseDirs) {
+                    changedFiles.add(canonicalize(d.resolve(p)));
+                }
+            }
+        }
+        return changedFiles;
+    }
+
+    /**
+     * Returns the canonical form of a path: the real path of the file,
+     * if it exists, or else the real path of the nearest enclosing directory
+     * that exists, followed by the remaining names in the path.
+     *
+     * @param p the path
+     * @return the canonical form of the path
+     */
+    public static Path canonicalize(Path p) {
+        Path abs = p.toAbsolutePath().normalize();
+        for (Path d = abs; d != null; d = d.getParent()) {
+            try {
+                return d.toRealPath().resolve(d.relativize(abs));
+            } catch (IOException e) {
+                // ignore: try the enclosing directory
+            }
+        }
+        return abs;
+    }
+
+    /**
+     * Records the inputs used by a test, replacing any inputs that were
+     * previously recorded for the test.
+     *
+     * @param testName the name of the test
+     * @param files the files used by the test
+     * @param dirs the directories used by the test
+     */
+    public void record(String testName, Set<Path> files, Set<Path> dirs) {
+        Map<Path, String> map = new HashMap<>();
+        for (Path f : files) {
+            Path p = canonicalize(f);
+            String hash = hash(p);
+            if (hash != null) {
+                map.put(p, hash);
+            }
+        }
+        for (Path d : dirs) {
+            map.put(canonicalize(d), DIRECTORY);
+        }
+        inputs.put(testName, map);
+        changed = true;
+    }
+
+    /**
+     * Returns whether a test may be affected by changes to a set of files.
+     * A test is affected if no inputs have been recorded for it,
+     * if any of the files has been recorded as an input for the test and
+     * has different content from when it was recorded, or if any of the
+     * files is within a directory that has been recorded as an input for
+     * the test.
+     *
+     * @param testName the name of the test
+     * @param changedFiles the canonical paths of the files that have changed
+     * @return {@code true} if the test may be affected by the changes
+     */
+    public boolean isAffected(String testName, Set<Path> changedFiles) {
+        Map<Path, String> map = inputs.get(testName);
+        if (map == null) {
+            return true;
+        }
+        for (Map.Entry<Path, String> e : map.entrySet()) {
+            Path p = e.getKey();
+            String hash = e.getValue();
+            if (hash.equals(DIRECTORY)) {
+                if (isInDirectory(p, changedFiles)) {
+                    return true;
+                }
+            } else if (changedFiles.contains(p)) {
+                String current = currentHashes.computeIfAbsent(p, f -> {
+                    String h = hash(f);
+                    return (h == null) ? "" : h;
+                });
+                if (!current.equals(hash)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether any of a set of files has been recorded as an input
+     * for any test, or is within a directory that has been recorded as an
+     * input for any test.
+     *
+     * @param files the canonical paths of the files
+     * @return {@code true} if any of the files is a recorded input
+     */
+    public boolean isAnyRecorded(Set<Path> files) {
+        for (Map<Path, String> map : inputs.values()) {
+            for (Map.Entry<Path, String> e : map.entrySet()) {
+                Path p = e.getKey();
+                if (e.getValue().equals(DIRECTORY) ? isInDirectory(p, files) : files.contains(p)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isInDirectory(Path dir, Set<Path> files) {
+        for (Path f : files) {
+            if (f.startsWith(dir)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a hash of the content of a file, or {@code null} if the file
+     * cannot be read.
+     *
+     * @param file the file
+     * @return the hash
+     */
+    private static String hash(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                md.update(buf, 0, n);
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (IOException e) {
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new Error(e);
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(inputsFile)) {
+            return;
+        }
+        try (BufferedReader in = Files.newBufferedReader(inputsFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t", 3);
+                if (fields.length != 3) {
+                    continue;
+                }
+                try {
+                    inputs.computeIfAbsent(fields[0], t -> new HashMap<>())
+                            .put(Path.of(fields[2]), fields[1]);
+                } catch (IllegalArgumentException e) {
+                    // ignore malformed entries
+                }
+            }
+        } catch (IOException e) {
+            // ignore: tests without a record are treated as affected,
+            // and the record will be rewritten
+        }
+    }
+
+    private synchronized void save() throws IOException {
+        if (!changed) {
+            return;
+        }
+        Path tmp = inputsFile.resolveSibling(inputsFile.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Map<Path, String>> e : new TreeMap<>(inputs).entrySet()) {
+                for (Map.Entry<Path, String> f : new TreeMap<>(e.getValue()).entrySet()) {
+                    out.write(e.getKey() + "\t" + f.getValue() + "\t" + f.getKey());
+                    out.newLine();
+                }
+            }
+        }
+        Files.move(tmp, inputsFile, StandardCopyOption.REPLACE_EXISTING);
+        changed = false;
+    }
+}
@@ -176,6 +176,30 @@ public class TestProperties {
         return getEntry(file).disallowedActions;
     }
 
+    /**
+     * Returns the number of processor cores that tests in a directory are
+     * expected to use, as given by the {@code resources.cores} property,
+     * or -1 if not specified.
+     *
+     * @param file the test file or directory
+     * @return the number of cores
+     */
+    public final int getResourceCores(File file) {
+        return getEntry(file).resourceCores;
+    }
+
+    /**
+     * Returns the amount of memory, in megabytes, that tests in a directory
+     * are expected to use, as given by the {@code resources.memory} property,
+     * or -1 if not specified.
+     *
+     * @param file the test file or directory
+     * @return the amount of memory
+     */
+    public final int getResourceMemory(File file) {
+        return getEntry(file).resourceMemory;
+    }
+
     boolean getAllowSmartActionArgs(File file) {
         return getEntry(file).allowSmartActionArgs;
     }
@@ -237,6 +261,8 @@ public class TestProperties {
             final boolean enablePreview;
             final Duration defaultTimeout;
             final Set<String> disallowedActions;
+            final int resourceCores;
+            final int resourceMemory;
 
             Entry(Entry parent, File dir) {
                 this.parent = parent;
@@ -293,6 +319,10 @@ public class TestProperties {
                     // add the default test timeout value in seconds
                     defaultTimeout = Duration.ofSeconds(getInt("timeout.default.seconds", 120));
 
+                    // add the expected resource usage of tests, for the resource-aware scheduler
+                    resourceCores = getInt("resources.cores", -1);
+                    resourceMemory = getInt("resources.memory", -1);
+
                     // determine whether tests can use "smart action args"
                     allowSmartActionArgs = initAllowSmartActionArgs(parent);
 
@@ -319,6 +349,8 @@ public class TestProperties {
                     modules = parent.modules;
                     maxOutputSize = parent.maxOutputSize;
                     defaultTimeout = parent.defaultTimeout;
+                    resourceCores = parent.resourceCores;
+                    resourceMemory = parent.resourceMemory;
                     allowSmartActionArgs = parent.allowSmartActionArgs;
                     enablePreview = parent.enablePreview;
                     this.disallowedActions = parent.disallowedActions;
@@ -288,6 +288,11 @@ public abstract class Action extends ActionHelper {
                 fw.write("    permission java.io.FilePermission \""
                         + script.absTestClsTopDir().toString().replace(FILESEP, "{/}")
                         + "${/}-\", \"read\";" + LINESEP);
+                if (!script.absSharedLibClsDir().equals(script.absTestClsTopDir())) {
+                    fw.write("    permission java.io.FilePermission \""
+                            + script.absSharedLibClsDir().toString().replace(FILESEP, "{/}")
+                            + "${/}-\", \"read\";" + LINESEP);
+                }
                 if (argFile != null) {
                     fw.write("    permission java.io.FilePermission \""
                             + argFile.getPath().replace(FILESEP, "{/}")
@@ -790,6 +795,10 @@ public abstract class Action extends ActionHelper {
         BUILD_LIB_LIST        = " in directory-list: ",
         BUILD_FUTURE_SOURCE   = "WARNING: file %s has a modification time in the future: %s",
         BUILD_FUTURE_SOURCE_2 = "Unexpected results may occur",
+        BUILD_CACHE_RESTORED  = "  restored from build cache: %s",
+        BUILD_CACHE_ERROR     = "WARNING: build cache not used: %s",
+        BUILD_SHARED_WAIT     = "Waiting for library %s, which is being built by another test",
+        BUILD_SHARED_ERROR    = "Cannot install the compiled classes for library %s: %s",
 
         // clean
         CLEAN_SUCC            = "Clean successful",
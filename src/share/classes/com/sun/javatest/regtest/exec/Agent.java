@@ -26,7 +26,7 @@
 package com.sun.javatest.regtest.exec;
 
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
@@ -34,23 +34,31 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -59,8 +67,17 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.sun.javatest.Status;
 import com.sun.javatest.TestResult;
@@ -73,6 +90,7 @@ import com.sun.javatest.regtest.agent.Flags;
 import com.sun.javatest.regtest.agent.SearchPath;
 import com.sun.javatest.regtest.config.JDK;
 import com.sun.javatest.regtest.config.RegressionParameters;
+import com.sun.javatest.regtest.util.StreamPump;
 import com.sun.javatest.regtest.util.StringUtils;
 
 import static com.sun.javatest.regtest.RStatus.createStatus;
@@ -120,24 +138,34 @@ public class Agent {
     // showAgent is superseded by always-on log to file
     static final boolean showAgent = Flags.get("showAgent");
     static final boolean traceAgent = Flags.get("traceAgent");
+    static final boolean legacyAgentOutput = Flags.get("legacyAgentOutput");
 
     /**
      * Start a JDK with given JVM options.
+     * If {@code multiplexed} is true, the agent server will be started in multiplexed
+     * mode, allowing several actions to be executed concurrently.
+     * If {@code libraryLoaders} is true, the agent server will keep the class loaders
+     * for the libraries used by main actions, for use by later actions.
      */
     private Agent(File dir, JDK jdk, List<String> vmOpts, Map<String, String> envVars,
-            File policyFile, float timeoutFactor, Logger logger,
-            String testThreadFactory, String testThreadFactoryPath) throws Fault {
+            File policyFile, float timeoutFactor, Logger logger, CDSArchives cdsArchives,
+            String testThreadFactory, String testThreadFactoryPath,
+            boolean multiplexed, boolean libraryLoaders) throws Fault {
         Process agentServerProcess = null;
         try {
-            id = ++count;
+            id = count.incrementAndGet();
             this.jdk = jdk;
             this.execDir = dir;
             this.vmOpts = vmOpts;
             this.logger = logger;
+            this.multiplexed = multiplexed;
+            this.libraryLoaders = libraryLoaders;
 
             List<String> cmd = new ArrayList<>();
             cmd.add(jdk.getJavaProg().toString());
             cmd.addAll(vmOpts);
+            if (cdsArchives != null)
+                cmd.addAll(cdsArchives.getVMOptions(jdk, vmOpts, this::log));
             if (policyFile != null)
                 cmd.add("-Djava.security.policy=" + policyFile.toURI());
             String headless = System.getProperty("java.awt.headless");
@@ -178,6 +206,19 @@ public class Agent {
                 cmd.add(CUSTOM_TEST_THREAD_FACTORY_PATH);
                 cmd.add(testThreadFactoryPath);
             }
+
+            if (multiplexed) {
+                cmd.add(AgentServer.MULTIPLEX);
+            }
+
+            if (libraryLoaders) {
+                cmd.add(AgentServer.LIBRARY_LOADERS);
+            }
+
+            if (!legacyAgentOutput) {
+                cmd.add(AgentServer.PROTOCOL);
+                cmd.add(String.valueOf(AgentServer.PROTOCOL_VERSION));
+            }
             log("Launching " + cmd);
 
             ProcessBuilder pb = new ProcessBuilder(cmd);
@@ -198,15 +239,37 @@ public class Agent {
                 Socket s = ss.accept();
                 log("Received connection on port " + port + " from " + s);
                 s.setSoTimeout((int)(KeepAlive.READ_TIMEOUT * timeoutFactor));
-                in = new DataInputStream(s.getInputStream());
+                in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
                 out = new DataOutputStream(s.getOutputStream());
             } finally {
                 ss.close();
             }
 
+            if (legacyAgentOutput) {
+                protocolVersion = PROTOCOL_TEXT_OUTPUT;
+                nativeCharset = Charset.defaultCharset();
+            } else {
+                // See corresponding handshake in AgentServer
+                int op = in.readByte();
+                if (op != HELLO) {
+                    throw new IOException("Agent: unexpected op in handshake: " + op);
+                }
+                protocolVersion = in.readShort();
+                String charsetName = in.readUTF();
+                nativeCharset = Charset.isSupported(charsetName)
+                        ? Charset.forName(charsetName) : Charset.defaultCharset();
+                log("Using protocol version " + protocolVersion + ", native encoding " + charsetName);
+            }
+
             keepAlive = new KeepAlive(out, traceAgent);
             // send keep-alive messages to server while not executing actions
             keepAlive.setEnabled(true);
+
+            if (multiplexed) {
+                Thread t = new Thread(this::demultiplex, "Agent[" + id + "] demultiplexer");
+                t.setDaemon(true);
+                t.start();
+            }
         } catch (IOException e) {
             log("Agent creation failed due to " + e);
             if (agentServerProcess != null) {
@@ -227,21 +290,7 @@ public class Agent {
      * @param in   the stream
      */
     void copyAgentProcessStream(final String name, final InputStream in) {
-        Thread t = new Thread() {
-            @Override
-            public void run() {
-                try (BufferedReader inReader = new BufferedReader(new InputStreamReader(in))) {
-                    String line;
-                    while ((line = inReader.readLine()) != null) {
-                        handleProcessStreamLine(name, line);
-                    }
-                } catch (IOException e) {
-                    // ignore
-                }
-            }
-        };
-        t.setDaemon(true);
-        t.start();
+        StreamPump.copy(in, null, line -> handleProcessStreamLine(name, line));
     }
 
     /**
@@ -314,10 +363,31 @@ public class Agent {
             final List<String> cmdArgs,
             int timeout,
             final TimeoutHandler timeoutHandler,
-            TestResult.Section trs)
+            TestResult.Section trs,
+            ResourceUsage resourceUsage)
                 throws ActionTimeout, Fault {
         trace("doCompileAction " + testName + " " + cmdArgs);
 
+        if (multiplexed) {
+            return doMultiplexedAction("doCompileAction",
+                new MultiplexedAgentAction() {
+                    @Override
+                    public void send(int channelId) throws IOException {
+                            // See corresponding list in AgentServer.runMultiplexed
+                            out.writeByte(DO_COMPILE);
+                            out.writeInt(channelId);
+                            out.writeUTF(testName);
+                            writeMap(testProps);
+                            writeCollection(cmdArgs);
+                            out.flush();
+                        }
+                },
+                    timeout,
+                    timeoutHandler,
+                    trs,
+                    resourceUsage);
+        }
+
         return doAction("doCompileAction",
                 new AgentAction() {
                     @Override
@@ -332,7 +402,8 @@ public class Agent {
                 },
                 timeout,
                 timeoutHandler,
-                trs);
+                trs,
+                resourceUsage);
     }
 
     public Status doMainAction(
@@ -342,12 +413,14 @@ public class Agent {
             final Set<String> addOpens,
             final Set<String> addMods,
             final SearchPath testClassPath,
+            final SearchPath libraryClassPath,
             final SearchPath modulePath,
             final String testClass,
             final List<String> testArgs,
             int timeout,
             final TimeoutHandler timeoutHandler,
-            TestResult.Section trs)
+            TestResult.Section trs,
+            ResourceUsage resourceUsage)
                 throws ActionTimeout, Fault {
         trace("doMainAction: " + testName
                     + " " + testClassPath
@@ -355,6 +428,10 @@ public class Agent {
                     + " " + testClass
                     + " " + testArgs);
 
+        if (multiplexed) {
+            throw new IllegalStateException("main actions cannot be executed by a shared agent");
+        }
+
         return doAction("doMainAction",
                 new AgentAction() {
                     @Override
@@ -366,7 +443,13 @@ public class Agent {
                         writeCollection(addExports);
                         writeCollection(addOpens);
                         writeCollection(addMods);
-                        out.writeUTF(testClassPath.toString());
+                        if (libraryLoaders) {
+                            SearchPath cp = new SearchPath(testClassPath).removeAll(libraryClassPath.asList());
+                            out.writeUTF(cp.toString());
+                            out.writeUTF(libraryClassPath.toString());
+                        } else {
+                            out.writeUTF(testClassPath.toString());
+                        }
                         out.writeUTF(modulePath.toString());
                         out.writeUTF(testClass);
                         writeCollection(testArgs);
@@ -375,19 +458,25 @@ public class Agent {
                 },
                 timeout,
                 timeoutHandler,
-                trs);
+                trs,
+                resourceUsage);
     }
 
     interface AgentAction {
         void send() throws IOException;
     }
 
+    interface MultiplexedAgentAction {
+        void send(int channelId) throws IOException;
+    }
+
     private Status doAction(
             String actionName,
             AgentAction agentAction,
             int timeout,
             final TimeoutHandler timeoutHandler,
-            TestResult.Section trs)
+            TestResult.Section trs,
+            ResourceUsage resourceUsage)
                 throws ActionTimeout, Fault {
         final PrintWriter messageWriter = trs.getMessageWriter();
         // Handle the timeout here (instead of in the agent) to make it possible
@@ -408,13 +497,14 @@ public class Agent {
         }
         Status actionStatus = null;
         keepAlive.setEnabled(false);
+        actionCount++;
         try {
             captureProcessStreams(trs);
             synchronized (out) {
                 agentAction.send();
             }
             trace(actionName + ": request sent");
-            actionStatus = readResults(trs);
+            actionStatus = readResults(trs, resourceUsage);
             return actionStatus;
         } catch (IOException e) {
             trace(actionName + ":  error " + e);
@@ -430,9 +520,86 @@ public class Agent {
         }
     }
 
+    /**
+     * Executes an action on a channel of a multiplexed agent.
+     * Other actions may be executing concurrently on other channels of the same agent.
+     * If the action times out, the timeout handler is invoked, and the action is
+     * abandoned, but the agent is not closed, so as not to disturb any other actions
+     * that may be executing; instead, the agent is retired, so that it will be closed
+     * when there are no remaining actions using it.
+     */
+    private Status doMultiplexedAction(
+            String actionName,
+            MultiplexedAgentAction agentAction,
+            int timeout,
+            final TimeoutHandler timeoutHandler,
+            TestResult.Section trs,
+            ResourceUsage resourceUsage)
+                throws ActionTimeout, Fault {
+        final PrintWriter messageWriter = trs.getMessageWriter();
+        final Channel channel = openChannel(trs, resourceUsage);
+        Alarm alarm = Alarm.NONE;
+        final CountDownLatch timeoutHandlerDone = new CountDownLatch(1);
+        if (timeout > 0) {
+            if (timeoutHandler == null) {
+                throw new NullPointerException("TimeoutHandler is required");
+            }
+            trace(actionName + ": scheduling timeout handler in " + timeout + " seconds");
+            alarm = Alarm.schedule(timeout, TimeUnit.SECONDS, messageWriter, () ->
+                    invokeTimeoutHandler(timeoutHandler, timeoutHandlerDone, () -> {
+                        retired = true;
+                        channel.result.completeExceptionally(
+                                new IOException("action abandoned after timeout"));
+                    }));
+        }
+        Status actionStatus = null;
+        try {
+            synchronized (out) {
+                agentAction.send(channel.channelId);
+            }
+            trace(actionName + ": request sent on channel " + channel.channelId);
+            actionStatus = channel.result.get();
+            return actionStatus;
+        } catch (IOException e) {
+            trace(actionName + ":  error " + e);
+            throw new Fault(e);
+        } catch (ExecutionException e) {
+            trace(actionName + ":  error " + e.getCause());
+            throw new Fault(e.getCause());
+        } catch (InterruptedException e) {
+            trace(actionName + ":  interrupted " + e);
+            throw new Fault(e);
+        } finally {
+            channels.remove(channel.channelId);
+            alarm.cancel();
+            if (alarm.didFire()) {
+                waitForTimeoutHandler(actionName, timeoutHandler, timeoutHandlerDone);
+                throw new ActionTimeout(actionStatus);
+            }
+        }
+    }
+
     private void invokeTimeoutHandler(final TimeoutHandler timeoutHandler,
                                       final CountDownLatch timeoutHandlerDone,
                                       final PrintWriter messageWriter) {
+        invokeTimeoutHandler(timeoutHandler, timeoutHandlerDone, () -> {
+            // close the streams to release us from readResults()
+            try {
+                out.close();
+            } catch (IOException ex) {
+                ex.printStackTrace(messageWriter);
+            }
+            try {
+                in.close();
+            } catch (IOException ex) {
+                ex.printStackTrace(messageWriter);
+            }
+        });
+    }
+
+    private void invokeTimeoutHandler(final TimeoutHandler timeoutHandler,
+                                      final CountDownLatch timeoutHandlerDone,
+                                      final Runnable release) {
         // Invocations from an Alarm call should be quick so that the Alarm thread pool
         // is not consumed. Because of that, we launch the timeout handling in a
         // separate Thread here. Timeout handling can take a very long time.
@@ -443,17 +610,8 @@ public class Agent {
 
                 timeoutHandler.handleTimeout(process);
 
-                // close the streams to release us from readResults()
-                try {
-                    out.close();
-                } catch (IOException ex) {
-                    ex.printStackTrace(messageWriter);
-                }
-                try {
-                    in.close();
-                } catch (IOException ex) {
-                    ex.printStackTrace(messageWriter);
-                }
+                // release the thread waiting for the results of the action
+                release.run();
                 trace("timeout handler finished");
                 timeoutHandlerDone.countDown();
             }
@@ -527,37 +685,30 @@ public class Agent {
         }
     }
 
-    Status readResults(TestResult.Section trs) throws IOException {
-        Map<String, PrintWriter> streams = new HashMap<>();
+    Status readResults(TestResult.Section trs, ResourceUsage resourceUsage) throws IOException {
+        Channel channel = new Channel(NO_CHANNEL, trs, resourceUsage);
         int op;
         while ((op = in.readByte()) != -1) {
             switch (op) {
                 case OUTPUT: {
+                    if (protocolVersion >= PROTOCOL_FRAMED_OUTPUT) {
+                        readFramedOutput(channel);
+                        break;
+                    }
                     String name = in.readUTF();
                     String data = in.readUTF();
                     trace("readResults: OUTPUT \'" + name + "\' \'" + data + "\"");
-                    PrintWriter pw = streams.get(name);
-                    if (pw == null) {
-                        if (name.equals(ActionHelper.OutputHandler.OutputKind.LOG.name))
-                            pw = trs.getMessageWriter();
-                        else
-                            pw = trs.createOutput(name);
-                        streams.put(name, pw);
-                    }
-                    pw.write(data);
+                    channel.write(name, data);
                     break;
                 }
                 case STATUS: {
                     int type = in.readByte();
                     String reason = in.readUTF();
                     trace("readResults: STATUS \'" + type + "\' \'" + reason + "\"");
-                    for (PrintWriter pw: streams.values()) {
-                        if (pw != trs.getMessageWriter())
-                            pw.close();
-                    }
-                    Status status = createStatus(type, reason);
+                    channel.addResourceUsage(readResourceUsage());
+                    health = readHealth();
                     // any other cleanup??
-                    return status;
+                    return channel.finish(type, reason);
                 }
                 case KEEPALIVE:
                     break;
@@ -574,6 +725,225 @@ public class Agent {
         throw new EOFException("unexpected EOF");
     }
 
+    /**
+     * Reads the frames written by a multiplexed agent server, and dispatches
+     * them to the channel for the action to which they belong.
+     * If an error occurs, all outstanding actions are failed.
+     */
+    private void demultiplex() {
+        try {
+            while (true) {
+                int op = in.readByte();
+                switch (op) {
+                    case OUTPUT: {
+                        int channelId = in.readInt();
+                        if (protocolVersion >= PROTOCOL_FRAMED_OUTPUT) {
+                            Channel channel = channels.get(channelId);
+                            if (channel == null) {
+                                log("discarding output for closed channel " + channelId);
+                            }
+                            readFramedOutput(channel);
+                            break;
+                        }
+                        String name = in.readUTF();
+                        String data = in.readUTF();
+                        trace("demultiplex: OUTPUT[" + channelId + "] \'" + name + "\' \'" + data + "\"");
+                        Channel channel = channels.get(channelId);
+                        if (channel == null) {
+                            log("discarding output for closed channel " + channelId + ": " + data);
+                        } else {
+                            channel.write(name, data);
+                        }
+                        break;
+                    }
+                    case STATUS: {
+                        int channelId = in.readInt();
+                        int type = in.readByte();
+                        String reason = in.readUTF();
+                        trace("demultiplex: STATUS[" + channelId + "] \'" + type + "\' \'" + reason + "\"");
+                        Map<String, String> resources = readResourceUsage();
+                        readHealth(); // not used for multiplexed agents
+                        Channel channel = channels.get(channelId);
+                        if (channel != null) {
+                            channel.addResourceUsage(resources);
+                            channel.result.complete(channel.finish(type, reason));
+                        }
+                        break;
+                    }
+                    case KEEPALIVE:
+                        break;
+                    default:
+                        throw new IOException("Agent: unexpected op: " + op);
+                }
+            }
+        } catch (IOException e) {
+            if (!channels.isEmpty()) {
+                log("Failing outstanding actions due to " + e);
+            }
+            for (Channel channel : channels.values()) {
+                channel.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Reads the map of the resources used by an action, which follows the
+     * status in a STATUS frame, if supported by the protocol.
+     */
+    private Map<String, String> readResourceUsage() throws IOException {
+        if (protocolVersion < PROTOCOL_RESOURCE_USAGE) {
+            return Collections.emptyMap();
+        }
+        return readMap();
+    }
+
+    /**
+     * Reads the map describing the state of the agent after an action, which
+     * follows the resource usage in a STATUS frame, if supported by the protocol.
+     */
+    private Map<String, String> readHealth() throws IOException {
+        if (protocolVersion < PROTOCOL_AGENT_HEALTH) {
+            return Collections.emptyMap();
+        }
+        return readMap();
+    }
+
+    private Map<String, String> readMap() throws IOException {
+        int n = in.readShort();
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            String key = in.readUTF();
+            String value = in.readUTF();
+            map.put(key, value);
+        }
+        return map;
+    }
+
+    /**
+     * Reads the body of an OUTPUT frame in the framed output protocol,
+     * and writes the data to the given channel, if it is not null.
+     */
+    private void readFramedOutput(Channel channel) throws IOException {
+        // See corresponding code in FramedOutputStream
+        int streamId = in.readUnsignedByte();
+        int length = in.readInt();
+        if ((streamId & ~STREAM_FLAGS) >= ActionHelper.OutputHandler.OutputKind.values().length || length < 0) {
+            throw new IOException("Agent: bad output frame: stream " + streamId + ", length " + length);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        if (traceAgent) {
+            trace("readFramedOutput: OUTPUT " + streamId + " " + length + " bytes");
+        }
+        if (channel != null) {
+            channel.write(streamId, data, nativeCharset);
+        }
+    }
+
+    private static final int STREAM_FLAGS = NATIVE_ENCODING & 0xff;
+
+    private synchronized Channel openChannel(TestResult.Section trs, ResourceUsage resourceUsage) {
+        Channel channel = new Channel(++channelCount, trs, resourceUsage);
+        channels.put(channel.channelId, channel);
+        return channel;
+    }
+
+    /**
+     * Decodes the data for a stream in the framed output protocol.
+     * The decoder is stateful, so that a multi-byte character that is split
+     * across two frames is decoded correctly.
+     */
+    private static class StreamDecoder {
+        final String name;
+        final CharsetDecoder decoder;
+        ByteBuffer leftover = ByteBuffer.allocate(0);
+
+        StreamDecoder(int streamId, Charset nativeCharset) {
+            name = ActionHelper.OutputHandler.OutputKind.values()[streamId & ~STREAM_FLAGS].name;
+            Charset cs = ((streamId & STREAM_FLAGS) != 0) ? nativeCharset : StandardCharsets.UTF_8;
+            decoder = cs.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        String decode(byte[] data, boolean endOfInput) {
+            ByteBuffer bb;
+            if (leftover.hasRemaining()) {
+                bb = ByteBuffer.allocate(leftover.remaining() + data.length);
+                bb.put(leftover).put(data).flip();
+            } else {
+                bb = ByteBuffer.wrap(data);
+            }
+            CharBuffer cb = CharBuffer.allocate((int) (bb.remaining() * decoder.maxCharsPerByte()) + 1);
+            decoder.decode(bb, cb, endOfInput);
+            if (endOfInput) {
+                decoder.flush(cb);
+                decoder.reset();
+            }
+            leftover = bb.slice();
+            cb.flip();
+            return cb.toString();
+        }
+    }
+
+    /**
+     * A channel collects the output and final status of an action executed by an agent.
+     * In multiplexed mode, each outstanding action has its own channel, identified
+     * by an id that is included in the request sent to the agent server and in all
+     * the frames written by the server for that action.
+     */
+    private static class Channel {
+        final int channelId;
+        final TestResult.Section trs;
+        final Map<String, PrintWriter> streams = new HashMap<>();
+        final CompletableFuture<Status> result = new CompletableFuture<>();
+        final Map<Integer, StreamDecoder> decoders = new HashMap<>();
+        final ResourceUsage resourceUsage;
+
+        Channel(int channelId, TestResult.Section trs, ResourceUsage resourceUsage) {
+            this.channelId = channelId;
+            this.trs = trs;
+            this.resourceUsage = resourceUsage;
+        }
+
+        void addResourceUsage(Map<String, String> resources) {
+            if (resourceUsage != null && !resources.isEmpty()) {
+                resourceUsage.add(resources);
+            }
+        }
+
+        void write(int streamId, byte[] data, Charset nativeCharset) {
+            StreamDecoder d = decoders.computeIfAbsent(streamId, id -> new StreamDecoder(id, nativeCharset));
+            write(d.name, d.decode(data, false));
+        }
+
+        void write(String name, String data) {
+            PrintWriter pw = streams.get(name);
+            if (pw == null) {
+                if (name.equals(ActionHelper.OutputHandler.OutputKind.LOG.name))
+                    pw = trs.getMessageWriter();
+                else
+                    pw = trs.createOutput(name);
+                streams.put(name, pw);
+            }
+            pw.write(data);
+        }
+
+        Status finish(int type, String reason) {
+            for (StreamDecoder d : decoders.values()) {
+                String rest = d.decode(new byte[0], true);
+                if (!rest.isEmpty()) {
+                    write(d.name, rest);
+                }
+            }
+            for (PrintWriter pw: streams.values()) {
+                if (pw != trs.getMessageWriter())
+                    pw.close();
+            }
+            return createStatus(type, reason);
+        }
+    }
+
     /**
      * Returns the id for this agent.
      * The id is just a small strictly-positive integer, allocated from 1 on up.
@@ -631,9 +1001,43 @@ public class Agent {
     final KeepAlive keepAlive;
     final int id;
     final Logger logger;
-    Instant idleStartTime;
+    final boolean multiplexed;
+    final boolean libraryLoaders;
+    final int protocolVersion;
+    final Charset nativeCharset;
+    volatile Instant idleStartTime;
+
+    /**
+     * The outstanding actions for a multiplexed agent, indexed by channel id.
+     */
+    private final Map<Integer, Channel> channels = new ConcurrentHashMap<>();
+    private int channelCount;
+
+    /**
+     * The number of actions currently leased to use a multiplexed agent.
+     * Access is guarded by the pool.
+     */
+    int leases;
+
+    /**
+     * Whether a multiplexed agent should no longer be used for new actions,
+     * such as when an action has been abandoned after a timeout.
+     */
+    volatile boolean retired;
+
+    /**
+     * The number of actions executed by a non-multiplexed agent.
+     */
+    int actionCount;
+
+    /**
+     * The state of the agent VM after the most recent action executed by a
+     * non-multiplexed agent, as reported by the agent server.
+     * See {@link com.sun.javatest.regtest.agent.AgentHealth}.
+     */
+    volatile Map<String, String> health = Collections.emptyMap();
 
-    static int count;
+    static final AtomicInteger count = new AtomicInteger();
 
     /**
      * Logger provides a directory ion which log files can be created,
@@ -680,7 +1084,7 @@ public class Agent {
             agentLogWriter = out;
         }
 
-        void log(Agent agent, String message) {
+        synchronized void log(Agent agent, String message) {
             String dateInfo = AgentServer.logDateFormat.format(new Date());
             String agentInfo = (agent == null) ? "" : " Agent[" + agent.getId() + "]";
             if (message.contains("\n")) {
@@ -710,6 +1114,12 @@ public class Agent {
      * <p>
      * Pools are associated with an instance of RegressionParameters, from which
      * it gets a Logger to report activity that may be useful in case of any problems.
+     * <p>
+     * Pools are used by many threads executing tests concurrently. The available
+     * agents are kept in a concurrent deque for each kind of agent, so that agents
+     * can be obtained from the pool and saved back to it without holding a lock
+     * on the whole pool; new agents are created without holding any lock, and
+     * excess and idle agents are removed from the pool by a background thread.
      */
     public static class Pool {
         /**
@@ -731,8 +1141,9 @@ public class Agent {
         }
 
         private Pool(RegressionParameters params) {
-            agentsByKey = new HashMap<>();
-            allAgents = new LinkedList<>();
+            this.params = params;
+            agentsByKey = new ConcurrentHashMap<>();
+            sharedAgentsByKey = new HashMap<>();
             logger = Logger.instance(params);
         }
 
@@ -774,6 +1185,71 @@ public class Agent {
             logger.log(null, "POOL: max pool size: " + maxPoolSize);
         }
 
+        /**
+         * Sets the maximum number of actions to be executed by each agent.
+         * When an agent has executed this number of actions, it is closed
+         * instead of being saved in the pool for reuse.
+         * A value of 0 means there is no limit.
+         *
+         * @param uses the maximum number of actions
+         */
+        public void setMaxAgentUses(int uses) {
+            this.maxAgentUses = uses;
+            logger.log(null, "POOL: max agent uses: " + uses);
+        }
+
+        /**
+         * Sets limits for the values reported by agents for the state of the
+         * agent VM after each action. When any value exceeds the corresponding
+         * limit, the agent is closed instead of being saved in the pool for reuse.
+         * The limits are indexed by the names defined in
+         * {@link com.sun.javatest.regtest.agent.AgentHealth}.
+         *
+         * @param limits the limits
+         */
+        public void setHealthLimits(Map<String, Long> limits) {
+            this.healthLimits = new LinkedHashMap<>(limits);
+            logger.log(null, "POOL: agent health limits: " + limits);
+        }
+
+        /**
+         * Sets the number of agents to be kept available for each kind of agent
+         * that is expected to be required. Agents are created in the background,
+         * ahead of when they are needed, subject to the overall limit on the
+         * {@link #setMaxPoolSize size of the pool}.
+         * A value of 0 disables the creation of agents ahead of when they are needed.
+         *
+         * @param count the number of agents
+         */
+        public void setPrewarmCount(int count) {
+            this.prewarmCount = count;
+            logger.log(null, "POOL: prewarm count: " + count);
+        }
+
+        /**
+         * Sets the directory for dynamic CDS archives of the classes used by agents,
+         * to reduce the time to start new agents.
+         *
+         * @param dir the directory, or {@code null} if archives should not be used
+         */
+        public void setCDSArchiveDirectory(Path dir) {
+            this.cdsArchives = (dir == null) ? null : new CDSArchives(params, dir);
+            logger.log(null, "POOL: CDS archive directory: " + dir);
+        }
+
+        /**
+         * Sets whether agents should keep the class loaders for the libraries
+         * used by main actions, for use by later actions that use the same libraries.
+         * Library classes are then loaded by a class loader that is the parent of
+         * the class loader for the test's own classes.
+         *
+         * @param b whether agents should keep library class loaders
+         */
+        public void setLibraryClassLoaders(boolean b) {
+            this.libraryClassLoaders = b;
+            logger.log(null, "POOL: library class loaders: " + b);
+        }
+
         /**
          * Sets the maximum attempts to create or obtain an agent VM
          * @param numAttempts number of attempts
@@ -844,12 +1320,12 @@ public class Agent {
             throw new AssertionError("should not reach here");
         }
 
-        synchronized Agent doGetAgent(File dir,
-                                    JDK jdk,
-                                    List<String> vmOpts,
-                                    Map<String, String> envVars,
-                                    String testThreadFactory,
-                                    String testThreadFactoryPath)
+        Agent doGetAgent(File dir,
+                         JDK jdk,
+                         List<String> vmOpts,
+                         Map<String, String> envVars,
+                         String testThreadFactory,
+                         String testThreadFactoryPath)
                 throws Fault {
             logger.log(null,
                     "POOL: get agent for:\n"
@@ -857,54 +1333,445 @@ public class Agent {
                             + "         JDK: " + jdk + "\n"
                             + "  VM options: " + vmOpts + "\n"
             );
-            Deque<Agent> agents = agentsByKey.get(getKey(dir, jdk, vmOpts));
-            // reuse the most recently used agent, to increase the possibility
-            // that older, less-used agents can be reclaimed.
-            Agent a = (agents == null) ? null : agents.pollLast();
-            if (a != null) {
-                // use a pooled agent only if the agent's process hasn't exited
-                // (for example due to JVM crash when the agent was pooled)
-                if (a.isAgentServerAlive()) {
-                    logger.log(null, "POOL: Reusing Agent[" + a.getId() + "]");
-                    allAgents.remove(a);
+            String key = getKey(dir, jdk, vmOpts);
+            if (prewarmCount > 0) {
+                predict(new AgentSpec(dir, jdk, vmOpts, envVars, testThreadFactory, testThreadFactoryPath));
+            }
+            Deque<Agent> agents = agentsByKey.get(key);
+            if (agents != null) {
+                // reuse the most recently used agent, to increase the possibility
+                // that older, less-used agents can be reclaimed.
+                Agent a;
+                while ((a = agents.pollLast()) != null) {
+                    idleCount.decrementAndGet();
+                    // use a pooled agent only if the agent's process hasn't exited
+                    // (for example due to JVM crash when the agent was pooled)
+                    if (a.isAgentServerAlive()) {
+                        logger.log(null, "POOL: Reusing Agent[" + a.getId() + "]");
+                        stats.reuse(a);
+                        leased.add(a);
+                        if (prewarmCount > 0) {
+                            prewarm();
+                        }
+                        return a;
+                    }
+                    // discard the dead agent
+                    logger.log(null, "POOL: Removing Agent[" + a.getId() + "]"
+                            + " because agent server process " + a.getAgentServerPid() + " is dead");
+                    a.close();
+                }
+            }
+            // use an agent that is being created in the background, if there is one
+            CompletableFuture<Agent> prewarmed = (prewarmCount > 0) ? claimPending(key) : null;
+            if (prewarmed != null) {
+                try {
+                    Agent a = prewarmed.get();
+                    logger.log(null, "POOL: Using pre-warmed Agent[" + a.getId() + "]");
                     stats.reuse(a);
+                    leased.add(a);
                     return a;
+                } catch (ExecutionException | InterruptedException e) {
+                    logger.log(null, "POOL: pre-warmed agent not available: " + e);
                 }
-                // remove the dead agent from the pool
-                logger.log(null, "POOL: Removing Agent[" + a.getId() + "]"
-                        + " because agent server process " + a.getAgentServerPid() + " is dead");
-                removeAgent(a);
             }
+            return newAgent(dir, jdk, vmOpts, envVars, testThreadFactory, testThreadFactoryPath);
+        }
+
+        /**
+         * Creates a new agent. No lock is held while the agent VM is started,
+         * so that other threads may obtain and save agents in the meantime.
+         */
+        private Agent newAgent(File dir,
+                               JDK jdk,
+                               List<String> vmOpts,
+                               Map<String, String> envVars,
+                               String testThreadFactory,
+                               String testThreadFactoryPath)
+                throws Fault {
             logger.log(null, "POOL: Creating new agent");
-            a = new Agent(dir, jdk, vmOpts, envVars, policyFile, timeoutFactor, logger,
-                    testThreadFactory, testThreadFactoryPath);
+            Agent a = new Agent(dir, jdk, vmOpts, envVars, policyFile, timeoutFactor, logger, cdsArchives,
+                    testThreadFactory, testThreadFactoryPath, false, libraryClassLoaders);
             stats.add(a);
+            leased.add(a);
             return a;
         }
 
+        /**
+         * Claims an agent that is being created in the background, if there is one.
+         *
+         * @param key the key for the kind of agent
+         * @return the agent being created, or {@code null} if there is none
+         */
+        private synchronized CompletableFuture<Agent> claimPending(String key) {
+            Deque<CompletableFuture<Agent>> pending = pendingByKey.get(key);
+            return (pending == null) ? null : pending.pollFirst();
+        }
+
+        /**
+         * Records the characteristics of an agent that has been requested,
+         * in order to predict the agents that will be required by other tests.
+         * Agents are typically specific to the scratch directory for each thread
+         * that is executing tests, and so if an agent is requested for one such
+         * directory, agents with the same characteristics will typically be requested
+         * for the scratch directories for all the other threads.
+         *
+         * @param spec the characteristics of the agent that has been requested
+         */
+        private synchronized void predict(AgentSpec spec) {
+            if (prewarmCount == 0) {
+                return;
+            }
+            if (threadDirs == null) {
+                threadDirs = ScratchDirectory.ThreadSafeScratchDir.getThreadDirs(params);
+            }
+            expected.put(spec.getKey(), spec);
+            if (threadDirs.contains(spec.dir) && predicted.add(spec.getKey())) {
+                for (File d : threadDirs) {
+                    AgentSpec s = spec.withDir(d);
+                    if (predicted.add(s.getKey())) {
+                        logger.log(null, "POOL: predicting demand for agents in " + d);
+                        expected.put(s.getKey(), s);
+                    }
+                }
+            }
+            prewarm();
+        }
+
+        /**
+         * Starts creating agents in the background, for any kinds of agent that are
+         * expected to be required and for which there are not enough agents available,
+         * either in the pool, being created, or currently in use.
+         * No agents will be created if that would exceed the maximum size of the pool.
+         *
+         * The pool is only locked if it appears that agents need to be created,
+         * so that agents can be obtained from and saved to the pool without
+         * contention in the common case that enough agents are available.
+         */
+        private void prewarm() {
+            if (prewarmCount == 0 || expected.isEmpty() || !needsPrewarm()) {
+                return;
+            }
+            synchronized (this) {
+                leased.removeIf(a -> !a.isAgentServerAlive());
+                Map<String, Integer> inUse = getInUseCounts();
+                for (AgentSpec spec : expected.values()) {
+                    String key = spec.getKey();
+                    Deque<CompletableFuture<Agent>> pending =
+                            pendingByKey.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+                    int available = getAvailableCount(key, inUse);
+                    while (available < prewarmCount && idleCount.get() + pendingCount() < maxPoolSize) {
+                        logger.log(null, "POOL: Pre-warming agent for " + spec.dir);
+                        pending.add(spawn(spec));
+                        available++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns whether there appear to be fewer agents available than required
+         * for any kind of agent that is expected to be required, and there is room
+         * in the pool to create more agents.
+         * The check is made without locking the pool, and so the result is just a hint.
+         */
+        private boolean needsPrewarm() {
+            if (idleCount.get() + pendingCount() >= maxPoolSize) {
+                return false;
+            }
+            Map<String, Integer> inUse = getInUseCounts();
+            for (String key : expected.keySet()) {
+                if (getAvailableCount(key, inUse) < prewarmCount) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the number of live agents currently in use, indexed by key.
+         */
+        private Map<String, Integer> getInUseCounts() {
+            Map<String, Integer> inUse = new HashMap<>();
+            for (Agent a : leased) {
+                if (a.isAgentServerAlive()) {
+                    inUse.merge(getKey(a), 1, Integer::sum);
+                }
+            }
+            return inUse;
+        }
+
+        /**
+         * Returns the number of agents of a given kind that are idle in the pool,
+         * being created, or currently in use.
+         */
+        private int getAvailableCount(String key, Map<String, Integer> inUse) {
+            Deque<Agent> idle = agentsByKey.get(key);
+            Deque<CompletableFuture<Agent>> pending = pendingByKey.get(key);
+            return (idle == null ? 0 : idle.size())
+                    + (pending == null ? 0 : pending.size())
+                    + inUse.getOrDefault(key, 0);
+        }
+
+        private int pendingCount() {
+            int n = 0;
+            for (Deque<CompletableFuture<Agent>> d : pendingByKey.values()) {
+                n += d.size();
+            }
+            return n;
+        }
+
+        /**
+         * Creates an agent in the background.
+         * If the agent is not claimed by the time it has been created,
+         * it is saved in the pool.
+         */
+        private CompletableFuture<Agent> spawn(AgentSpec spec) {
+            if (prewarmExecutor == null) {
+                prewarmExecutor = Executors.newFixedThreadPool(
+                        Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+                        r -> {
+                            Thread t = new Thread(r, "Agent pre-warmer");
+                            t.setDaemon(true);
+                            return t;
+                        });
+            }
+            CompletableFuture<Agent> f = new CompletableFuture<>();
+            prewarmExecutor.execute(() -> {
+                try {
+                    Agent a = new Agent(spec.dir, spec.jdk, spec.vmOpts, spec.envVars,
+                            policyFile, timeoutFactor, logger, cdsArchives,
+                            spec.testThreadFactory, spec.testThreadFactoryPath, false, libraryClassLoaders);
+                    synchronized (Pool.this) {
+                        stats.prewarm(a);
+                        Deque<CompletableFuture<Agent>> pending = pendingByKey.get(spec.getKey());
+                        if (pending != null && pending.remove(f)) {
+                            // not claimed: make it available in the pool
+                            save(a);
+                        }
+                    }
+                    f.complete(a);
+                } catch (Fault | RuntimeException e) {
+                    logger.log(null, "POOL: pre-warming agent failed: "
+                            + (e instanceof Fault ? e.getCause() : e));
+                    synchronized (Pool.this) {
+                        Deque<CompletableFuture<Agent>> pending = pendingByKey.get(spec.getKey());
+                        if (pending != null) {
+                            pending.remove(f);
+                        }
+                    }
+                    f.completeExceptionally(e);
+                }
+            });
+            return f;
+        }
+
+        /**
+         * Sets the number of actions that may be executed concurrently by each shared agent.
+         * A value of 0 disables the use of shared agents.
+         *
+         * @param slots the number of actions
+         */
+        public void setSharedAgentSlots(int slots) {
+            this.sharedAgentSlots = slots;
+            logger.log(null, "POOL: shared agent slots: " + slots);
+        }
+
+        /**
+         * Returns whether shared agents may be used for actions that are safe
+         * to execute concurrently with other such actions in the same VM.
+         *
+         * @return {@code true} if shared agents may be used
+         */
+        public boolean useSharedAgents() {
+            return sharedAgentSlots > 0;
+        }
+
+        /**
+         * Leases a slot on a shared agent with the desired properties.
+         * If there is an existing shared agent with a free slot, it will be returned;
+         * otherwise, a new shared agent will be created.
+         * Shared agents execute actions in multiplexed mode, such that several actions
+         * may be executing concurrently in the same agent.
+         * Eventually, the slot must be {@link #releaseSharedAgent released}.
+         *
+         * @param dir     the execution directory for the agent
+         * @param jdk     the JDK for the agent
+         * @param vmOpts  the VM options for the agent
+         * @param envVars the environment variables for the agent
+         * @return the agent
+         * @throws Fault if there is a problem obtaining a suitable agent
+         */
+        Agent getSharedAgent(File dir,
+                             JDK jdk,
+                             List<String> vmOpts,
+                             Map<String, String> envVars)
+                throws Fault {
+            String key = getKey(dir, jdk, vmOpts);
+            List<Agent> retired = new ArrayList<>();
+            try {
+                synchronized (this) {
+                    List<Agent> agents = sharedAgentsByKey.computeIfAbsent(key, k -> new ArrayList<>());
+                    for (Iterator<Agent> iter = agents.iterator(); iter.hasNext(); ) {
+                        Agent a = iter.next();
+                        if (!a.isAgentServerAlive()) {
+                            a.retired = true;
+                        }
+                        if (a.retired) {
+                            if (a.leases == 0) {
+                                logger.log(a, "POOL: Removing retired shared agent");
+                                iter.remove();
+                                retired.add(a);
+                            }
+                        } else if (a.leases < sharedAgentSlots) {
+                            a.leases++;
+                            logger.log(a, "POOL: Leasing shared agent slot (" + a.leases + "/" + sharedAgentSlots + ")");
+                            stats.reuse(a);
+                            return a;
+                        }
+                    }
+                }
+            } finally {
+                retired.forEach(Agent::close);
+            }
+            // create the new agent without holding the lock; if other threads also
+            // create shared agents with the same key at the same time, all of them
+            // are added to the list
+            logger.log(null, "POOL: Creating new shared agent");
+            Agent a = new Agent(dir, jdk, vmOpts, envVars, policyFile, timeoutFactor, logger, cdsArchives,
+                    null, null, true, false);
+            synchronized (this) {
+                a.leases = 1;
+                sharedAgentsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(a);
+            }
+            stats.add(a);
+            return a;
+        }
+
+        /**
+         * Releases a slot on a shared agent, previously obtained from {@link #getSharedAgent}.
+         * If the agent should not be used for any further actions, it will be retired,
+         * and closed when there are no remaining actions using it.
+         *
+         * @param agent    the agent
+         * @param reusable whether the agent may be used for further actions
+         */
+        void releaseSharedAgent(Agent agent, boolean reusable) {
+            synchronized (this) {
+                agent.leases--;
+                if (!reusable && !agent.retired) {
+                    logger.log(agent, "POOL: Retiring shared agent");
+                    agent.retired = true;
+                }
+                if (!agent.retired || agent.leases > 0) {
+                    return;
+                }
+                List<Agent> agents = sharedAgentsByKey.get(getKey(agent));
+                if (agents != null) {
+                    agents.remove(agent);
+                }
+            }
+            agent.close();
+        }
+
         /**
          * Saves an agent in the pool for potential reuse.
          * The agent is assumed to have been restored to some standard state.
          *
          * @param agent the agent
          */
-        synchronized void save(Agent agent) {
+        void save(Agent agent) {
+            leased.remove(agent);
             // do not save the agent into the pool if the agent's process is already dead
             if (!agent.isAgentServerAlive()) {
                 logger.log(agent, "Agent server process " + agent.getAgentServerPid()
                         + " is dead, will not save agent to pool");
                 return;
             }
+            stats.trackHealth(agent.health);
+            String reason = getRetirementReason(agent);
+            if (reason != null) {
+                logger.log(agent, "Retiring agent: " + reason);
+                stats.retire(reason);
+                agent.close();
+                if (prewarmCount > 0) {
+                    prewarm();
+                }
+                return;
+            }
             logger.log(agent, "Saving agent to pool");
-            String key = getKey(agent.execDir, agent.jdk, agent.vmOpts);
-            agentsByKey.computeIfAbsent(key, k -> new LinkedList<>()).add(agent);
-            allAgents.addLast(agent);
+            agent.idleStartTime = Instant.now();
+            agentsByKey.computeIfAbsent(getKey(agent), k -> new ConcurrentLinkedDeque<>()).addLast(agent);
+            int size = idleCount.incrementAndGet();
+            stats.trackPoolSize(size);
+
+            startCleaner(size > maxPoolSize);
+            if (prewarmCount > 0) {
+                prewarm();
+            }
+        }
 
-            Instant now = Instant.now();
-            agent.idleStartTime = now;
-            cleanOldEntries(now);
+        /**
+         * Returns the reason why an agent should not be reused, or {@code null}
+         * if it may be saved in the pool.
+         * An agent is retired when it has executed the maximum number of actions,
+         * or when the state of the VM after the most recent action exceeds any of
+         * the limits that have been set.
+         *
+         * @param agent the agent
+         * @return the reason, or {@code null}
+         */
+        private String getRetirementReason(Agent agent) {
+            if (maxAgentUses > 0 && agent.actionCount >= maxAgentUses) {
+                return "uses";
+            }
+            for (Map.Entry<String, Long> e : healthLimits.entrySet()) {
+                String v = agent.health.get(e.getKey());
+                if (v != null) {
+                    try {
+                        if (Long.parseLong(v) > e.getValue()) {
+                            return e.getKey();
+                        }
+                    } catch (NumberFormatException ex) {
+                        logger.log(agent, "POOL: bad value for " + e.getKey() + ": " + v);
+                    }
+                }
+            }
+            return null;
+        }
 
-            stats.trackPoolSize(allAgents.size());
+        /**
+         * Starts the executor used to remove old entries from the pool in the
+         * background, if it is not already running. The executor periodically
+         * checks for agents that have been idle for too long.
+         *
+         * @param now whether to check for old entries immediately,
+         *            such as when there are too many agents in the pool
+         */
+        private void startCleaner(boolean now) {
+            ScheduledExecutorService c = cleaner;
+            if (c == null) {
+                synchronized (this) {
+                    if (cleaner == null) {
+                        cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+                            Thread t = new Thread(r, "Agent pool cleaner");
+                            t.setDaemon(true);
+                            return t;
+                        });
+                        long interval = Math.max(MIN_CLEANUP_INTERVAL.toMillis(),
+                                Math.min(idleTimeout.toMillis(), MAX_CLEANUP_INTERVAL.toMillis()));
+                        cleaner.scheduleWithFixedDelay(this::cleanOldEntries,
+                                interval, interval, TimeUnit.MILLISECONDS);
+                    }
+                    c = cleaner;
+                }
+            }
+            if (now) {
+                try {
+                    c.execute(this::cleanOldEntries);
+                } catch (RejectedExecutionException e) {
+                    // ignore: the pool is being flushed, and all agents will be closed
+                }
+            }
         }
 
         /**
@@ -915,27 +1782,65 @@ public class Agent {
          * The maximum number of agents in the pool, and the maximum idle time
          * are both configurable.
          *
-         * @param now the current time
+         * This method is executed in the background, by the cleaner thread,
+         * concurrently with agents being obtained from and saved to the pool.
+         * Agents are removed from the pool before they are closed, so that an
+         * agent is either closed or reused, but not both.
          */
-        private synchronized void cleanOldEntries(Instant now) {
-            while (allAgents.size() > maxPoolSize) {
-                Agent a = allAgents.getFirst();
-                logger.log(a, "Removing excess agent from pool");
-                removeAgent(a);
-            }
-
-            while (!allAgents.isEmpty()
-                    && isIdleTooLong(allAgents.peekFirst(), now)) {
-                Agent a = allAgents.getFirst();
-                logger.log(a, "Removing idle agent from pool");
-                removeAgent(a);
+        private void cleanOldEntries() {
+            try {
+                // take a snapshot of the idle start times, which may be updated
+                // concurrently if agents are reused and saved again
+                Map<Agent, Instant> idleStartTimes = new HashMap<>();
+                for (Deque<Agent> agents : agentsByKey.values()) {
+                    for (Agent a : agents) {
+                        idleStartTimes.put(a, a.idleStartTime);
+                    }
+                }
+                List<Agent> idle = new ArrayList<>(idleStartTimes.keySet());
+                idle.sort(Comparator.comparing(idleStartTimes::get));
+
+                int excess = idleCount.get() - maxPoolSize;
+                Instant now = Instant.now();
+                for (Agent a : idle) {
+                    if (excess > 0) {
+                        if (removeAgent(a, "Removing excess agent from pool")) {
+                            excess--;
+                        }
+                    } else if (isIdleTooLong(a, now)) {
+                        removeAgent(a, "Removing idle agent from pool");
+                    } else {
+                        // the remaining agents have been idle for less time
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                // do not let the exception cancel subsequent executions
+                logger.log(null, "POOL: error removing old entries: " + e);
             }
         }
 
-        private void removeAgent(Agent a) {
-            agentsByKey.get(getKey(a)).remove(a);
-            allAgents.remove(a);
+        /**
+         * Removes an agent from the pool, and closes it, unless it has
+         * already been obtained from the pool by another thread.
+         *
+         * @param a the agent
+         * @param message the message to be logged if the agent is removed
+         * @return {@code true} if the agent was removed
+         */
+        private boolean removeAgent(Agent a, String message) {
+            Deque<Agent> agents = agentsByKey.get(getKey(a));
+            if (agents == null || !agents.remove(a)) {
+                return false;
+            }
+            idleCount.decrementAndGet();
+            logger.log(a, message);
+            synchronized (this) {
+                // the agent was not needed, so do not replace it
+                expected.remove(getKey(a));
+            }
             a.close();
+            return true;
         }
 
         private boolean isIdleTooLong(Agent a, Instant now) {
@@ -960,11 +1865,39 @@ public class Agent {
          */
         public synchronized void flush() {
             logger.log(null, "POOL: closing all agents");
-            for (Agent a : allAgents) {
-                a.close();
+            expected.clear();
+            if (prewarmExecutor != null) {
+                prewarmExecutor.shutdownNow();
+                prewarmExecutor = null;
+            }
+            for (Deque<CompletableFuture<Agent>> pending : pendingByKey.values()) {
+                for (CompletableFuture<Agent> f : pending) {
+                    f.thenAccept(Agent::close);
+                }
+            }
+            pendingByKey.clear();
+            leased.clear();
+            if (cleaner != null) {
+                cleaner.shutdownNow();
+                cleaner = null;
+            }
+            for (Deque<Agent> agents : agentsByKey.values()) {
+                Agent a;
+                while ((a = agents.pollFirst()) != null) {
+                    idleCount.decrementAndGet();
+                    a.close();
+                }
             }
-            allAgents.clear();
             agentsByKey.clear();
+            for (List<Agent> agents : sharedAgentsByKey.values()) {
+                for (Agent a : agents) {
+                    a.close();
+                }
+            }
+            sharedAgentsByKey.clear();
+            if (cdsArchives != null) {
+                cdsArchives.awaitPending(Duration.ofMinutes(1));
+            }
             stats.report(new File(logger.agentLogFileDirectory, "agent.summary"), logger);
         }
 
@@ -989,22 +1922,16 @@ public class Agent {
          *
          * @param dir the execution directory
          */
-        synchronized void close(File dir) {
+        void close(File dir) {
             logger.log(null, "POOL: closing agents using directory " + dir);
-            for (Iterator<Agent> iter = allAgents.iterator(); iter.hasNext(); ) {
-                Agent agent = iter.next();
-                if (agent.execDir.equals(dir)) {
-                    // remove from the allAgents list, currently being iterated
-                    iter.remove();
-                    // remove from the agentsByKey map
-                    String agentKey = getKey(agent);
-                    Deque<Agent> deque = agentsByKey.get(agentKey);
-                    deque.remove(agent);
-                    if (deque.isEmpty()) {
-                        agentsByKey.remove(agentKey);
+            for (Deque<Agent> agents : agentsByKey.values()) {
+                for (Agent agent : agents) {
+                    // an agent that has been obtained by another thread in the
+                    // meantime is not closed here
+                    if (agent.execDir.equals(dir) && agents.remove(agent)) {
+                        idleCount.decrementAndGet();
+                        agent.close();
                     }
-                    // close the agent
-                    agent.close();
                 }
             }
         }
@@ -1017,29 +1944,102 @@ public class Agent {
             return (dir.getAbsolutePath() + " " + jdk.getAbsoluteHomeDirectory() + " " + StringUtils.join(vmOpts, " "));
         }
 
+        /**
+         * The characteristics of an agent, as needed to create a new agent.
+         */
+        private static class AgentSpec {
+            final File dir;
+            final JDK jdk;
+            final List<String> vmOpts;
+            final Map<String, String> envVars;
+            final String testThreadFactory;
+            final String testThreadFactoryPath;
+
+            AgentSpec(File dir, JDK jdk, List<String> vmOpts, Map<String, String> envVars,
+                      String testThreadFactory, String testThreadFactoryPath) {
+                this.dir = dir;
+                this.jdk = jdk;
+                this.vmOpts = vmOpts;
+                this.envVars = envVars;
+                this.testThreadFactory = testThreadFactory;
+                this.testThreadFactoryPath = testThreadFactoryPath;
+            }
+
+            AgentSpec withDir(File dir) {
+                return new AgentSpec(dir, jdk, vmOpts, envVars, testThreadFactory, testThreadFactoryPath);
+            }
+
+            String getKey() {
+                return Pool.getKey(dir, jdk, vmOpts);
+            }
+        }
+
+        private final RegressionParameters params;
         private final Logger logger;
 
         /**
          * A map of the currently available agents, indexed by a key
          * derived from the agent's primary execution characteristics.
-         * For each key, a deque is maintained of agents with that key.
+         * For each key, a concurrent deque is maintained of agents with that key.
          * The most recently used entries are "last" in the deque;
          * the oldest entries are "first" in the deque.
+         * Entries are added and removed without holding the lock on the pool.
          */
         private final Map<String, Deque<Agent>> agentsByKey;
 
         /**
-         * A list of all the currently available agents.
-         * The most recently used entries are "last" in the deque;
-         * the oldest entries are "first" in the deque.
+         * The number of currently available agents, in all the deques in {@code agentsByKey}.
          */
-        private final Deque<Agent> allAgents;
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        /**
+         * A map of the shared agents, indexed by the same key as {@code agentsByKey}.
+         * Unlike other agents, shared agents remain in this map while they are in use.
+         */
+        private final Map<String, List<Agent>> sharedAgentsByKey;
 
         private File policyFile;
         private float timeoutFactor = 1.0f;
-        private int maxPoolSize;
-        private Duration idleTimeout;
+        private volatile int maxPoolSize;
+        private volatile Duration idleTimeout;
         private int numAgentSelectionAttempts;
+        private int sharedAgentSlots;
+        private int maxAgentUses;
+        private Map<String, Long> healthLimits = Collections.emptyMap();
+
+        /**
+         * The agents that have been obtained from the pool, and which may be
+         * saved back to the pool when they are no longer in use.
+         */
+        private final Set<Agent> leased = ConcurrentHashMap.newKeySet();
+
+        /**
+         * The kinds of agent that are expected to be required, indexed by key.
+         * Entries are removed when agents of that kind are removed from the pool
+         * for being idle or in excess.
+         */
+        private final Map<String, AgentSpec> expected = new ConcurrentHashMap<>();
+
+        /**
+         * The keys of all the kinds of agent for which demand has been predicted.
+         * Demand is only predicted once for each key.
+         */
+        private final Set<String> predicted = new HashSet<>();
+
+        /**
+         * The agents being created in the background, that have not yet been claimed,
+         * indexed by key.
+         */
+        private final Map<String, Deque<CompletableFuture<Agent>>> pendingByKey = new ConcurrentHashMap<>();
+
+        private ExecutorService prewarmExecutor;
+        private volatile ScheduledExecutorService cleaner;
+        private static final Duration MIN_CLEANUP_INTERVAL = Duration.ofMillis(100);
+        private static final Duration MAX_CLEANUP_INTERVAL = Duration.ofSeconds(1);
+        private List<File> threadDirs;
+        private int prewarmCount;
+        private CDSArchives cdsArchives;
+        private boolean libraryClassLoaders;
     }
 
     static class Stats {
@@ -1048,8 +2048,11 @@ public class Agent {
         Set<List<String>> allVMOpts = new TreeSet<>(Comparator.comparing(Objects::toString));
         Map<Integer, Integer> useCounts = new TreeMap<>();
         Map<Integer, Integer> sizeCounts = new TreeMap<>();
+        Map<String, Long> maxHealth = new LinkedHashMap<>();
+        Map<String, Integer> retireCounts = new TreeMap<>();
+        int prewarmCount;
 
-        void add(Agent a) {
+        synchronized void add(Agent a) {
             allDirs.add(a.execDir);
             allJDKs.add(a.jdk);
             allVMOpts.add(a.vmOpts);
@@ -1057,23 +2060,46 @@ public class Agent {
             useCounts.put(a.id, 1);
         }
 
-        void reuse(Agent a) {
+        synchronized void reuse(Agent a) {
             useCounts.put(a.id, useCounts.get(a.id) + 1);
         }
 
-        void trackPoolSize(int size) {
+        synchronized void prewarm(Agent a) {
+            add(a);
+            useCounts.put(a.id, 0);
+            prewarmCount++;
+        }
+
+        synchronized void trackPoolSize(int size) {
             sizeCounts.put(size, sizeCounts.computeIfAbsent(size, s -> 0) + 1);
         }
 
-        void clear() {
+        synchronized void trackHealth(Map<String, String> health) {
+            health.forEach((name, value) -> {
+                try {
+                    maxHealth.merge(name, Long.parseLong(value), Math::max);
+                } catch (NumberFormatException e) {
+                    // ignore
+                }
+            });
+        }
+
+        synchronized void retire(String reason) {
+            retireCounts.merge(reason, 1, Integer::sum);
+        }
+
+        synchronized void clear() {
             allDirs.clear();
             allJDKs.clear();
             allVMOpts.clear();
             useCounts.clear();
             sizeCounts.clear();
+            maxHealth.clear();
+            retireCounts.clear();
+            prewarmCount = 0;
         }
 
-        void report(File file, Logger logger) {
+        synchronized void report(File file, Logger logger) {
             try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
                 report(out, "Execution Directories", allDirs);
                 out.println();
@@ -1098,6 +2124,26 @@ public class Agent {
                 out.format("Mean          %5.1f%n", size_m_sd[0]);
                 out.format("Std Deviation %5.1f%n", size_m_sd[1]);
 
+                if (prewarmCount > 0) {
+                    out.println();
+                    long unused = useCounts.values().stream().filter(c -> c == 0).count();
+                    out.format("Pre-warmed Agents:%n");
+                    out.format("    created: %3d%n", prewarmCount);
+                    out.format("    unused:  %3d%n", unused);
+                }
+
+                if (!maxHealth.isEmpty()) {
+                    out.println();
+                    out.format("Agent Health (maximum after any action):%n");
+                    maxHealth.forEach((name, v) -> out.format("    %-14s %8d%n", name + ":", v));
+                }
+
+                if (!retireCounts.isEmpty()) {
+                    out.println();
+                    out.format("Retired Agents:%n");
+                    retireCounts.forEach((reason, c) -> out.format("    %-14s %3d%n", reason + ":", c));
+                }
+
             } catch (IOException e) {
                 logger.log(null, "STATS: can't write stats file " + file + ": " + e);
             }
@@ -297,6 +297,7 @@ public class AppletAction extends Action
             // RUN THE APPLET WRAPPER CLASS
             ProcessCommand cmd = new ProcessCommand();
             cmd.setMessageWriter(section.getMessageWriter());
+            cmd.setResourceUsage(script.getProcessResourceUsage());
             cmd.setExecDir(script.absTestScratchDir().toFile());
 
             // Set the exit codes and their associated strings.  Note that we
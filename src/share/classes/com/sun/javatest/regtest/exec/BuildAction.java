@@ -26,17 +26,27 @@
 package com.sun.javatest.regtest.exec;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.sun.javatest.Status;
 import com.sun.javatest.regtest.config.Locations;
@@ -182,6 +192,23 @@ public class BuildAction extends Action
     public Status run() throws TestRunException {
         startAction(false);
 
+        // Shared libraries may be used by tests running concurrently in
+        // other threads: lock them before checking whether they are up to date,
+        // so that each is compiled just once, and tests that need a library
+        // wait while it is being compiled.
+        List<ReentrantLock> locks = lockSharedLibraries();
+        Status status;
+        try {
+            status = build(locks);
+        } finally {
+            unlock(locks);
+        }
+
+        endAction(status);
+        return status;
+    } // run()
+
+    private Status build(List<ReentrantLock> locks) throws TestRunException {
         // step 1: see which files need compiling, and group them according
         // to the value of the library in which they appear, and hence
         // -d flag that will be required
@@ -233,6 +260,10 @@ public class BuildAction extends Action
                 }
             }
 
+            // the test code is not shared, and need not be compiled while
+            // holding the locks for the libraries
+            unlock(locks);
+
             // compile test code
             if (status == null) {
                 for (Map.Entry<LibLocn,List<ClassLocn>> e: classLocnsToCompile.entrySet()) {
@@ -250,13 +281,167 @@ public class BuildAction extends Action
                 status = passed(BUILD_SUCC);
         }
 
-        endAction(status);
         return status;
-    } // run()
+    }
+
+    /**
+     * Locks the shared libraries used by the test, in a consistent order
+     * to avoid deadlock with other tests using the same libraries.
+     *
+     * @return the locks, in the order in which they were acquired
+     */
+    private List<ReentrantLock> lockSharedLibraries() {
+        Locations locations = script.locations;
+        List<LibLocn> libs = locations.getLibs().stream()
+                .filter(locations::isShared)
+                .sorted(Comparator.comparing(l -> l.absClsDir))
+                .collect(Collectors.toList());
+        List<ReentrantLock> locks = new ArrayList<>();
+        for (LibLocn l : libs) {
+            ReentrantLock lock = sharedLibraryLocks.computeIfAbsent(l.absClsDir, d -> new ReentrantLock());
+            if (locks.contains(lock)) {
+                continue;
+            }
+            if (!lock.tryLock()) {
+                section.getMessageWriter().println(String.format(BUILD_SHARED_WAIT, l.name));
+                lock.lock();
+            }
+            locks.add(lock);
+        }
+        return locks;
+    }
+
+    private void unlock(List<ReentrantLock> locks) {
+        for (ReentrantLock lock : locks) {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
 
     private Status compileLibrary(LibLocn libLocn, List<ClassLocn> classLocns) throws TestRunException {
         showClasses(libLocn, classLocns);
 
+        if (!script.locations.isShared(libLocn)) {
+            return compileLibrary(libLocn, libLocn, classLocns);
+        }
+
+        // Tests in other threads may be using classes in the directory for a
+        // shared library, so compile the classes into a new directory, and
+        // then move them into place one by one.
+        Path tmpDir;
+        try {
+            Files.createDirectories(libLocn.absClsDir);
+            tmpDir = Files.createTempDirectory(libLocn.absClsDir.getParent(), ".build-");
+        } catch (IOException e) {
+            throw new TestRunException(String.format(BUILD_SHARED_ERROR, libLocn.name, e));
+        }
+        try {
+            return compileLibrary(libLocn, libLocn.withClassDirectory(tmpDir), classLocns);
+        } finally {
+            try {
+                deleteTree(tmpDir);
+            } catch (IOException e) {
+                section.getMessageWriter().println(String.format(BUILD_SHARED_ERROR, libLocn.name, e));
+            }
+        }
+    }
+
+    /**
+     * Compiles classes in a library, using the build cache if one is available.
+     *
+     * @param libLocn the library
+     * @param outLocn the library, with the directory in which to place the compiled classes
+     * @param classLocns the classes to be compiled
+     * @return the status of the compilation
+     * @throws TestRunException if an error occurs
+     */
+    private Status compileLibrary(LibLocn libLocn, LibLocn outLocn, List<ClassLocn> classLocns)
+            throws TestRunException {
+        Path cacheDir = script.getBuildCacheDirectory();
+        if (cacheDir == null || !libLocn.isLibrary()) {
+            Status status = compileLibraryClasses(outLocn, classLocns);
+            if (status.isPassed())
+                install(outLocn, libLocn);
+            return status;
+        }
+
+        PrintWriter pw = section.getMessageWriter();
+        BuildCache cache = new BuildCache(cacheDir);
+        String key;
+        try {
+            key = cache.getKey(script, libLocn, classLocns);
+            if (key != null) {
+                Path entry = cache.restore(key, outLocn);
+                if (entry != null) {
+                    install(outLocn, libLocn);
+                    pw.println(String.format(BUILD_CACHE_RESTORED, entry));
+                    return passed(BUILD_SUCC);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            pw.println(String.format(BUILD_CACHE_ERROR, e));
+            key = null;
+        }
+
+        Status status = compileLibraryClasses(outLocn, classLocns);
+        if (status.isPassed())
+            install(outLocn, libLocn);
+        if (status.isPassed() && key != null) {
+            try {
+                cache.save(key, libLocn);
+            } catch (IOException | UncheckedIOException e) {
+                pw.println(String.format(BUILD_CACHE_ERROR, e));
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Moves compiled classes into the class directory of a library,
+     * if they were not compiled there. Each file is moved atomically,
+     * so that tests using the library never see a partially written file.
+     *
+     * @param outLocn the library, with the directory containing the compiled classes
+     * @param libLocn the library
+     * @throws TestRunException if an error occurs while moving the files
+     */
+    private void install(LibLocn outLocn, LibLocn libLocn) throws TestRunException {
+        Path from = outLocn.absClsDir;
+        Path to = libLocn.absClsDir;
+        if (from.equals(to)) {
+            return;
+        }
+        try {
+            List<Path> files;
+            try (Stream<Path> s = Files.walk(from)) {
+                files = s.filter(Files::isRegularFile).collect(Collectors.toList());
+            }
+            for (Path f : files) {
+                Path t = to.resolve(from.relativize(f).toString());
+                Files.createDirectories(t.getParent());
+                try {
+                    Files.move(f, t, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(f, t, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new TestRunException(String.format(BUILD_SHARED_ERROR, libLocn.name, e));
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> s = Files.walk(dir)) {
+            paths = s.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path p : paths) {
+            Files.deleteIfExists(p);
+        }
+    }
+
+    private Status compileLibraryClasses(LibLocn libLocn, List<ClassLocn> classLocns) throws TestRunException {
         switch (libLocn.kind) {
             case PACKAGE:
                 return compileFiles(libLocn, false, null, getSrcFiles(classLocns));
@@ -340,5 +525,10 @@ public class BuildAction extends Action
 
     //----------member variables------------------------------------------------
 
+    /**
+     * Locks for shared libraries, indexed by the directory for the compiled classes.
+     */
+    private static final Map<Path, ReentrantLock> sharedLibraryLocks = new ConcurrentHashMap<>();
+
     private String implicitOpt;
 }
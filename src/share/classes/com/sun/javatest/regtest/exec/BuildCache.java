@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.exec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.sun.javatest.regtest.config.JDK;
+import com.sun.javatest.regtest.config.Locations.ClassLocn;
+import com.sun.javatest.regtest.config.Locations.LibLocn;
+
+/**
+ * A cache of the compiled classes of libraries, shared between test runs
+ * and between work directories.
+ *
+ * Entries in the cache are identified by a key computed from the content of
+ * the source files of all the libraries used by a test, the classes to be
+ * compiled, the options given to the compiler, and the identity of the
+ * compile JDK. If an entry exists for a library that needs to be built,
+ * the classes in the entry are copied into the class directory for the
+ * library, instead of invoking the compiler. After a library has been
+ * compiled, the contents of its class directory are saved in a new entry.
+ *
+ * Each entry is a directory, written under a temporary name and then renamed,
+ * so that concurrent runs sharing the cache never see a partial entry.
+ * Entries are never modified once they have been written; the cache can be
+ * cleared by deleting the directory at any time that it is not in use.
+ */
+class BuildCache {
+    /**
+     * The maximum number of files in the source trees of the libraries
+     * of a test for which the cache will be used. Larger trees, such as
+     * when the root of the test suite is used as a library, are more
+     * expensive to hash than they are likely to be to compile.
+     */
+    private static final int MAX_FILES = 10000;
+
+    private static final String VERSION = "jtreg build cache 1";
+
+    private final Path dir;
+
+    /**
+     * Digests of individual files, indexed by path, and valid as long as the
+     * size and modification time of the file have not changed.
+     * The same library sources are typically hashed for many tests.
+     */
+    private static final Map<Path, FileDigest> fileDigests = new ConcurrentHashMap<>();
+
+    private static class FileDigest {
+        final long size;
+        final long lastModified;
+        final byte[] digest;
+
+        FileDigest(long size, long lastModified, byte[] digest) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+    }
+
+    BuildCache(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Returns the key for the compilation of some classes in a library,
+     * or {@code null} if the classes should not be cached.
+     *
+     * @param script the script for the test
+     * @param libLocn the library containing the classes
+     * @param classLocns the classes to be compiled
+     * @return the key
+     * @throws IOException if an error occurs while reading the source files
+     */
+    String getKey(RegressionScript script, LibLocn libLocn, List<ClassLocn> classLocns) throws IOException {
+        if (!libLocn.isLibrary()) {
+            return null;
+        }
+
+        MessageDigest md = newDigest();
+        add(md, VERSION);
+
+        // compile JDK: its path and, since a JDK image may be rebuilt in place,
+        // the content of its release file and the identity of javac
+        JDK jdk = script.getCompileJDK();
+        add(md, jdk.getAbsolutePath());
+        Path release = jdk.getAbsoluteHomeDirectory().resolve("release");
+        if (Files.isRegularFile(release)) {
+            md.update(getDigest(release));
+        }
+        Path javac = script.getJavacProg();
+        if (Files.exists(javac)) {
+            BasicFileAttributes attrs = Files.readAttributes(javac, BasicFileAttributes.class);
+            add(md, attrs.size() + ":" + attrs.lastModifiedTime().toMillis());
+        }
+
+        // compiler options, including any given by @modules in the test
+        for (String opt : script.getTestCompilerOptions()) {
+            add(md, opt);
+        }
+        String modules = script.getTestDescription().getParameter("modules");
+        add(md, modules == null ? "" : modules);
+        String cpa = script.getEnvVars().get("CPAPPEND");
+        add(md, cpa == null ? "" : cpa);
+
+        // the classes to be compiled
+        add(md, libLocn.name + ":" + libLocn.kind);
+        for (ClassLocn cl : classLocns) {
+            add(md, (cl.optModule == null ? "" : cl.optModule + "/") + cl.className);
+        }
+
+        // the source files of all the libraries that may be on the source path
+        // or class path when compiling the library
+        int count = 0;
+        for (LibLocn l : script.locations.getLibs()) {
+            add(md, l.name + ":" + l.kind);
+            if (Files.isRegularFile(l.absSrcDir)) {
+                md.update(getDigest(l.absSrcDir));
+                count++;
+            } else if (Files.isDirectory(l.absSrcDir)) {
+                List<Path> files;
+                try (Stream<Path> s = Files.walk(l.absSrcDir)) {
+                    files = s.filter(Files::isRegularFile)
+                            .sorted()
+                            .collect(Collectors.toList());
+                }
+                count += files.size();
+                if (count > MAX_FILES) {
+                    return null;
+                }
+                for (Path f : files) {
+                    add(md, l.absSrcDir.relativize(f).toString().replace('\\', '/'));
+                    md.update(getDigest(f));
+                }
+            }
+        }
+
+        return toHex(md.digest());
+    }
+
+    /**
+     * Copies the classes in the cache entry for a key, if there is one,
+     * into the class directory for a library.
+     * The copied files are given the current time as their modification time,
+     * so that they are newer than the corresponding source files.
+     *
+     * @param key the key
+     * @param libLocn the library
+     * @return the cache entry, or {@code null} if there was no entry for the key
+     * @throws IOException if an error occurs while copying the classes
+     */
+    Path restore(String key, LibLocn libLocn) throws IOException {
+        Path entry = dir.resolve(key);
+        if (!Files.isDirectory(entry)) {
+            return null;
+        }
+        copyTree(entry, libLocn.absClsDir);
+        return entry;
+    }
+
+    /**
+     * Saves the contents of the class directory for a library in a new
+     * cache entry for a key, if there is not already an entry for the key.
+     *
+     * @param key the key
+     * @param libLocn the library
+     * @throws IOException if an error occurs while saving the classes
+     */
+    void save(String key, LibLocn libLocn) throws IOException {
+        Path entry = dir.resolve(key);
+        if (Files.exists(entry) || !Files.isDirectory(libLocn.absClsDir)) {
+            return;
+        }
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempDirectory(dir, key + ".tmp");
+        try {
+            copyTree(libLocn.absClsDir, tmp);
+            try {
+                Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException | AtomicMoveNotSupportedException e) {
+                // another test or run saved the same entry first
+            } catch (IOException e) {
+                if (!Files.isDirectory(entry)) {
+                    throw e;
+                }
+            }
+        } finally {
+            if (Files.exists(tmp)) {
+                deleteTree(tmp);
+            }
+        }
+    }
+
+    private static void copyTree(Path from, Path to) throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.walk(from)) {
+            files = s.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        for (Path f : files) {
+            Path t = to.resolve(from.relativize(f).toString());
+            Files.createDirectories(t.getParent());
+            Files.copy(f, t, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> s = Files.walk(dir)) {
+            paths = s.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path p : paths) {
+            Files.deleteIfExists(p);
+        }
+    }
+
+    private static byte[] getDigest(Path file) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attrs.size();
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        FileDigest fd = fileDigests.get(file);
+        if (fd == null || fd.size != size || fd.lastModified != lastModified) {
+            MessageDigest md = newDigest();
+            byte[] buf = new byte[8192];
+            try (InputStream in = Files.newInputStream(file)) {
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    md.update(buf, 0, n);
+                }
+            }
+            fd = new FileDigest(size, lastModified, md.digest());
+            fileDigests.put(file, fd);
+        }
+        return fd.digest;
+    }
+
+    private static void add(MessageDigest md, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        md.update((byte) (bytes.length >>> 24));
+        md.update((byte) (bytes.length >>> 16));
+        md.update((byte) (bytes.length >>> 8));
+        md.update((byte) bytes.length);
+        md.update(bytes);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.exec;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import com.sun.javatest.regtest.agent.ArchiveClasses;
+import com.sun.javatest.regtest.agent.JDK_Version;
+import com.sun.javatest.regtest.config.JDK;
+import com.sun.javatest.regtest.config.RegressionParameters;
+
+/**
+ * Dynamic CDS archives of the classes used by agent VMs, to reduce the time
+ * to start new agents.
+ *
+ * An archive is created for each distinct combination of JDK, VM options
+ * and class path used to start agents. The first time that an agent is needed
+ * for a combination, the archive is created in the background, by running
+ * {@link ArchiveClasses} with {@code -XX:ArchiveClassesAtExit}, and the agent
+ * is started without an archive. Subsequent agents, in this and later runs
+ * that use the same work directory, are started with {@code -XX:SharedArchiveFile}.
+ *
+ * The name of each archive is a digest of everything that affects its validity,
+ * including the size and modification time of the JDK image and of the jar files
+ * on the class path, so that an archive is never used after any of them change.
+ * CDS requires that the class path does not contain any non-empty directories
+ * when the archive is created, and so archives are not used for agents with
+ * such directories on their class path.
+ */
+class CDSArchives {
+    /**
+     * The prefixes of the names of the classes to be included in the archives.
+     */
+    private static final List<String> CLASS_PREFIXES = List.of(
+            "com.sun.javatest.regtest.agent.",
+            "org.junit.platform.",
+            "org.junit.jupiter.engine.",
+            "org.testng.");
+
+    private final RegressionParameters params;
+    private final Path dir;
+    private final Set<String> pending = new HashSet<>();
+    private final Set<String> failed = new HashSet<>();
+
+    CDSArchives(RegressionParameters params, Path dir) {
+        this.params = params;
+        this.dir = dir;
+    }
+
+    /**
+     * Returns the VM options to use an archive for an agent, or an empty list
+     * if no archive is available. If an archive might be used, but is not yet
+     * available, it is created in the background.
+     *
+     * @param jdk the JDK used to run the agent
+     * @param vmOpts the VM options for the agent, including the class path
+     * @param logger an object to which to write logging messages
+     * @return the VM options
+     */
+    synchronized List<String> getVMOptions(JDK jdk, List<String> vmOpts, Consumer<String> logger) {
+        // -XX:ArchiveClassesAtExit requires JDK 13 or later
+        if (jdk.getVersion(params, logger).compareTo(JDK_Version.forName("13")) < 0) {
+            return Collections.emptyList();
+        }
+
+        List<Path> classPath = null;
+        for (int i = 0; i < vmOpts.size(); i++) {
+            String opt = vmOpts.get(i);
+            if (opt.startsWith("-Xshare") || opt.contains("SharedArchive")
+                    || opt.contains("ArchiveClassesAtExit")) {
+                // respect any explicit use of CDS
+                return Collections.emptyList();
+            }
+            if ((opt.equals("-classpath") || opt.equals("-cp") || opt.equals("--class-path"))
+                    && i + 1 < vmOpts.size()) {
+                classPath = new ArrayList<>();
+                for (String e : vmOpts.get(i + 1).split(File.pathSeparator)) {
+                    if (!e.isEmpty()) {
+                        classPath.add(Path.of(e));
+                    }
+                }
+            }
+        }
+        if (classPath == null || classPath.stream().anyMatch(Files::isDirectory)) {
+            return Collections.emptyList();
+        }
+
+        String key;
+        try {
+            key = getKey(jdk, vmOpts, classPath);
+        } catch (IOException e) {
+            logger.accept("CDS: cannot determine archive for agent: " + e);
+            return Collections.emptyList();
+        }
+
+        Path archive = dir.resolve(key + ".jsa");
+        if (Files.exists(archive)) {
+            logger.accept("CDS: using archive " + archive);
+            return List.of("-XX:SharedArchiveFile=" + archive);
+        }
+
+        if (!failed.contains(key) && pending.add(key)) {
+            Thread t = new Thread(() -> createArchive(key, jdk, vmOpts, archive, logger),
+                    "CDS archive " + key);
+            t.setDaemon(true);
+            t.start();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Waits for any archives that are being created to be completed,
+     * so that they are available to subsequent runs.
+     *
+     * @param timeout the maximum time to wait
+     */
+    synchronized void awaitPending(Duration timeout) {
+        long end = System.currentTimeMillis() + timeout.toMillis();
+        try {
+            long remaining;
+            while (!pending.isEmpty() && (remaining = end - System.currentTimeMillis()) > 0) {
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void createArchive(String key, JDK jdk, List<String> vmOpts, Path archive,
+            Consumer<String> logger) {
+        boolean ok = false;
+        Path tmp = null;
+        try {
+            Files.createDirectories(dir);
+            tmp = Files.createTempFile(dir, key, ".tmp");
+            List<String> cmd = new ArrayList<>();
+            cmd.add(jdk.getJavaProg().toString());
+            cmd.addAll(vmOpts);
+            cmd.add("-XX:ArchiveClassesAtExit=" + tmp);
+            cmd.add(ArchiveClasses.class.getName());
+            cmd.addAll(CLASS_PREFIXES);
+            logger.accept("CDS: creating archive " + archive + ": " + cmd);
+
+            Process p = new ProcessBuilder(cmd)
+                    .directory(dir.toFile())
+                    .redirectErrorStream(true)
+                    .start();
+            List<String> lines = readLines(p.getInputStream());
+            int rc = p.waitFor();
+            lines.forEach(l -> logger.accept("CDS: " + l));
+            if (rc == 0 && Files.size(tmp) > 0) {
+                Files.move(tmp, archive, StandardCopyOption.ATOMIC_MOVE);
+                logger.accept("CDS: created archive " + archive);
+                ok = true;
+            } else {
+                logger.accept("CDS: failed to create archive " + archive + ": exit code " + rc);
+            }
+        } catch (IOException | InterruptedException e) {
+            logger.accept("CDS: failed to create archive " + archive + ": " + e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+            synchronized (this) {
+                pending.remove(key);
+                if (!ok) {
+                    failed.add(key);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private String getKey(JDK jdk, List<String> vmOpts, List<Path> classPath) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        Path home = jdk.getAbsoluteHomeDirectory();
+        update(md, home.toString());
+        Path release = home.resolve("release");
+        if (Files.exists(release)) {
+            md.update(Files.readAllBytes(release));
+        }
+        update(md, getFileStamp(jdk.getJavaProg()));
+        update(md, getFileStamp(home.resolve("lib").resolve("modules")));
+        for (String opt : vmOpts) {
+            update(md, opt);
+        }
+        for (Path p : classPath) {
+            update(md, getFileStamp(p));
+        }
+        for (String p : CLASS_PREFIXES) {
+            update(md, p);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static void update(MessageDigest md, String s) {
+        md.update(s.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+    }
+
+    private static String getFileStamp(Path file) throws IOException {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return file.toAbsolutePath() + " " + attrs.size() + " " + attrs.lastModifiedTime().toMillis();
+        } catch (NoSuchFileException e) {
+            return file + " -";
+        }
+    }
+
+    private static List<String> readLines(InputStream in) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(in))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -36,6 +36,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.io.Reader;
 import java.io.StringReader;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
@@ -50,7 +51,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
 
 import com.sun.javatest.Status;
 import com.sun.javatest.regtest.TimeoutHandler;
@@ -692,6 +692,7 @@ public class CompileAction extends Action {
             }
         };
         cmd.setMessageWriter(section.getMessageWriter());
+        cmd.setResourceUsage(script.getProcessResourceUsage());
 
         TimeoutHandler timeoutHandler =
             script.getTimeoutHandlerProvider().createHandler(this.getClass(), script, section);
@@ -720,7 +721,9 @@ public class CompileAction extends Action {
         // tag-spec says that "standard error is redirected to standard out
         // so that /ref can be used."  Simulate this by concatenating streams.
         if ((ref != null) && status.isPassed()) {
-            String combined = stdOut.getOutput() + stdErr.getOutput();
+            Reader combined = GoldenFileComparator.concat(
+                    new StringReader(stdOut.getOutput()),
+                    new StringReader(stdErr.getOutput()));
             status = checkGoldenFile(combined, status);
         }
 
@@ -742,6 +745,11 @@ public class CompileAction extends Action {
         List<String> javacVMOpts = script.getTestVMOptions();
         recorder.javac(script.getEnvVars(), javacProg, javacVMOpts, javacProps, javacArgs);
 
+        // Compilations that do not run annotation processors do not depend on
+        // the system properties for the test, and can share an agent with
+        // other such compilations.
+        boolean shared = script.useSharedAgents() && !explicitAnnotationProcessingRequested(javacArgs);
+
         Agent agent;
         try {
             JDK jdk = script.getCompileJDK();
@@ -749,8 +757,10 @@ public class CompileAction extends Action {
             List<String> vmOpts = addDebugOpts && jdk.equals(script.getTestJDK())
                     ? join(script.getTestVMOptions(), script.getTestDebugOptions())
                     : script.getTestVMOptions();
-            agent = script.getAgent(jdk, agentClasspath, vmOpts, null, null);
-            section.getMessageWriter().println("Agent id: " + agent.getId());
+            agent = shared
+                    ? script.getSharedAgent(jdk, agentClasspath, vmOpts)
+                    : script.getAgent(jdk, agentClasspath, vmOpts, null, null);
+            section.getMessageWriter().println("Agent id: " + agent.getId() + (shared ? " (shared)" : ""));
             final long pid = agent.getAgentServerPid();
             section.getMessageWriter().println("Process id: " + ((pid == -1) ? "unknown" : pid));
             new ModuleConfig("Boot Layer (javac runtime environment)")
@@ -774,7 +784,8 @@ public class CompileAction extends Action {
                     javacArgs,
                     timeout,
                     timeoutHandler,
-                    section);
+                    section,
+                    script.getResourceUsage());
         } catch (Agent.ActionTimeout te) {
             String msg = "\"" + getName() + "\" action timed out with a timeout of "
                     + timeout + " seconds on agent " + agent.id;
@@ -789,7 +800,9 @@ public class CompileAction extends Action {
             else
                 status = error(String.format(AGENTVM_EXCEPTION, e.getCause()));
         }
-        if (status.isError()) {
+        if (shared) {
+            script.releaseSharedAgent(agent, !status.isError());
+        } else if (status.isError()) {
             script.closeAgent(agent);
         }
 
@@ -800,11 +813,11 @@ public class CompileAction extends Action {
         // tag-spec says that "standard error is redirected to standard out
         // so that /ref can be used."  Simulate this by concatenating streams.
         if ((ref != null) && status.isPassed()) {
-            String outString = getOutput(OutputHandler.OutputKind.DIRECT);
-            String errString = getOutput(OutputHandler.OutputKind.DIRECT_LOG);
-            String stdOutString = getOutput(OutputHandler.OutputKind.STDOUT);
-            String stdErrString = getOutput(OutputHandler.OutputKind.STDERR);
-            String combined = (outString + errString + stdOutString + stdErrString);
+            Reader combined = GoldenFileComparator.concat(
+                    new StringReader(getOutput(OutputHandler.OutputKind.DIRECT)),
+                    new StringReader(getOutput(OutputHandler.OutputKind.DIRECT_LOG)),
+                    new StringReader(getOutput(OutputHandler.OutputKind.STDOUT)),
+                    new StringReader(getOutput(OutputHandler.OutputKind.STDERR)));
             status = checkGoldenFile(combined, status);
         }
 
@@ -878,18 +891,29 @@ public class CompileAction extends Action {
 
     /**
      * Compare output against a reference file.
+     * If any differences are found, a diff of the region around the first
+     * difference is written to the message writer for the section.
      * @param status default result if no differences found
      * @param actual the text to be compared against the reference file
      * @return a status indicating the first difference, or the default status
      *          if no differences found
-     * @throws TestRunException if the reference file can't be found
+     * @throws TestRunException if the reference file can't be found or read
      */
-    private Status checkGoldenFile(String actual, Status status) throws TestRunException {
+    private Status checkGoldenFile(Reader actual, Status status) throws TestRunException {
         File refFile = script.absTestSrcDir().resolve(ref).toFile();
-        try (BufferedReader actualReader = new BufferedReader(new StringReader(actual));
+        PrintWriter messageWriter = section.getMessageWriter();
+        GoldenFileComparator comparator = new GoldenFileComparator(
+                script.getIgnoreRefLinesPattern(),
+                line -> messageWriter.println("Ignoring line: " + line));
+        try (BufferedReader actualReader = new BufferedReader(actual);
             BufferedReader refReader = new BufferedReader(new FileReader(refFile)) ) {
             int lineNum;
-            if ((lineNum = compareGoldenFile(actualReader, refReader)) != 0) {
+            try {
+                lineNum = comparator.compare(refReader, actualReader, ref, "output", messageWriter);
+            } catch (IOException e) {
+                throw new TestRunException(COMPILE_GOLD_READ_PROB + refFile);
+            }
+            if (lineNum != 0) {
                 return failed(COMPILE_GOLD_FAIL + ref +
                         COMPILE_GOLD_LINE + lineNum);
             }
@@ -901,44 +925,6 @@ public class CompileAction extends Action {
         }
     }
 
-    /**
-     * Line by line comparison of compile output and a reference file.  If no
-     * differences are found, then 0 is returned.  Otherwise, the line number
-     * where differences are first detected is returned.
-     *
-     * @param actualReader the reader for the output actually found
-     * @param refReader    the reader for the reference (expected) content
-     * @return the line number where differences were first detected,
-     *         or 0 if no differences were detected
-     */
-    private int compareGoldenFile(BufferedReader actualReader, BufferedReader refReader)
-            throws TestRunException {
-        Pattern ignoreLinesPattern = script.getIgnoreRefLinesPattern();
-        try {
-            int lineNum = 0;
-            for ( ; ; ) {
-                String s1 = actualReader.readLine();
-                if (ignoreLinesPattern != null) {
-                    while (s1 != null && ignoreLinesPattern.matcher(s1).matches()) {
-                        section.getMessageWriter().println("Ignoring line: " + s1);
-                        s1 = actualReader.readLine();
-                    }
-                }
-                String s2 = refReader.readLine();
-                lineNum++;
-
-                if ((s1 == null) && (s2 == null))
-                    return 0;
-                if ((s1 == null) || (s2 == null) || !s1.equals(s2)) {
-                    return lineNum;
-                }
-            }
-        } catch (IOException e) {
-            Path refFile = script.absTestSrcDir().resolve(ref);
-            throw new TestRunException(COMPILE_GOLD_READ_PROB + refFile);
-        }
-    } // compareGoldenFile()
-
     private void addModule(String file) {
         int sep = file.indexOf('/');
         if (sep > 0)
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.exec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the output of an action against a reference ("golden") file, line by line.
+ *
+ * Lines in the output that match an optional pattern are ignored.
+ * If a difference is found, a unified diff of the region around the first
+ * difference is written to a given writer. The size of the diff is bounded:
+ * only a limited number of lines following the first difference are read
+ * from each side and included in the diff.
+ *
+ * The comparator reads both sides through readers, and stops reading at the
+ * end of the diff region. Note that the output of an action is held in memory
+ * by the test result, and so the memory used when comparing the output still
+ * depends on the size of the output.
+ */
+class GoldenFileComparator {
+    /**
+     * The number of unchanged lines shown before and after each change in the diff.
+     */
+    static final int CONTEXT = 3;
+
+    /**
+     * The maximum number of lines read from each side, from the first difference,
+     * to be compared for the diff.
+     */
+    static final int MAX_DIFF_LINES = 200;
+
+    private final Pattern ignoreLinesPattern;
+    private final Consumer<String> ignoredLineHandler;
+
+    /**
+     * Creates a comparator.
+     *
+     * @param ignoreLinesPattern a pattern for lines in the output to be ignored, or {@code null}
+     * @param ignoredLineHandler a handler to be called for each line that is ignored
+     */
+    GoldenFileComparator(Pattern ignoreLinesPattern, Consumer<String> ignoredLineHandler) {
+        this.ignoreLinesPattern = ignoreLinesPattern;
+        this.ignoredLineHandler = ignoredLineHandler;
+    }
+
+    /**
+     * Compares the output of an action with the content of a reference file.
+     * If any differences are found, a unified diff is written to {@code diffOut}.
+     *
+     * @param refReader    the reader for the reference (expected) content
+     * @param actualReader the reader for the output actually found
+     * @param refName      the name for the reference content, used in the diff
+     * @param actualName   the name for the actual output, used in the diff
+     * @param diffOut      the writer for the diff
+     * @return the line number where differences were first detected,
+     *         or 0 if no differences were detected
+     * @throws IOException if an error occurs while reading either content
+     */
+    int compare(BufferedReader refReader, BufferedReader actualReader,
+                String refName, String actualName, PrintWriter diffOut) throws IOException {
+        Deque<String> context = new ArrayDeque<>(CONTEXT);
+        int lineNum = 0;
+        for ( ; ; ) {
+            String s1 = readActualLine(actualReader);
+            String s2 = refReader.readLine();
+            lineNum++;
+
+            if ((s1 == null) && (s2 == null))
+                return 0;
+            if ((s1 == null) || (s2 == null) || !s1.equals(s2)) {
+                List<String> ref = new ArrayList<>(context);
+                List<String> actual = new ArrayList<>(context);
+                boolean refTruncated = readDiffLines(s2, () -> refReader.readLine(), ref);
+                boolean actualTruncated = readDiffLines(s1, () -> readActualLine(actualReader), actual);
+                diffOut.println("--- " + refName);
+                diffOut.println("+++ " + actualName);
+                writeDiff(ref, actual, lineNum - context.size(), diffOut);
+                if (refTruncated || actualTruncated) {
+                    diffOut.println("... (comparison stopped after " + MAX_DIFF_LINES
+                            + " lines following the first difference)");
+                }
+                return lineNum;
+            }
+
+            if (context.size() == CONTEXT) {
+                context.removeFirst();
+            }
+            context.addLast(s1);
+        }
+    }
+
+    private String readActualLine(BufferedReader r) throws IOException {
+        String s = r.readLine();
+        if (ignoreLinesPattern != null) {
+            while (s != null && ignoreLinesPattern.matcher(s).matches()) {
+                ignoredLineHandler.accept(s);
+                s = r.readLine();
+            }
+        }
+        return s;
+    }
+
+    private interface LineSource {
+        String readLine() throws IOException;
+    }
+
+    /**
+     * Reads lines to be compared for the diff into a list, starting with the
+     * given first line.
+     *
+     * @return {@code true} if the content was truncated, and {@code false} if
+     *      all the remaining lines were read
+     */
+    private static boolean readDiffLines(String first, LineSource src, List<String> lines) throws IOException {
+        if (first == null) {
+            return false;
+        }
+        lines.add(first);
+        for (int i = 1; i < MAX_DIFF_LINES; i++) {
+            String s = src.readLine();
+            if (s == null) {
+                return false;
+            }
+            lines.add(s);
+        }
+        return (src.readLine() != null);
+    }
+
+    /**
+     * Writes the hunks of a unified diff for two lists of lines, computed from
+     * their longest common subsequence.
+     *
+     * @param a        the reference lines
+     * @param b        the actual lines
+     * @param baseLine the line number of the first line in each list
+     * @param out      the writer for the diff
+     */
+    private static void writeDiff(List<String> a, List<String> b, int baseLine, PrintWriter out) {
+        int n = a.size();
+        int m = b.size();
+        // lcs[i][j] is the length of the longest common subsequence of a[i..] and b[j..]
+        int[][] lcs = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                lcs[i][j] = a.get(i).equals(b.get(j))
+                        ? lcs[i + 1][j + 1] + 1
+                        : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+
+        // the edit script: ' ' for a common line, '-' for a line only in a, '+' for a line only in b
+        List<Edit> edits = new ArrayList<>();
+        int i = 0, j = 0;
+        while (i < n || j < m) {
+            if (i < n && j < m && a.get(i).equals(b.get(j))) {
+                edits.add(new Edit(' ', i++, j++));
+            } else if (i < n && (j == m || lcs[i + 1][j] >= lcs[i][j + 1])) {
+                edits.add(new Edit('-', i++, j));
+            } else {
+                edits.add(new Edit('+', i, j++));
+            }
+        }
+
+        // group the changes into hunks, with up to CONTEXT common lines around each change
+        int k = 0;
+        while (k < edits.size()) {
+            while (k < edits.size() && edits.get(k).op == ' ') {
+                k++;
+            }
+            if (k == edits.size()) {
+                break;
+            }
+            int start = Math.max(0, k - CONTEXT);
+            int end = k;
+            int common = 0;
+            while (end < edits.size() && common <= 2 * CONTEXT) {
+                common = (edits.get(end).op == ' ') ? common + 1 : 0;
+                end++;
+            }
+            end -= Math.max(0, common - CONTEXT);
+
+            List<Edit> hunk = edits.subList(start, end);
+            Edit first = hunk.get(0);
+            int aLen = 0, bLen = 0;
+            for (Edit e : hunk) {
+                if (e.op != '+') aLen++;
+                if (e.op != '-') bLen++;
+            }
+            out.println("@@ -" + range(baseLine + first.aIndex, aLen)
+                    + " +" + range(baseLine + first.bIndex, bLen) + " @@");
+            for (Edit e : hunk) {
+                out.println(e.op + (e.op == '+' ? b.get(e.bIndex) : a.get(e.aIndex)));
+            }
+            k = end;
+        }
+    }
+
+    private static String range(int start, int length) {
+        // by convention, an empty range is identified by the line before it
+        return (length == 1) ? String.valueOf(start)
+                : (length == 0) ? (start - 1) + ",0"
+                : start + "," + length;
+    }
+
+    private static class Edit {
+        final char op;
+        final int aIndex;
+        final int bIndex;
+
+        Edit(char op, int aIndex, int bIndex) {
+            this.op = op;
+            this.aIndex = aIndex;
+            this.bIndex = bIndex;
+        }
+    }
+
+    /**
+     * Returns a reader that reads the content of a series of readers in turn,
+     * as if they had been concatenated.
+     * This avoids making a combined copy of the sections of output of an action
+     * when they are compared with a reference file.
+     * Each reader is closed when all its content has been read, or when the
+     * returned reader is closed.
+     *
+     * @param readers the readers
+     * @return the reader
+     */
+    static Reader concat(Reader... readers) {
+        Iterator<Reader> iter = Arrays.asList(readers).iterator();
+        return new Reader() {
+            private Reader current = iter.hasNext() ? iter.next() : null;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                while (current != null) {
+                    int n = current.read(cbuf, off, len);
+                    if (n > 0) {
+                        return n;
+                    }
+                    if (n == -1) {
+                        current.close();
+                        current = iter.hasNext() ? iter.next() : null;
+                    }
+                }
+                return -1;
+            }
+
+            @Override
+            public void close() throws IOException {
+                while (current != null) {
+                    current.close();
+                    current = iter.hasNext() ? iter.next() : null;
+                }
+            }
+        };
+    }
+}
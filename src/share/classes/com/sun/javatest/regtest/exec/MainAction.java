@@ -521,6 +521,7 @@ public class MainAction extends Action
             // RUN THE MAIN WRAPPER CLASS
             ProcessCommand cmd = new ProcessCommand();
             cmd.setMessageWriter(section.getMessageWriter());
+            cmd.setResourceUsage(script.getProcessResourceUsage());
             cmd.setExecDir(script.absTestScratchDir().toFile());
 
             // Set the exit codes and their associated strings.  Note that we
@@ -602,6 +603,19 @@ public class MainAction extends Action
                 : new SearchPath(classpath).retainAll(stdLibs);     // old behavior
         SearchPath runClasspath = new SearchPath(classpath).removeAll(stdLibs);
 
+        // The entries for libraries, which may be loaded by a class loader
+        // that is shared with other actions, if supported by the agent.
+        List<Path> libs = new ArrayList<>();
+        for (LibLocn libLocn : script.locations.getLibs()) {
+            if (libLocn.kind == LibLocn.Kind.PACKAGE) {
+                libs.add(libLocn.absClsDir);
+                libs.add(libLocn.absSrcDir);
+            }
+        }
+        libs.addAll(script.locations.absLibSrcJarList());
+        libs.removeAll(List.of(script.locations.absTestClsDir(), script.locations.absTestSrcDir()));
+        SearchPath runLibraryClasspath = new SearchPath(runClasspath).retainAll(libs);
+
         SearchPath runModulePath = paths.get(PathKind.MODULEPATH);
 
         if (showMode)
@@ -713,12 +727,14 @@ public class MainAction extends Action
                     runAddOpens,
                     runAddMods,
                     runClasspath,
+                    runLibraryClasspath,
                     runModulePath != null ? runModulePath : new SearchPath(),
                     runMainClass,
                     runMainArgs,
                     timeout,
                     timeoutHandler,
-                    section);
+                    section,
+                    script.getResourceUsage());
         } catch (Agent.ActionTimeout te) {
             String msg = "\"" + getName() + "\" action timed out with a timeout of "
                     + timeout + " seconds on agent " + agent.id;
@@ -39,7 +39,7 @@ import java.util.concurrent.TimeUnit;
 import com.sun.javatest.Status;
 import com.sun.javatest.regtest.TimeoutHandler;
 import com.sun.javatest.regtest.agent.Alarm;
-import com.sun.javatest.regtest.util.StreamCopier;
+import com.sun.javatest.regtest.util.StreamPump;
 
 /**
  * A helper class to execute an arbitrary OS command.
@@ -220,6 +220,11 @@ public class ProcessCommand
         return this;
     }
 
+    ProcessCommand setResourceUsage(ResourceUsage resourceUsage) {
+        this.resourceUsage = resourceUsage;
+        return this;
+    }
+
     /**
      * Execute the command.
      * @return The result of the method is obtained by calling
@@ -247,6 +252,7 @@ public class ProcessCommand
                 final long pid = process.pid();
                 log.println("Process id: " + pid);
             }
+            ResourceUsage.Sampler sampler = (resourceUsage == null) ? null : resourceUsage.monitor(process);
             InputStream processIn = process.getInputStream();
             InputStream processErr = process.getErrorStream();
 
@@ -270,13 +276,15 @@ public class ProcessCommand
             Status status = null;
             try {
                 StatusScanner statusScanner = new StatusScanner();
-                StreamCopier outCopier = new StreamCopier(processIn, out);
-                StreamCopier errCopier = new StreamCopier(processErr, err, statusScanner);
-                outCopier.start();
-                errCopier.start();
+                StreamPump.Transfer outCopier = StreamPump.copy(processIn, out);
+                StreamPump.Transfer errCopier = StreamPump.copy(processErr, err, statusScanner);
 
                 outCopier.join();
                 errCopier.join();
+                if (sampler != null) {
+                    // take the final sample before the process is reaped
+                    sampler.stop();
+                }
                 int exitCode = process.waitFor();
 
                 // if the timeout hasn't fired, cancel it as quickly as possible
@@ -291,6 +299,9 @@ public class ProcessCommand
                 processIn.close();
                 processErr.close();
                 alarm.cancel();
+                if (sampler != null) {
+                    sampler.stop();
+                }
 
                 // if the timeout has fired - wait for the timeout handler to finish
                 if (alarm.didFire()) {
@@ -358,7 +369,7 @@ public class ProcessCommand
          return done;
     }
 
-    private static class StatusScanner implements StreamCopier.LineScanner {
+    private static class StatusScanner implements StreamPump.LineScanner {
 
         private String lastStatusLine;
 
@@ -436,5 +447,6 @@ public class ProcessCommand
     private long timeout;
     private TimeoutHandler timeoutHandler;
     private PrintWriter log;
+    private ResourceUsage resourceUsage;
 }
 
@@ -74,6 +74,7 @@ import com.sun.javatest.regtest.config.ParseException;
 import com.sun.javatest.regtest.config.RegressionEnvironment;
 import com.sun.javatest.regtest.config.RegressionParameters;
 import com.sun.javatest.regtest.config.RegressionTestSuite;
+import com.sun.javatest.regtest.config.TestInputs;
 import com.sun.javatest.regtest.config.TestProperties;
 import com.sun.javatest.regtest.report.SummaryReporter;
 import com.sun.javatest.regtest.report.Verbose;
@@ -150,6 +151,9 @@ public class RegressionScript extends Script {
         defaultModules = params.getTestJDK().getDefaultModules(params, msgPW::println);
         systemModules = params.getTestJDK().getSystemModules(params, msgPW::println);
 
+        Set<Path> inputFiles = null;
+        Set<Path> inputDirs = null;
+
         try {
             int maxOutputSize = testSuite.getMaxOutputSize(td);
             if (maxOutputSize > 0) {
@@ -177,6 +181,9 @@ public class RegressionScript extends Script {
 
             LinkedList<Action> actionList = parseActions(actions, true);
 
+            inputFiles = getInputFiles(actionList);
+            inputDirs = getInputDirectories();
+
             needJUnit = false;
             needTestNG = false;
 
@@ -263,11 +270,24 @@ public class RegressionScript extends Script {
                     }
                 }
 
-                while (!actionList.isEmpty()) {
-                    Action action = actionList.remove();
-                    status = action.run();
-                    if (status.getType() != Status.PASSED)
-                        break;
+                ResourceScheduler scheduler = ResourceScheduler.get(params);
+                if (scheduler != null) {
+                    File file = td.getFile();
+                    ResourceScheduler.Cost cost = scheduler.getCost(td.getRootRelativeURL(),
+                            properties.getResourceCores(file), properties.getResourceMemory(file));
+                    ResourceScheduler.Ticket ticket = scheduler.acquire(cost);
+                    msgPW.println("Resources: " + cost + "; waited " + ticket.getWaitMillis() + " ms");
+                    testResult.putProperty("resourceWait", String.valueOf(ticket.getWaitMillis()));
+                    long admitted = System.currentTimeMillis();
+                    try {
+                        status = runActions(actionList);
+                    } finally {
+                        scheduler.release(ticket);
+                        scheduler.record(td.getRootRelativeURL(),
+                                System.currentTimeMillis() - admitted, resourceUsage);
+                    }
+                } else {
+                    status = runActions(actionList);
                 }
             }
         } catch (InterruptedException e) {
@@ -303,6 +323,10 @@ public class RegressionScript extends Script {
             int hours = elapsed / (1000 * 60 * 60);
             testResult.putProperty("elapsed", String.format("%d %d:%02d:%02d.%03d",
                     elapsed, hours, mins, secs, millis));
+            resourceUsage.putProperties(testResult);
+            if (inputFiles != null) {
+                TestInputs.get(params).record(td.getRootRelativeURL(), inputFiles, inputDirs);
+            }
             if (scratchDirectory != null && params.isRetainEnabled()) {
                 String errmsg = null;
                 try {
@@ -339,6 +363,63 @@ public class RegressionScript extends Script {
         }
     }
 
+    /**
+     * Returns the files used by a test: the source files used by its actions,
+     * any precompiled library jar files, and the TEST.ROOT and TEST.properties
+     * files that apply to the test.
+     */
+    private Set<Path> getInputFiles(List<Action> actionList) {
+        Set<Path> files = new TreeSet<>();
+        files.add(td.getFile().toPath());
+        for (Action action : actionList) {
+            Set<File> a = action.getSourceFiles();
+            if (a != null) {
+                for (File f : a) {
+                    files.add(f.toPath());
+                }
+            }
+        }
+        for (LibLocn lib : locations.getLibs()) {
+            if (Files.isRegularFile(lib.absClsDir)) {
+                files.add(lib.absClsDir);
+            }
+        }
+        Path rootDir = getTestRootDir().toPath().toAbsolutePath().normalize();
+        Path dir = td.getFile().toPath().toAbsolutePath().normalize().getParent();
+        while (dir != null && dir.startsWith(rootDir)) {
+            Path p = dir.resolve(dir.equals(rootDir) ? "TEST.ROOT" : "TEST.properties");
+            if (Files.exists(p)) {
+                files.add(p);
+            }
+            dir = dir.getParent();
+        }
+        return files;
+    }
+
+    /**
+     * Returns the source directories of the libraries used by a test.
+     */
+    private Set<Path> getInputDirectories() {
+        Set<Path> dirs = new TreeSet<>();
+        for (LibLocn lib : locations.getLibs()) {
+            if (lib.absSrcDir != null) {
+                dirs.add(lib.absSrcDir);
+            }
+        }
+        return dirs;
+    }
+
+    private Status runActions(LinkedList<Action> actionList) throws TestRunException {
+        Status status = passed("OK");
+        while (!actionList.isEmpty()) {
+            Action action = actionList.remove();
+            status = action.run();
+            if (status.getType() != Status.PASSED)
+                break;
+        }
+        return status;
+    }
+
     /**
      * Get the set of source files used by the actions in a test description.
      * @param p  The parameters providing the necessary context
@@ -705,6 +786,32 @@ public class RegressionScript extends Script {
         return params.getIgnoreKind();
     }
 
+    /**
+     * The resources used by the actions of the test.
+     */
+    ResourceUsage getResourceUsage() {
+        return resourceUsage;
+    }
+
+    /**
+     * The resources used by the actions of the test, to which to add the
+     * resources used by processes started by the actions, or {@code null}
+     * if the resources used by processes should not be sampled.
+     * Sampling requires periodically examining all the processes on the
+     * system, and so is only done when the values are needed.
+     */
+    ResourceUsage getProcessResourceUsage() {
+        return params.isSampleProcessResources() || params.getResourceBudgetCores() > 0
+                ? resourceUsage : null;
+    }
+
+    /**
+     * Location of the shared cache of compiled library classes.
+     */
+    Path getBuildCacheDirectory() {
+        return params.getBuildCacheDirectory();
+    }
+
     /**
      * Path to native components.
      */
@@ -770,9 +877,16 @@ public class RegressionScript extends Script {
         return locations.absBaseClsDir();
     } // absTestClsTopDir()
 
+    Path absSharedLibClsDir() {
+        return locations.absSharedLibClsDir();
+    }
+
     private boolean useBootClassPath(Path classdir) throws TestClassException {
         try {
-            String rel = locations.absBaseClsDir().toUri().relativize(classdir.toFile().toURI()).getPath();
+            Path base = classdir.startsWith(locations.absSharedLibClsDir())
+                    ? locations.absSharedLibClsDir()
+                    : locations.absBaseClsDir();
+            String rel = base.toUri().relativize(classdir.toFile().toURI()).getPath();
             return testSuite.useBootClassPath(rel);
         } catch (TestSuite.Fault f) {
             throw new TestClassException(f.toString());
@@ -1223,18 +1337,7 @@ public class RegressionScript extends Script {
      */
     Agent getAgent(JDK jdk, SearchPath classpath, List<String> testVMOpts,
                    String testThreadFactory, String testThreadFactoryPath) throws Agent.Fault {
-        JDKOpts vmOpts = new JDKOpts();
-        vmOpts.addAll("-classpath", classpath.toString());
-        vmOpts.addAll(testVMOpts);
-
-        if (testThreadFactory != null) {
-            // Add property to differ agents with and without MainWrapper
-            vmOpts.add("-D" + MainWrapper.TEST_THREAD_FACTORY + "=" + testThreadFactory);
-        }
-
-        if (params.getTestJDK().hasModules()) {
-            vmOpts.addAllPatchModules(new SearchPath(params.getWorkDirectory().getFile("patches").toPath()));
-        }
+        JDKOpts vmOpts = getAgentVMOpts(classpath, testVMOpts, testThreadFactory);
 
         /*
          * A script only uses one agent at a time, and only one, maybe two,
@@ -1248,6 +1351,64 @@ public class RegressionScript extends Script {
             }
         }
 
+        Agent.Pool p = Agent.Pool.instance(params);
+        Agent agent = p.getAgent(absTestScratchDir().toFile(), jdk, vmOpts.toList(), getAgentEnvVars(jdk),
+                testThreadFactory, testThreadFactoryPath);
+        agents.add(agent);
+        return agent;
+    }
+
+    /*
+     * Returns whether shared agents may be used for actions that are known to be
+     * safe to execute concurrently with other such actions in the same VM.
+     */
+    boolean useSharedAgents() {
+        return Agent.Pool.instance(params).useSharedAgents();
+    }
+
+    /*
+     * Get a slot on a shared agent, for an action that is known to be safe to
+     * execute concurrently with other such actions in the same VM.
+     * Shared agents are not specific to any test, and so use a common execution
+     * directory instead of the scratch directory for the test.
+     * The slot must be released with releaseSharedAgent when the action is complete.
+     */
+    Agent getSharedAgent(JDK jdk, SearchPath classpath, List<String> testVMOpts) throws Agent.Fault {
+        JDKOpts vmOpts = getAgentVMOpts(classpath, testVMOpts, null);
+        File dir = params.getWorkDirectory().getFile("sharedScratch");
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new Agent.Fault(new IOException("cannot create directory " + dir));
+        }
+        Agent.Pool p = Agent.Pool.instance(params);
+        return p.getSharedAgent(dir, jdk, vmOpts.toList(), getAgentEnvVars(jdk));
+    }
+
+    /*
+     * Release a slot on a shared agent. If the agent should not be reused,
+     * such as when an error has occurred while using it, it will be closed
+     * when all other actions using it have completed.
+     */
+    void releaseSharedAgent(Agent agent, boolean reusable) {
+        Agent.Pool.instance(params).releaseSharedAgent(agent, reusable);
+    }
+
+    private JDKOpts getAgentVMOpts(SearchPath classpath, List<String> testVMOpts, String testThreadFactory) {
+        JDKOpts vmOpts = new JDKOpts();
+        vmOpts.addAll("-classpath", classpath.toString());
+        vmOpts.addAll(testVMOpts);
+
+        if (testThreadFactory != null) {
+            // Add property to differ agents with and without MainWrapper
+            vmOpts.add("-D" + MainWrapper.TEST_THREAD_FACTORY + "=" + testThreadFactory);
+        }
+
+        if (params.getTestJDK().hasModules()) {
+            vmOpts.addAllPatchModules(new SearchPath(params.getWorkDirectory().getFile("patches").toPath()));
+        }
+        return vmOpts;
+    }
+
+    private Map<String, String> getAgentEnvVars(JDK jdk) {
         Map<String, String> envVars = new HashMap<>(getEnvVars());
         // some tests are inappropriately relying on the CLASSPATH environment
         // variable being set, so ensure it is set. See equivalent code in MainAction
@@ -1255,12 +1416,7 @@ public class RegressionScript extends Script {
         // for othervm, because we should not include test-specific info
         SearchPath cp = new SearchPath().append(jdk.getJDKClassPath()).append(getJavaTestClassPath());
         envVars.put("CLASSPATH", cp.toString());
-
-        Agent.Pool p = Agent.Pool.instance(params);
-        Agent agent = p.getAgent(absTestScratchDir().toFile(), jdk, vmOpts.toList(), envVars,
-                testThreadFactory, testThreadFactoryPath);
-        agents.add(agent);
-        return agent;
+        return envVars;
     }
 
     /**
@@ -1361,6 +1517,7 @@ public class RegressionScript extends Script {
 
     private RegressionEnvironment regEnv;
     private RegressionParameters params;
+    private final ResourceUsage resourceUsage = new ResourceUsage();
     private RegressionTestSuite testSuite;
     private PrintWriter msgPW;
     Set<String> defaultModules;
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.exec;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import com.sun.javatest.regtest.config.RegressionParameters;
+
+/**
+ * Schedules tests according to the resources they are expected to use,
+ * so that the tests that are running at any one time fit within a budget
+ * of processor cores and memory.
+ *
+ * The expected cost of a test is given by the {@code resources.cores} and
+ * {@code resources.memory} properties in TEST.ROOT or TEST.properties files,
+ * or is learned from the resources that were used by the test in previous
+ * runs, as recorded in a file in the work directory.
+ * Tests for which no cost is known are assumed to use one core and
+ * a proportionate share of the memory.
+ *
+ * The harness determines how many tests may be in progress at once,
+ * with the {@code -concurrency} option; the scheduler further limits
+ * which of those tests may execute their actions. Tests are admitted
+ * in the order in which they arrive, so that a test with a high cost
+ * is not starved by tests with a lower cost. A test is always admitted
+ * if no other tests are running, even if its cost exceeds the budget.
+ */
+public class ResourceScheduler {
+
+    static Map<RegressionParameters, ResourceScheduler> schedulers = new WeakHashMap<>();
+
+    /**
+     * Returns the scheduler for a set of parameters, or {@code null}
+     * if tests should not be scheduled according to a resource budget.
+     *
+     * @param params the parameters
+     * @return the scheduler
+     */
+    public static synchronized ResourceScheduler get(RegressionParameters params) {
+        if (params.getResourceBudgetCores() <= 0) {
+            return null;
+        }
+        ResourceScheduler s = schedulers.get(params);
+        if (s == null) {
+            Path history = params.getWorkDirectory().getSystemFile(HISTORY_FILE).toPath();
+            s = new ResourceScheduler(params.getResourceBudgetCores(),
+                    params.getResourceBudgetMemory(), history);
+            schedulers.put(params, s);
+        }
+        return s;
+    }
+
+    /**
+     * Saves the costs that were learned while running tests, if tests
+     * were scheduled according to a resource budget.
+     *
+     * @param params the parameters
+     * @throws IOException if an error occurs while saving the costs
+     */
+    public static synchronized void close(RegressionParameters params) throws IOException {
+        ResourceScheduler s = schedulers.remove(params);
+        if (s != null) {
+            s.saveHistory();
+        }
+    }
+
+    /**
+     * The name of the file in the work directory in which to record the
+     * resources used by tests.
+     */
+    private static final String HISTORY_FILE = "resources.history";
+
+    /**
+     * The expected cost of running a test.
+     */
+    public static class Cost {
+        public final int cores;
+        public final long memory;
+        final String source;
+
+        Cost(int cores, long memory, String source) {
+            this.cores = cores;
+            this.memory = memory;
+            this.source = source;
+        }
+
+        @Override
+        public String toString() {
+            return "cores: " + cores + ", memory: " + memory + " MB (" + source + ")";
+        }
+    }
+
+    /**
+     * A test that has been admitted by the scheduler, and that must be
+     * released when the test has completed.
+     */
+    public class Ticket {
+        private final Cost cost;
+        private long waitMillis;
+
+        Ticket(Cost cost) {
+            this.cost = cost;
+        }
+
+        public long getWaitMillis() {
+            return waitMillis;
+        }
+    }
+
+    private final int budgetCores;
+    private final long budgetMemory;
+    private final Path historyFile;
+    private Map<String, Cost> history;
+    private boolean historyChanged;
+
+    private final Deque<Ticket> queue = new ArrayDeque<>();
+    private int running;
+    private int usedCores;
+    private long usedMemory;
+
+    ResourceScheduler(int budgetCores, long budgetMemory, Path historyFile) {
+        this.budgetCores = budgetCores;
+        this.budgetMemory = budgetMemory;
+        this.historyFile = historyFile;
+    }
+
+    /**
+     * Returns the expected cost of running a test.
+     * Declared values take precedence over values learned from previous runs.
+     *
+     * @param testName the name of the test
+     * @param declaredCores the declared number of cores, or -1 if not declared
+     * @param declaredMemory the declared amount of memory, in megabytes, or -1 if not declared
+     * @return the cost
+     */
+    public synchronized Cost getCost(String testName, int declaredCores, int declaredMemory) {
+        Cost learned = getHistory().get(testName);
+        int cores;
+        long memory;
+        String source;
+        if (declaredCores > 0 || declaredMemory > 0) {
+            source = "declared";
+        } else if (learned != null) {
+            source = "learned";
+        } else {
+            source = "default";
+        }
+
+        if (declaredCores > 0) {
+            cores = declaredCores;
+        } else if (learned != null) {
+            cores = learned.cores;
+        } else {
+            cores = 1;
+        }
+
+        if (declaredMemory > 0) {
+            memory = declaredMemory;
+        } else if (learned != null) {
+            memory = learned.memory;
+        } else {
+            memory = budgetMemory / budgetCores;
+        }
+
+        return new Cost(Math.min(cores, budgetCores), Math.min(memory, budgetMemory), source);
+    }
+
+    /**
+     * Waits until a test with a given cost can be run within the budget.
+     *
+     * @param cost the cost of the test
+     * @return a ticket to be passed to {@link #release} when the test completes
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized Ticket acquire(Cost cost) throws InterruptedException {
+        Ticket t = new Ticket(cost);
+        long start = System.currentTimeMillis();
+        queue.add(t);
+        try {
+            while (queue.peek() != t || !fits(cost)) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            queue.remove(t);
+            notifyAll();
+            throw e;
+        }
+        queue.remove();
+        running++;
+        usedCores += cost.cores;
+        usedMemory += cost.memory;
+        t.waitMillis = System.currentTimeMillis() - start;
+        // the next test in the queue may also fit
+        notifyAll();
+        return t;
+    }
+
+    private boolean fits(Cost cost) {
+        return running == 0
+                || (usedCores + cost.cores <= budgetCores && usedMemory + cost.memory <= budgetMemory);
+    }
+
+    /**
+     * Releases the resources used by a test that has completed.
+     *
+     * @param t the ticket returned when the test was admitted
+     */
+    public synchronized void release(Ticket t) {
+        running--;
+        usedCores -= t.cost.cores;
+        usedMemory -= t.cost.memory;
+        notifyAll();
+    }
+
+    /**
+     * Records the resources that were used by a test, for use in subsequent runs.
+     *
+     * @param testName the name of the test
+     * @param activeMillis the time for which the test was running, in milliseconds
+     * @param usage the resources that were used
+     */
+    synchronized void record(String testName, long activeMillis, ResourceUsage usage) {
+        long cpuTime = usage.getCpuTime();
+        long maxMemory = usage.getMaxMemory();
+        if (cpuTime < 0 || maxMemory < 0 || activeMillis <= 0) {
+            return;
+        }
+        int cores = (int) Math.max(1, Math.min(budgetCores, (cpuTime + activeMillis - 1) / activeMillis));
+        long memory = (maxMemory + 1023) / 1024;
+        getHistory().put(testName, new Cost(cores, memory, "learned"));
+        historyChanged = true;
+    }
+
+    private Map<String, Cost> getHistory() {
+        if (history == null) {
+            history = new TreeMap<>();
+            if (Files.exists(historyFile)) {
+                try (BufferedReader in = Files.newBufferedReader(historyFile, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        String[] fields = line.split("\t");
+                        if (fields.length != 3) {
+                            continue;
+                        }
+                        try {
+                            history.put(fields[0], new Cost(Integer.parseInt(fields[1]),
+                                    Long.parseLong(fields[2]), "learned"));
+                        } catch (NumberFormatException e) {
+                            // ignore malformed entries
+                        }
+                    }
+                } catch (IOException e) {
+                    // ignore: the history is just a hint, and will be rewritten
+                }
+            }
+        }
+        return history;
+    }
+
+    private synchronized void saveHistory() throws IOException {
+        if (!historyChanged) {
+            return;
+        }
+        Path tmp = historyFile.resolveSibling(historyFile.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Cost> e : history.entrySet()) {
+                out.write(e.getKey() + "\t" + e.getValue().cores + "\t" + e.getValue().memory);
+                out.newLine();
+            }
+        }
+        Files.move(tmp, historyFile, StandardCopyOption.REPLACE_EXISTING);
+        historyChanged = false;
+    }
+}
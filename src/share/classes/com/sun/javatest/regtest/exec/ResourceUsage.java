@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.exec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.javatest.TestResult;
+import com.sun.javatest.regtest.agent.ResourceMonitor;
+
+/**
+ * The resources used by the actions of a test.
+ *
+ * For actions executed in an agent, the values are measured by the agent
+ * and reported with the status of the action.
+ * For actions executed in a separate process, the process and its descendants
+ * are sampled periodically while the process is running: CPU time is obtained
+ * from {@link ProcessHandle.Info}, and, where available, the resident set size
+ * and number of threads are obtained from {@code /proc}.
+ * A final sample is taken when the process completes.
+ * Because of the sampling, the values for short-lived processes are approximate.
+ * Processes are only sampled if requested with {@code -sampleProcessResources},
+ * or if the values are needed to schedule tests with {@code -resourceBudget}.
+ *
+ * The values are recorded as properties in the test result, using the names
+ * defined in {@link ResourceMonitor}.
+ */
+class ResourceUsage {
+    private long cpuTime = -1;
+    private long maxRSS = -1;
+    private long maxHeap = -1;
+    private long gcCount = -1;
+    private long gcTime = -1;
+    private long maxThreads = -1;
+
+    /**
+     * Adds the resources used by an action executed in an agent.
+     *
+     * @param values the values, as reported by the agent
+     */
+    synchronized void add(Map<String, String> values) {
+        for (Map.Entry<String, String> e : values.entrySet()) {
+            long v;
+            try {
+                v = Long.parseLong(e.getValue());
+            } catch (NumberFormatException ex) {
+                continue;
+            }
+            switch (e.getKey()) {
+                case ResourceMonitor.CPU_TIME:
+                    cpuTime = sum(cpuTime, v);
+                    break;
+                case ResourceMonitor.MAX_RSS:
+                    maxRSS = Math.max(maxRSS, v);
+                    break;
+                case ResourceMonitor.MAX_HEAP:
+                    maxHeap = Math.max(maxHeap, v);
+                    break;
+                case ResourceMonitor.GC_COUNT:
+                    gcCount = sum(gcCount, v);
+                    break;
+                case ResourceMonitor.GC_TIME:
+                    gcTime = sum(gcTime, v);
+                    break;
+                case ResourceMonitor.MAX_THREADS:
+                    maxThreads = Math.max(maxThreads, v);
+                    break;
+            }
+        }
+    }
+
+    private synchronized void addProcess(long cpuTime, long maxRSS, long maxThreads) {
+        if (cpuTime >= 0) {
+            this.cpuTime = sum(this.cpuTime, cpuTime);
+        }
+        this.maxRSS = Math.max(this.maxRSS, maxRSS);
+        this.maxThreads = Math.max(this.maxThreads, maxThreads);
+    }
+
+    private static long sum(long a, long b) {
+        return (a < 0) ? b : a + b;
+    }
+
+    /**
+     * Returns the CPU time used, in milliseconds, or -1 if not known.
+     *
+     * @return the CPU time
+     */
+    synchronized long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * Returns the peak amount of memory used, in kilobytes, or -1 if not known.
+     * This is the larger of the peak resident set size and peak heap usage.
+     *
+     * @return the amount of memory
+     */
+    synchronized long getMaxMemory() {
+        return Math.max(maxRSS, maxHeap);
+    }
+
+    /**
+     * Records the resources that were used as properties in a test result.
+     * Values that were not measured are not recorded.
+     *
+     * @param tr the test result
+     */
+    synchronized void putProperties(TestResult tr) {
+        put(tr, ResourceMonitor.CPU_TIME, cpuTime);
+        put(tr, ResourceMonitor.MAX_RSS, maxRSS);
+        put(tr, ResourceMonitor.MAX_HEAP, maxHeap);
+        put(tr, ResourceMonitor.GC_COUNT, gcCount);
+        put(tr, ResourceMonitor.GC_TIME, gcTime);
+        put(tr, ResourceMonitor.MAX_THREADS, maxThreads);
+    }
+
+    private static void put(TestResult tr, String name, long value) {
+        if (value >= 0) {
+            tr.putProperty(name, String.valueOf(value));
+        }
+    }
+
+    /**
+     * Starts sampling the resources used by a process and its descendants.
+     * The values are added to this object when sampling is stopped.
+     *
+     * @param p the process
+     * @return the sampler
+     */
+    Sampler monitor(Process p) {
+        Sampler s = new Sampler(p.toHandle());
+        // a process that has only just been started will not yet have any children
+        s.sample(Collections.emptyMap());
+        samplers.add(s);
+        startSampling();
+        return s;
+    }
+
+    /**
+     * Samples the resources used by a process and its descendants.
+     */
+    class Sampler {
+        private final ProcessHandle root;
+        private final Map<Long, Long> cpuTimes = new HashMap<>();
+        private long maxRSS = -1;
+        private long maxThreads = -1;
+
+        Sampler(ProcessHandle root) {
+            this.root = root;
+        }
+
+        /**
+         * Takes a final sample, stops sampling, and adds the values to the
+         * enclosing object. This should be called as soon as the process
+         * is known to be completing, while information about the process
+         * may still be available; subsequent calls have no effect.
+         */
+        void stop() {
+            if (!samplers.remove(this)) {
+                return;
+            }
+            try {
+                sample(getChildren());
+            } catch (RuntimeException e) {
+                // ignore: sampling is best-effort
+            }
+            long cpuTime;
+            long rss;
+            long threads;
+            synchronized (this) {
+                cpuTime = cpuTimes.isEmpty() ? -1
+                        : cpuTimes.values().stream().mapToLong(Long::longValue).sum();
+                rss = maxRSS;
+                threads = maxThreads;
+            }
+            addProcess(cpuTime, rss, threads);
+        }
+
+        synchronized void sample(Map<Long, List<ProcessHandle>> children) {
+            long rss = 0;
+            long threads = 0;
+            boolean haveStatus = false;
+            List<ProcessHandle> tree = new ArrayList<>();
+            tree.add(root);
+            for (int i = 0; i < tree.size(); i++) {
+                ProcessHandle ph = tree.get(i);
+                List<ProcessHandle> c = children.get(ph.pid());
+                if (c != null) {
+                    tree.addAll(c);
+                }
+                Optional<Duration> cpu = ph.info().totalCpuDuration();
+                if (cpu.isPresent()) {
+                    cpuTimes.merge(ph.pid(), cpu.get().toMillis(), Math::max);
+                }
+                long[] status = readProcStatus(ph.pid());
+                if (status != null) {
+                    rss += status[0];
+                    threads += status[1];
+                    haveStatus = true;
+                }
+            }
+            if (haveStatus) {
+                maxRSS = Math.max(maxRSS, rss);
+                maxThreads = Math.max(maxThreads, threads);
+            }
+        }
+    }
+
+    /**
+     * The interval between samples of the resources used by processes.
+     */
+    private static final long SAMPLE_INTERVAL_MILLIS = 250;
+
+    /**
+     * The samplers for all the processes that are currently running,
+     * which are all sampled by a single thread, so that the list of all
+     * processes only needs to be determined once for each sample.
+     */
+    private static final Set<Sampler> samplers = ConcurrentHashMap.newKeySet();
+
+    private static ScheduledExecutorService samplerService;
+
+    private static synchronized void startSampling() {
+        if (samplerService == null) {
+            samplerService = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "Resource sampler");
+                t.setDaemon(true);
+                return t;
+            });
+            samplerService.scheduleWithFixedDelay(ResourceUsage::sampleAll,
+                    SAMPLE_INTERVAL_MILLIS, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void sampleAll() {
+        if (samplers.isEmpty()) {
+            return;
+        }
+        try {
+            Map<Long, List<ProcessHandle>> children = getChildren();
+            for (Sampler s : samplers) {
+                s.sample(children);
+            }
+        } catch (RuntimeException e) {
+            // ignore: sampling is best-effort, and must not stop
+        }
+    }
+
+    /**
+     * Returns the children of each process, indexed by the pid of the parent.
+     */
+    private static Map<Long, List<ProcessHandle>> getChildren() {
+        Map<Long, List<ProcessHandle>> map = new HashMap<>();
+        ProcessHandle.allProcesses().forEach(ph -> ph.parent().ifPresent(parent ->
+                map.computeIfAbsent(parent.pid(), p -> new ArrayList<>()).add(ph)));
+        return map;
+    }
+
+    private static final Path PROC = Path.of("/proc");
+    private static final boolean HAVE_PROC = Files.isDirectory(PROC.resolve("self"));
+
+    /**
+     * Returns the resident set size, in kilobytes, and number of threads
+     * of a process, or {@code null} if the information is not available.
+     * The peak resident set size is used, as reported by {@code VmHWM}.
+     */
+    private static long[] readProcStatus(long pid) {
+        if (!HAVE_PROC) {
+            return null;
+        }
+        long[] result = { -1, -1 };
+        Path file = PROC.resolve(String.valueOf(pid)).resolve("status");
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("VmHWM:")) {
+                    result[0] = parseValue(line);
+                } else if (line.startsWith("Threads:")) {
+                    result[1] = parseValue(line);
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return (result[0] >= 0 && result[1] >= 0) ? result : null;
+    }
+
+    private static long parseValue(String line) {
+        String[] words = line.substring(line.indexOf(':') + 1).trim().split("\\s+");
+        try {
+            return Long.parseLong(words[0]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -28,8 +28,10 @@ package com.sun.javatest.regtest.exec;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
@@ -150,6 +152,12 @@ abstract class ScratchDirectory {
                     log.println("WARNING: dir " + dir + " already deleted.");
                 return;
             }
+            ScratchReaper reaper = (p == null) ? ScratchReaper.get(params) : null;
+            if (reaper != null) {
+                // move the files aside, to be deleted in the background;
+                // any files that could not be moved are deleted here
+                reaper.reap(dir.toPath(), log);
+            }
             deleteFilesWithRetry(dir, p, match, log);
         } catch (SecurityException e) {
             throw new Fault(SECMGR_EXC + dir, e);
@@ -425,12 +433,7 @@ abstract class ScratchDirectory {
             }
 
             File getDir(RegressionParameters params) {
-                String name = "scratch";
-                if (params.getConcurrency() > 1)
-                    name += File.separator + threadNum;
-                if (serial > 0)
-                    name += "_" + serial;
-                return params.getWorkDirectory().getFile(name);
+                return ThreadSafeScratchDir.getDir(params, threadNum, serial);
             }
 
             File getNextDir(RegressionParameters params) {
@@ -450,6 +453,33 @@ abstract class ScratchDirectory {
             super(params, td, threadInfo.get().getDir(params));
         }
 
+        /**
+         * Returns the initial scratch directories for the threads that will execute tests,
+         * assuming that threads are created as needed, up to the concurrency limit.
+         * This is intended to be used to predict the directories that may be used
+         * by agents in agentvm mode, before any test is executed in them.
+         *
+         * @param params the parameters for the test run
+         * @return the directories
+         */
+        static List<File> getThreadDirs(RegressionParameters params) {
+            int n = params.getConcurrency();
+            List<File> dirs = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                dirs.add(getDir(params, i, 0));
+            }
+            return dirs;
+        }
+
+        private static File getDir(RegressionParameters params, int threadNum, int serial) {
+            String name = "scratch";
+            if (params.getConcurrency() > 1)
+                name += File.separator + threadNum;
+            if (serial > 0)
+                name += "_" + serial;
+            return params.getWorkDirectory().getFile(name);
+        }
+
         @Override
         void init(PrintWriter log) throws Fault, InterruptedException {
             try {
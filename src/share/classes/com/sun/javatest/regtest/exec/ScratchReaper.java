@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.exec;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.javatest.regtest.config.RegressionParameters;
+
+/**
+ * Deletes the files left in scratch directories by tests in the background.
+ *
+ * The contents of a scratch directory are moved into a new directory in
+ * {@code scratch.trash} in the work directory, which is then deleted by a
+ * background thread, so that the scratch directory can be used by the next
+ * test straight away. The scratch directory itself is not moved, since it may
+ * be the current directory of an agent VM that will execute the next test.
+ *
+ * The number of directories waiting to be deleted is limited: if the background
+ * thread falls behind, {@link #reap} waits until it catches up.
+ */
+public class ScratchReaper {
+
+    static Map<RegressionParameters, ScratchReaper> reapers = new WeakHashMap<>();
+
+    /**
+     * Returns the reaper for a set of parameters, or {@code null}
+     * if the files in scratch directories should not be deleted in the background.
+     *
+     * @param params the parameters
+     * @return the reaper
+     */
+    static synchronized ScratchReaper get(RegressionParameters params) {
+        if (!params.isAsyncScratchCleanup()) {
+            return null;
+        }
+        ScratchReaper r = reapers.get(params);
+        if (r == null) {
+            Path trashDir = params.getWorkDirectory().getFile(TRASH_DIR).toPath();
+            r = new ScratchReaper(trashDir, Math.max(MIN_PENDING, 2 * params.getConcurrency()));
+            reapers.put(params, r);
+        }
+        return r;
+    }
+
+    /**
+     * Waits for the files that have been moved aside for a set of parameters
+     * to be deleted, and stops the background thread.
+     *
+     * @param params the parameters
+     */
+    public static synchronized void flush(RegressionParameters params) {
+        ScratchReaper r = reapers.remove(params);
+        if (r != null) {
+            r.close();
+        }
+    }
+
+    private static final String TRASH_DIR = "scratch.trash";
+    private static final int MIN_PENDING = 4;
+    private static final long MAX_FLUSH_MINUTES = 5;
+
+    private final Path trashDir;
+    private final Semaphore pending;
+    private final ExecutorService executor;
+
+    ScratchReaper(Path trashDir, int maxPending) {
+        this.trashDir = trashDir;
+        this.pending = new Semaphore(maxPending);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Scratch directory reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        // delete anything left behind by an earlier run
+        if (Files.isDirectory(trashDir)) {
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(trashDir)) {
+                for (Path p : ds) {
+                    executor.execute(() -> deleteTree(p));
+                }
+            } catch (IOException e) {
+                // ignore: the files will be deleted by a later run
+            }
+        }
+    }
+
+    /**
+     * Moves the contents of a directory aside, to be deleted in the background.
+     * Any files that cannot be moved, such as files that are still open on
+     * Windows, are left in the directory, to be deleted by the caller.
+     *
+     * @param dir the directory
+     * @param log a stream to which to write messages about any delay
+     * @throws InterruptedException if the method is interrupted while waiting
+     *      for the background thread to catch up
+     */
+    void reap(Path dir, PrintWriter log) throws InterruptedException {
+        if (!pending.tryAcquire()) {
+            log.println("Waiting for files left by earlier tests to be deleted");
+            pending.acquire();
+        }
+        boolean submitted = false;
+        try {
+            Path target = null;
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+                for (Path p : ds) {
+                    if (target == null) {
+                        Files.createDirectories(trashDir);
+                        target = Files.createTempDirectory(trashDir, "");
+                    }
+                    try {
+                        Files.move(p, target.resolve(p.getFileName()));
+                    } catch (IOException e) {
+                        // leave the file to be deleted by the caller
+                    }
+                }
+            }
+            if (target != null) {
+                Path t = target;
+                executor.execute(() -> {
+                    try {
+                        deleteTree(t);
+                    } finally {
+                        pending.release();
+                    }
+                });
+                submitted = true;
+            }
+        } catch (IOException e) {
+            // leave the files to be deleted by the caller
+        } finally {
+            if (!submitted) {
+                pending.release();
+            }
+        }
+    }
+
+    private void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(MAX_FLUSH_MINUTES, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            // the remaining files will be deleted by the next run, if any
+        }
+    }
+
+    /**
+     * Deletes a directory and its contents, as far as possible.
+     * Directories are made writable if necessary; files that cannot be
+     * deleted are left for the next run to try again.
+     *
+     * @param dir the directory
+     */
+    private static void deleteTree(Path dir) {
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) {
+                    if (!Files.isWritable(d)) {
+                        d.toFile().setWritable(true);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) {
+                    delete(f);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path f, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path d, IOException e) {
+                    delete(d);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            // ignore: any files that remain will be deleted by the next run
+        }
+    }
+
+    private static void delete(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException e) {
+            // ignore: any files that remain will be deleted by the next run
+        }
+    }
+}
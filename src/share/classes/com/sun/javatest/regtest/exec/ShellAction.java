@@ -300,6 +300,7 @@ public class ShellAction extends Action
                 // RUN THE SHELL SCRIPT
                 ProcessCommand cmd = new ProcessCommand()
                     .setMessageWriter(section.getMessageWriter())
+                    .setResourceUsage(script.getProcessResourceUsage())
                     .setExecDir(script.absTestScratchDir().toFile())
                     .setCommand(command)
                     .setEnvironment(env)
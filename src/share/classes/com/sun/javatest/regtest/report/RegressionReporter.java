@@ -66,6 +66,7 @@ public class RegressionReporter {
     }
 
     public void report(RegressionParameters params, ElapsedTimeHandler elapsedTimeHandler,
+                       ResourceUsageHandler resourceUsageHandler,
                        TestStats testStats, TestFilter filter, boolean quiet) {
         File rd = params.getReportDir().toFile();
         File wd = params.getWorkDirectory().getRoot();
@@ -109,6 +110,9 @@ public class RegressionReporter {
                 if (elapsedTimeHandler != null)
                     elapsedTimeHandler.report(r);
 
+                if (resourceUsageHandler != null)
+                    resourceUsageHandler.report(r);
+
                 if (testStats != null)
                     testStats.report(r);
 
@@ -129,6 +133,51 @@ public class RegressionReporter {
         }
     }
 
+    /**
+     * Completes a report whose text files have been written by a
+     * {@link StreamingReporter} while the tests were being run.
+     * Only the summary files and the index pages are written here;
+     * the results in the work directory are not read again.
+     */
+    public void report(RegressionParameters params, StreamingReporter streamingReporter,
+                       ElapsedTimeHandler elapsedTimeHandler,
+                       ResourceUsageHandler resourceUsageHandler,
+                       TestStats testStats, boolean quiet) {
+        File rd = params.getReportDir().toFile();
+        File wd = params.getWorkDirectory().getRoot();
+        File textDir = new File(rd, "text");
+
+        try {
+            streamingReporter.writeIndex(wd);
+
+            if (elapsedTimeHandler != null)
+                elapsedTimeHandler.report(new File(textDir, "timeStats.txt"));
+
+            if (resourceUsageHandler != null)
+                resourceUsageHandler.report(new File(textDir, "resources.txt"));
+
+            if (testStats != null) {
+                testStats.report(new File(textDir, "stats.txt"));
+                testStats.reportNotRunTests(new File(textDir, "notRun.txt"));
+            }
+
+            int countTestNG = SummaryReporter.forTestNG(params.getWorkDirectory()).writeReport(rd);
+            int countJUnit = SummaryReporter.forJUnit(params.getWorkDirectory()).writeReport(rd);
+            int sumOfCounts = countTestNG + countJUnit;
+            if (sumOfCounts > 0) {
+                log.println(String.format(Locale.ROOT,
+                        "Framework-based tests: %,d = %,d TestNG + %,d JUnit",
+                        sumOfCounts, countTestNG, countJUnit));
+            }
+
+            fixupReports(rd, wd);
+            if (!quiet)
+                logReportWritten(rd);
+        } catch (IOException | SecurityException e) {
+            log.println("Error while writing report: " + e);
+        }
+    }
+
     public void report(TestManager testManager) throws Fault {
         this.testManager = testManager;
         this.reportDir = testManager.getReportDirectory().toFile();
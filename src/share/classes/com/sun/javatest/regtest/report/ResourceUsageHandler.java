@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.report;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.sun.javatest.Harness;
+import com.sun.javatest.TestResult;
+import com.sun.javatest.regtest.agent.ResourceMonitor;
+import com.sun.javatest.report.Report;
+
+/**
+ * Monitor the resources used by tests using a Harness.Observer and write a
+ * table of the values for each test to a file, ordered by CPU time.
+ */
+public class ResourceUsageHandler {
+    private static final String[] NAMES = {
+        ResourceMonitor.CPU_TIME,
+        ResourceMonitor.MAX_RSS,
+        ResourceMonitor.MAX_HEAP,
+        ResourceMonitor.GC_COUNT,
+        ResourceMonitor.GC_TIME,
+        ResourceMonitor.MAX_THREADS
+    };
+
+    private static class Entry {
+        final String testName;
+        final long elapsed;
+        final long[] values;
+
+        Entry(String testName, long elapsed, long[] values) {
+            this.testName = testName;
+            this.elapsed = elapsed;
+            this.values = values;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    public void register(Harness h) {
+        h.addObserver(new BasicObserver() {
+            @Override
+            public void finishedTest(TestResult tr) {
+                add(tr);
+            }
+        });
+    }
+
+    private synchronized void add(TestResult tr) {
+        long[] values = new long[NAMES.length];
+        boolean found = false;
+        for (int i = 0; i < NAMES.length; i++) {
+            values[i] = parse(tr.getProperty(NAMES[i]));
+            found |= (values[i] >= 0);
+        }
+        if (found) {
+            String e = tr.getProperty("elapsed");
+            long elapsed = (e == null) ? -1 : parse(e.split(" ")[0]);
+            entries.add(new Entry(tr.getTestName(), elapsed, values));
+        }
+    }
+
+    private static long parse(String s) {
+        if (s != null) {
+            try {
+                return Long.parseLong(s);
+            } catch (NumberFormatException e) {
+                // ignore
+            }
+        }
+        return -1;
+    }
+
+    public void report(Report report) throws IOException {
+        File reportDir = report.getReportDir();
+        File reportTextDir = new File(reportDir, "text");
+        reportTextDir.mkdirs();
+        File file = new File(reportTextDir, "resources.txt");
+        report(file);
+    }
+
+    /**
+     * Writes the table of resources used by each test.
+     * The columns are separated by commas, so that the table can easily be
+     * sorted on any column. Times are in milliseconds, and sizes in kilobytes.
+     * Values that were not measured for a test are shown as {@code -}.
+     *
+     * @param file the file
+     * @throws IOException if an error occurs while writing the file
+     */
+    public synchronized void report(File file) throws IOException {
+        List<Entry> list = new ArrayList<>(entries);
+        list.sort(Comparator.comparingLong((Entry e) -> e.values[0]).reversed()
+                .thenComparing(e -> e.testName));
+        try (Writer out = new BufferedWriter(new FileWriter(file))) {
+            out.write(String.format("%10s,%10s,%10s,%10s,%8s,%8s,%10s, %s%n",
+                    NAMES[0], NAMES[1], NAMES[2], NAMES[3], NAMES[4], NAMES[5], "elapsed", "test"));
+            for (Entry e : list) {
+                long[] v = e.values;
+                out.write(String.format("%10s,%10s,%10s,%10s,%8s,%8s,%10s, %s%n",
+                        format(v[0]), format(v[1]), format(v[2]), format(v[3]), format(v[4]), format(v[5]),
+                        format(e.elapsed), e.testName));
+            }
+        }
+    }
+
+    private static String format(long v) {
+        return (v < 0) ? "-" : String.valueOf(v);
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.report;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.text.DateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import com.sun.javatest.Harness;
+import com.sun.javatest.Parameters;
+import com.sun.javatest.Status;
+import com.sun.javatest.TestResult;
+import com.sun.javatest.util.HTMLWriter;
+
+/**
+ * Writes the text files of a report while tests are being run, using a
+ * Harness.Observer.
+ * Each test is appended to {@code text/summary.txt}, to a list for its
+ * status, and to {@code text/elapsed.txt} as soon as it completes, so that
+ * the results do not need to be held in memory or read back from the work
+ * directory when the run is over. Only the small index pages are written
+ * at the end of the run, by {@link RegressionReporter}.
+ *
+ * Unlike the report written by JT Harness, tests appear in the order in
+ * which they completed, and only tests executed in the current run are
+ * included.
+ */
+public class StreamingReporter {
+    /**
+     * Creates a reporter to write files in the given report directory.
+     *
+     * @param reportDir the report directory
+     * @param log a stream to which to report any errors
+     */
+    public StreamingReporter(File reportDir, PrintWriter log) {
+        this.reportDir = reportDir;
+        this.log = log;
+    }
+
+    public void register(Harness h) {
+        h.addObserver(new BasicObserver() {
+            @Override
+            public void startingTestRun(Parameters p) {
+                open();
+            }
+
+            @Override
+            public void finishedTest(TestResult tr) {
+                add(tr);
+            }
+
+            @Override
+            public void finishedTestRun(boolean ok) {
+                close();
+            }
+        });
+    }
+
+    private synchronized void open() {
+        File textDir = new File(reportDir, "text");
+        textDir.mkdirs();
+        try {
+            summaryOut = open(new File(textDir, "summary.txt"));
+            elapsedOut = open(new File(textDir, "elapsed.txt"));
+            statusOut = new PrintWriter[STATUS_FILES.length];
+            for (int i = 0; i < STATUS_FILES.length; i++) {
+                statusOut[i] = open(new File(textDir, STATUS_FILES[i]));
+            }
+        } catch (IOException e) {
+            log.println("Error while writing report: " + e);
+            close();
+        }
+    }
+
+    private static PrintWriter open(File file) throws IOException {
+        return new PrintWriter(new BufferedWriter(new FileWriter(file)));
+    }
+
+    private synchronized void add(TestResult tr) {
+        if (summaryOut == null)
+            return;
+
+        String name = tr.getTestName();
+        Status status = tr.getStatus();
+        summaryOut.println(String.format("%-40s %s", name, status));
+        summaryOut.flush();
+
+        String e = tr.getProperty("elapsed");
+        if (e != null) {
+            elapsedOut.println(String.format("%10s, %s", e.split(" ")[0], name));
+            elapsedOut.flush();
+        }
+
+        int type = status.getType();
+        if (type < statusOut.length) {
+            statusOut[type].println(name);
+            statusOut[type].flush();
+        }
+        counts[type]++;
+    }
+
+    private synchronized void close() {
+        if (summaryOut != null) {
+            summaryOut.close();
+            summaryOut = null;
+        }
+        if (elapsedOut != null) {
+            elapsedOut.close();
+            elapsedOut = null;
+        }
+        if (statusOut != null) {
+            for (PrintWriter out : statusOut) {
+                if (out != null)
+                    out.close();
+            }
+            statusOut = null;
+        }
+    }
+
+    /**
+     * Writes the index pages for the report, {@code index.html} and
+     * {@code html/report.html}, which link to the text files and to the
+     * result files for any tests that did not pass.
+     *
+     * @param workDir the work directory containing the results of the tests
+     * @throws IOException if an error occurs while writing the files
+     */
+    synchronized void writeIndex(File workDir) throws IOException {
+        close();
+
+        File htmlDir = new File(reportDir, "html");
+        htmlDir.mkdirs();
+        File report = new File(htmlDir, "report.html");
+        try (BufferedWriter htmlOut = new BufferedWriter(new FileWriter(report))) {
+            HTMLWriter html = startPage(htmlOut);
+            html.startTag(HTMLWriter.TABLE);
+            html.writeAttr(HTMLWriter.BORDER, "1");
+            for (int i = 0; i < STATUS_FILES.length; i++) {
+                html.startTag(HTMLWriter.TR);
+                html.startTag(HTMLWriter.TD);
+                html.startTag(HTMLWriter.A);
+                html.writeAttr(HTMLWriter.HREF, "../text/" + STATUS_FILES[i]);
+                html.write(STATUS_NAMES[i]);
+                html.endTag(HTMLWriter.A);
+                html.endTag(HTMLWriter.TD);
+                html.startTag(HTMLWriter.TD);
+                html.write(String.valueOf(counts[i]));
+                html.endTag(HTMLWriter.TD);
+                html.endTag(HTMLWriter.TR);
+            }
+            html.endTag(HTMLWriter.TABLE);
+            for (int i = Status.FAILED; i <= Status.ERROR; i++) {
+                List<String> tests = readLines(new File(new File(reportDir, "text"), STATUS_FILES[i]));
+                if (tests.isEmpty())
+                    continue;
+                html.startTag(HTMLWriter.H2);
+                html.write(STATUS_NAMES[i]);
+                html.endTag(HTMLWriter.H2);
+                html.startTag(HTMLWriter.UL);
+                for (String t : tests) {
+                    html.startTag(HTMLWriter.LI);
+                    html.startTag(HTMLWriter.A);
+                    File jtr = new File(workDir, TestResult.getWorkRelativePath(t));
+                    html.writeAttr(HTMLWriter.HREF, jtr.toURI().getRawPath());
+                    html.write(t);
+                    html.endTag(HTMLWriter.A);
+                    html.endTag(HTMLWriter.LI);
+                }
+                html.endTag(HTMLWriter.UL);
+            }
+            endPage(html);
+        }
+
+        File index = new File(reportDir, "index.html");
+        try (BufferedWriter indexOut = new BufferedWriter(new FileWriter(index))) {
+            HTMLWriter html = startPage(indexOut);
+            html.startTag(HTMLWriter.UL);
+            writeLink(html, "html/report.html", "Report");
+            writeLink(html, "text/summary.txt", "Summary");
+            writeLink(html, "text/elapsed.txt", "Elapsed times");
+            html.endTag(HTMLWriter.UL);
+            endPage(html);
+        }
+    }
+
+    private HTMLWriter startPage(BufferedWriter out) throws IOException {
+        String title = "Test Results";
+        HTMLWriter html = new HTMLWriter(out);
+        html.startTag(HTMLWriter.HTML);
+        html.startTag(HTMLWriter.HEAD);
+        html.startTag(HTMLWriter.TITLE);
+        html.write(title);
+        html.endTag(HTMLWriter.TITLE);
+        html.endTag(HTMLWriter.HEAD);
+        html.startTag(HTMLWriter.BODY);
+        html.startTag(HTMLWriter.H1);
+        html.write(title);
+        html.endTag(HTMLWriter.H1);
+        html.startTag(HTMLWriter.P);
+        html.write("Date of report: " + DateFormat.getDateTimeInstance().format(new Date()));
+        html.endTag(HTMLWriter.P);
+        return html;
+    }
+
+    private void endPage(HTMLWriter html) throws IOException {
+        html.endTag(HTMLWriter.BODY);
+        html.endTag(HTMLWriter.HTML);
+        html.close();
+    }
+
+    private void writeLink(HTMLWriter html, String href, String text) throws IOException {
+        html.startTag(HTMLWriter.LI);
+        html.startTag(HTMLWriter.A);
+        html.writeAttr(HTMLWriter.HREF, href);
+        html.write(text);
+        html.endTag(HTMLWriter.A);
+        html.endTag(HTMLWriter.LI);
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        return file.exists() ? Files.readAllLines(file.toPath()) : Collections.emptyList();
+    }
+
+    // indexed by Status type
+    private static final String[] STATUS_FILES = { "passed.txt", "failed.txt", "error.txt" };
+    private static final String[] STATUS_NAMES = { "Passed", "Failed", "Error" };
+
+    private final File reportDir;
+    private final PrintWriter log;
+    private final int[] counts = new int[Status.NUM_STATES];
+    private PrintWriter summaryOut;
+    private PrintWriter elapsedOut;
+    private PrintWriter[] statusOut;
+}
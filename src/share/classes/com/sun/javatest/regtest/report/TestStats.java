@@ -43,6 +43,7 @@ import com.sun.javatest.TestFilter;
 import com.sun.javatest.TestResult;
 import com.sun.javatest.TestResultTable;
 import com.sun.javatest.regtest.agent.MainActionHelper;
+import com.sun.javatest.regtest.config.CachingTestFilter;
 import com.sun.javatest.regtest.config.RegressionParameters;
 import com.sun.javatest.report.Report;
 import com.sun.javatest.util.I18NResourceBundle;
@@ -98,6 +99,15 @@ public class TestStats {
                 });
             }
 
+            @Override
+            public void finishedTestRun(boolean allOK) {
+                if (params != null) {
+                    for (CachingTestFilter f : params.getCachingFilters()) {
+                        addFilterCacheStats(f.getName(), f.getHits(), f.getMisses());
+                    }
+                }
+            }
+
             @Override
             public synchronized void finishedTest(TestResult tr) {
                 add(tr);
@@ -117,6 +127,15 @@ public class TestStats {
     public void addAll(TestStats other) {
         for (int i = 0; i < counts.length; i++)
             counts[i] += other.counts[i];
+        other.filterCacheStats.forEach((name, hm) -> addFilterCacheStats(name, hm[0], hm[1]));
+    }
+
+    private void addFilterCacheStats(String name, long hits, long misses) {
+        if (hits + misses > 0) {
+            long[] hm = filterCacheStats.computeIfAbsent(name, n -> new long[2]);
+            hm[0] += hits;
+            hm[1] += misses;
+        }
     }
 
     public boolean isOK() {
@@ -171,6 +190,17 @@ public class TestStats {
         out.println(msg);
     }
 
+    /**
+     * Shows the number of hits and misses for each of the caching filters
+     * used to select the tests to be run.
+     *
+     * @param out the stream to which to write the statistics
+     */
+    public void showFilterCacheStats(PrintWriter out) {
+        filterCacheStats.forEach((name, hm) ->
+                out.println(i18n.getString("stats.filterCache", name, hm[0], hm[1])));
+    }
+
     public void report(Report report) throws IOException {
         File reportDir = report.getReportDir();
         File reportTextDir = new File(reportDir, "text");
@@ -179,6 +209,12 @@ public class TestStats {
         report(statsTxt);
         File notRunTxt = new File(reportTextDir, "notRun.txt");
         reportNotRunTests(notRunTxt);
+        if (!filterCacheStats.isEmpty()) {
+            File filterStatsTxt = new File(reportTextDir, "filterStats.txt");
+            try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(filterStatsTxt)))) {
+                showFilterCacheStats(out);
+            }
+        }
     }
 
     public void report(File file) throws IOException {
@@ -445,5 +481,10 @@ public class TestStats {
      */
     int notRun_other_count;
 
+    /**
+     * The number of hits and misses for each caching filter, indexed by filter name.
+     */
+    private final Map<String, long[]> filterCacheStats = new TreeMap<>();
+
     private static final I18NResourceBundle i18n = I18NResourceBundle.getBundleForClass(TestStats.class);
 }
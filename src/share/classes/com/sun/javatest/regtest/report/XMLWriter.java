@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2026, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -25,8 +25,8 @@
 
 package com.sun.javatest.regtest.report;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -35,7 +35,6 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -46,15 +45,23 @@ import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 
+import com.sun.javatest.Parameters;
 import com.sun.javatest.Status;
 import com.sun.javatest.TestDescription;
 import com.sun.javatest.TestResult;
@@ -63,13 +70,16 @@ import com.sun.javatest.TestResult.Section;
 /**
  * Write out results in JUnit-compatible XML format, for processing by tools
  * that can process such files, such as CI systems like Hudson and Jenkins.
+ * The XML is written directly to the output file as it is generated.
  */
 public class XMLWriter {
     static final String PASSED = "Passed.";
     static final String FAILED = "Failed.";
 
+    private static final String INDENT = "    ";
+    private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+
     public final TestResult tr;
-    private final XPrintStream xps;
     private final String classname;
     private final Date start;
     private final double duration;
@@ -80,15 +90,16 @@ public class XMLWriter {
     private final PrintWriter harnessErr;
     private final SimpleDateFormat defDateFmt;
     private final DateFormat isoDateFmt;
+    private final String encoding;
+    private XMLStreamWriter xw;
 
     XMLWriter(TestResult tr, boolean mustVerify, PrintWriter out, PrintWriter err)
-            throws ParseException, UnsupportedEncodingException, TestResult.Fault {
-        String encoding = Charset.defaultCharset().name();
+            throws ParseException, TestResult.Fault {
+        encoding = Charset.defaultCharset().name();
         defDateFmt = new SimpleDateFormat("EEE MMM dd hh:mm:ss z yyyy", Locale.US);
         isoDateFmt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
         harnessOut = out;
         harnessErr = err;
-        xps = new XPrintStream(harnessOut, harnessErr, encoding);
         this.tr = tr;
         verify = mustVerify;
         status = tr.getStatus();
@@ -96,7 +107,6 @@ public class XMLWriter {
         xmlFile = new File(tr.getFile().getAbsolutePath() + ".xml");
         start = defDateFmt.parse(tr.getProperty("start"));
         duration = getElapsedTime();
-        process(encoding);
     }
 
     private double getElapsedTime() throws TestResult.Fault {
@@ -112,67 +122,55 @@ public class XMLWriter {
         return elapsed/1000;
     }
 
-    private void createHeader(String encoding) {
-        xps.println("<?xml version=\"1.0\" encoding=\"" + encoding + "\" ?>");
-    }
-
-    private void startTestSuite() throws TestResult.Fault {
-        xps.print("<testsuite");
-        xps.print(" errors=\"");
-        xps.print(status.isError() ? "1" : "0");
-        xps.print("\"");
-        xps.print(" failures=\"");
-        xps.print(status.isFailed() ? "1" : "0");
-        xps.print("\"");
-        xps.print(" tests=\"1\"");
-        xps.print(" hostname=\"");
-        xps.print(tr.getProperty("hostname"));
-        xps.print("\"");
-        xps.print(" name=\"");
-        xps.print(classname);
-        xps.print("\"");
-        xps.print(" time=\"");
-        xps.print(duration);
-        xps.print("\"");
-        xps.print(" timestamp=\"");
-        xps.print(isoDateFmt.format(start));
-        xps.print("\"");
-        xps.println(">");
-    }
-
-    private void endTestSuite() {
-        xps.println("</testsuite>");
-    }
-
-    private void insertProperties() throws TestResult.Fault {
-        xps.indent();
-        xps.println("<properties>");
+    private void createHeader() throws XMLStreamException {
+        xw.writeStartDocument(encoding, "1.0");
+        newLine();
+    }
+
+    private void startTestSuite() throws TestResult.Fault, XMLStreamException {
+        xw.writeStartElement("testsuite");
+        xw.writeAttribute("errors", status.isError() ? "1" : "0");
+        xw.writeAttribute("failures", status.isFailed() ? "1" : "0");
+        xw.writeAttribute("tests", "1");
+        xw.writeAttribute("hostname", String.valueOf(tr.getProperty("hostname")));
+        xw.writeAttribute("name", String.valueOf(classname));
+        xw.writeAttribute("time", String.valueOf(duration));
+        xw.writeAttribute("timestamp", isoDateFmt.format(start));
+        newLine();
+    }
+
+    private void endTestSuite() throws XMLStreamException {
+        xw.writeEndElement();
+        newLine();
+    }
+
+    private void insertProperties() throws TestResult.Fault, XMLStreamException {
+        indent(1);
+        xw.writeStartElement("properties");
+        newLine();
         TestDescription td = tr.getDescription();
         Iterator<String> iterator = td.getParameterKeys();
         while (iterator.hasNext()) {
             String key = iterator.next();
-            xps.indent(2);
-            xps.print("<property name=\"");
-            xps.print(key);
-            xps.print("\"");
-            xps.print(" value=\"");
-            xps.sanitize(td.getParameter(key));
-            xps.println("\" />");
+            insertProperty(key, td.getParameter(key));
         }
 
         Enumeration<String> e = tr.getPropertyNames();
         while (e.hasMoreElements()) {
             String x = e.nextElement();
-            xps.indent(2);
-            xps.print("<property name=\"");
-            xps.print(x);
-            xps.print("\"");
-            xps.print(" value=\"");
-            xps.sanitize(tr.getProperty(x));
-            xps.println("\" />");
+            insertProperty(x, tr.getProperty(x));
         }
-        xps.indent();
-        xps.println("</properties>");
+        indent(1);
+        xw.writeEndElement();
+        newLine();
+    }
+
+    private void insertProperty(String name, String value) throws XMLStreamException {
+        indent(2);
+        xw.writeEmptyElement("property");
+        xw.writeAttribute("name", name);
+        xw.writeAttribute("value", sanitize(value));
+        newLine();
     }
 
     private String getOutput(String name) throws TestResult.Fault {
@@ -205,44 +203,46 @@ public class XMLWriter {
         return result;
     }
 
-    private void insertSystemOut() throws TestResult.Fault {
-        xps.indent();
-        xps.print("<system-out>");
-        xps.sanitize(getOutput("System.out"));
-        xps.indent();
-        xps.println("</system-out>");
+    private void insertSystemOut() throws TestResult.Fault, XMLStreamException {
+        insertOutput("system-out", getOutput("System.out"));
     }
 
-    private void insertSystemErr() throws TestResult.Fault {
-        xps.indent();
-        xps.print("<system-err>");
-        xps.sanitize(getOutput("System.err"));
-        xps.indent();
-        xps.println("</system-err>");
+    private void insertSystemErr() throws TestResult.Fault, XMLStreamException {
+        insertOutput("system-err", getOutput("System.err"));
     }
 
-    private void insertFailure() {
+    private void insertOutput(String element, String output) throws XMLStreamException {
+        indent(1);
+        xw.writeStartElement(element);
+        writeText(output);
+        indent(1);
+        xw.writeEndElement();
+        newLine();
+    }
+
+    private void insertFailure() throws XMLStreamException {
         if (status.isPassed())
             return;
-        xps.indent();
-        xps.print("<failure type=\"");
-        xps.print(XMLWriter.FAILED);
-        xps.println("\">");
-        xps.sanitize(status.getReason());
+        indent(1);
+        xw.writeStartElement("failure");
+        xw.writeAttribute("type", XMLWriter.FAILED);
+        newLine();
+        writeText(status.getReason());
 
         try {
             String crashInfo = extractCrashInfo();
             if (crashInfo != null && !crashInfo.isEmpty()) {
-                xps.println("\n\n--- JVM Crash Details ---");
-                xps.sanitize(crashInfo);
+                xw.writeCharacters("\n\n--- JVM Crash Details ---\n");
+                writeText(crashInfo);
             }
         } catch (TestResult.Fault e) {
             // Ignore if we can't get crash info
         }
 
-        xps.indent();
-        xps.println("");
-        xps.println("</failure>");
+        indent(1);
+        newLine();
+        xw.writeEndElement();
+        newLine();
     }
 
     private String extractCrashInfo() throws TestResult.Fault {
@@ -285,49 +285,140 @@ public class XMLWriter {
         return crash.length() > 0 ? crash.toString() : null;
     }
 
-    private void insertTestCase() throws TestResult.Fault {
-        xps.indent();
-        xps.print("<testcase ");
-        xps.print("classname=\"");
-        xps.print(classname);
-        xps.print("\"");
-        xps.print(" name=\"");
-        xps.print(tr.getDescription().getName());
-        xps.print("\"");
-        xps.print(" time=\"");
-        xps.print(duration);
-        xps.print("\"");
-        xps.println(" >");
+    private void insertTestCase() throws TestResult.Fault, XMLStreamException {
+        indent(1);
+        xw.writeStartElement("testcase");
+        xw.writeAttribute("classname", String.valueOf(classname));
+        xw.writeAttribute("name", tr.getDescription().getName());
+        xw.writeAttribute("time", String.valueOf(duration));
+        newLine();
         insertFailure();
-        xps.indent();
-        xps.println("</testcase>");
+        indent(1);
+        xw.writeEndElement();
+        newLine();
+    }
+
+    private void process(OutputStream os) throws IOException, TestResult.Fault {
+        try {
+            xw = xmlOutputFactory.createXMLStreamWriter(os, encoding);
+            createHeader();
+            startTestSuite();
+            insertProperties();
+            insertTestCase();
+            insertSystemOut();
+            insertSystemErr();
+            endTestSuite();
+            xw.writeEndDocument();
+            xw.flush();
+            xw.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            xw = null;
+        }
+    }
+
+    private void indent(int n) throws XMLStreamException {
+        for (int i = 0; i < n; i++) {
+            xw.writeCharacters(INDENT);
+        }
+    }
+
+    private void newLine() throws XMLStreamException {
+        xw.writeCharacters("\n");
+    }
+
+    private void writeText(String text) throws XMLStreamException {
+        if (text != null) {
+            xw.writeCharacters(sanitize(text));
+        }
     }
 
-    private void process(String encoding) throws TestResult.Fault {
-        createHeader(encoding);
-        startTestSuite();
-        insertProperties();
-        insertTestCase();
-        insertSystemOut();
-        insertSystemErr();
-        endTestSuite();
+    /**
+     * Encodes the characters in a string that cannot be represented in XML.
+     * The characters that must be escaped in XML text, such as {@code <} and {@code &},
+     * are escaped when the string is written by the {@code XMLStreamWriter}.
+     *
+     * @param in the string
+     * @return the encoded string
+     */
+    static String sanitize(String in) {
+        if (in == null)
+            return "";
+
+        StringBuilder sb = new StringBuilder(in.length());
+        for (int i = 0; i < in.length(); i++) {
+            char ch = in.charAt(i);
+            switch (ch) {
+                // case 'f': // not a valid XML character
+                case '\n':
+                case '\r':
+                case '\t':
+                    sb.append(ch);
+                    break;
+
+                case '\\':
+                    if (i + 1 < in.length() && in.charAt(i + 1) == 'u') {
+                        // encode "backslash u" as "backslash u u" to distinguish
+                        // it from use of unicode escapes for control characters.
+                        sb.append("\\uu");
+                        i++;
+                    } else {
+                        sb.append(ch);
+                    }
+                    break;
+
+                default:
+                    if (ch < 32 || !Character.isDefined(ch)) {
+                        // Ideally, we'd print control characters as numeric
+                        // character entities, but a validating SAX parser
+                        // rejects that, so we encode them as Unicode instead.
+                        sb.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        sb.append(ch);
+                    }
+            }
+        }
+        return sb.toString();
     }
 
     @Override
     public String toString() {
-        return xps.toString();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            process(bytes);
+            return bytes.toString(encoding);
+        } catch (IOException | TestResult.Fault e) {
+            return e.toString();
+        }
     }
 
-    public void toXML() throws IOException  {
+    public void toXML() throws IOException, TestResult.Fault {
         File baseDir = xmlFile.getParentFile();
         if (!baseDir.exists()) {
             baseDir.mkdirs();
         }
-        try (FileOutputStream fos = new FileOutputStream(xmlFile)) {
-            xps.writeTo(fos);
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(xmlFile))) {
+            process(os);
         }
         if (verify)
-            xps.verifyXML(xmlFile);
+            verifyXML();
+    }
+
+    // we don't want to see errors in hudson and it may take a while, depending
+    // on the job, so we verify for xml conformance.
+    private void verifyXML() throws IOException {
+        try {
+            SAXParserFactory sax = SAXParserFactory.newInstance();
+            sax.setValidating(false);
+            SAXParser parser = sax.newSAXParser();
+            XMLReader xmlreader = parser.getXMLReader();
+            xmlreader.parse(new InputSource(xmlFile.toURI().toString()));
+            //harnessOut.println("File: " + xmlFile + ": verified");
+        } catch (IOException | ParserConfigurationException | SAXException ex) {
+            harnessErr.println("File: " + xmlFile + ":" + ex);
+            harnessErr.println(toString());
+        }
     }
 
     private static void usage(PrintStream out, String message) {
@@ -419,10 +510,22 @@ public class XMLWriter {
         }
     }
 
+    /**
+     * An observer that writes an XML file for each test when it completes.
+     * The files are written by a background thread, so that threads executing
+     * tests are not delayed. The number of files waiting to be written is
+     * bounded; if the limit is reached, threads that complete tests wait until
+     * there is space in the queue. All pending files are written before the
+     * test run is reported as finished.
+     */
     public static class XMLHarnessObserver extends BasicObserver {
+        private static final int MAX_PENDING = 256;
+
         private final boolean mustVerify;
         private final PrintWriter harnessOut;
         private final PrintWriter harnessErr;
+        private ExecutorService writer;
+        private boolean finished;
 
         public XMLHarnessObserver(boolean mustVerify,
                 PrintWriter out, PrintWriter err) {
@@ -432,128 +535,95 @@ public class XMLWriter {
         }
 
         @Override
-        public synchronized void finishedTest(TestResult tr) {
-            try {
-                super.finishedTest(tr);
-                new XMLWriter(tr, mustVerify, harnessOut, harnessErr).toXML();
-            } catch (IOException
-                     | ParseException
-                     | TestResult.Fault ex) {
-                ex.printStackTrace(harnessOut);
-            }
+        public synchronized void startingTestRun(Parameters params) {
+            super.startingTestRun(params);
+            finished = false;
         }
-    }
-}
-
-class XPrintStream {
-    private final ByteArrayOutputStream bstream;
-    private final PrintStream ps;
-    private final PrintWriter out;
-    private final PrintWriter err;
-
-    private static final String INDENT = "    ";
-
-    XPrintStream(PrintWriter out, PrintWriter err, String encoding)
-            throws UnsupportedEncodingException {
-        this.out = out;
-        this.err = err;
-        this.bstream = new ByteArrayOutputStream();
-        this.ps = new PrintStream(bstream, false, encoding);
-    }
-
-    void indent() {
-        ps.print(INDENT);
-    }
 
-    public void indent(int n) {
-        for (int i = 0; i < n; i++) {
-            indent();
+        @Override
+        public void finishedTest(TestResult tr) {
+            super.finishedTest(tr);
+            ExecutorService w = getWriter();
+            if (w == null) {
+                // the test run has finished: there is no writer to drain the queue
+                write(tr);
+            } else {
+                w.execute(() -> write(tr));
+            }
         }
-    }
-
-    public void println(String in) {
-        ps.println(in);
-    }
-
-    public void print(String in) {
-        ps.print(in);
-    }
-
-    public void print(double d) {
-        ps.print(d);
-    }
-
-    // sanitize the string for xml presentation
-    public void sanitize(String in) {
-        if (in == null)
-            return;
-
-        for (int i = 0; i < in.length(); i++) {
-            char ch = in.charAt(i);
-            switch (ch) {
-                case '&':  ps.print("&amp;");  break;
-                case '<':  ps.print("&lt;");   break;
-                case '>':  ps.print("&gt;");   break;
-                case '"':  ps.print("&quot;"); break;
-                case '\'': ps.print("&apos;"); break;
-
-                // case 'f': // not a valid XML character
-                case '\n':
-                case '\r':
-                case '\t':
-                    ps.print(ch);
-                    break;
-
-                case '\\':
-                    if (i + 1 < in.length() && in.charAt(i + 1) == 'u') {
-                        // encode "backslash u" as "backslash u u" to distinguish
-                        // it from use of unicode escapes for control characters.
-                        ps.print("\\uu");
-                        i++;
-                    } else {
-                        ps.print(ch);
-                    }
-                    break;
 
-                default:
-                    if (ch < 32 || !Character.isDefined(ch)) {
-                        // Ideally, we'd print control characters as numeric
-                        // character entities, but a validating SAX parser
-                        // rejects that, so we encode them as Unicode instead.
-                        ps.printf("\\u%04x", (int) ch);
-                    } else {
-                        ps.print(ch);
+        @Override
+        public void finishedTestRun(boolean ok) {
+            ExecutorService w;
+            synchronized (this) {
+                w = writer;
+                writer = null;
+                finished = true;
+            }
+            if (w != null) {
+                w.shutdown();
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        if (w.awaitTermination(1, TimeUnit.MINUTES)) {
+                            break;
+                        }
+                    } catch (InterruptedException e) {
+                        interrupted = true;
                     }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
             }
+            super.finishedTestRun(ok);
         }
-    }
-
-    public void close() {
-        ps.close();
-    }
-
-    @Override
-    public String toString() {
-        return bstream.toString();
-    }
 
-    public void writeTo(OutputStream os) throws IOException {
-        bstream.writeTo(os);
-    }
+        /**
+         * Returns the executor used to write the XML files in the background,
+         * or {@code null} if the test run has finished.
+         */
+        private synchronized ExecutorService getWriter() {
+            if (writer == null && !finished) {
+                writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(MAX_PENDING),
+                        r -> {
+                            Thread t = new Thread(r, "XMLWriter");
+                            t.setDaemon(true);
+                            return t;
+                        },
+                        (r, executor) -> {
+                            if (executor.isShutdown()) {
+                                // the writer is being shut down, and may not drain the queue
+                                r.run();
+                                return;
+                            }
+                            // wait for space in the queue
+                            try {
+                                executor.getQueue().put(r);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                r.run();
+                                return;
+                            }
+                            // the writer may have been shut down while waiting for space:
+                            // if so, and the task has not been taken, run it here
+                            if (executor.isShutdown() && executor.getQueue().remove(r)) {
+                                r.run();
+                            }
+                        });
+            }
+            return writer;
+        }
 
-    // we don't want to see errors in hudson and it may take a while, depending
-    // on the job, so we verify for xml conformance.
-    public void verifyXML(File xmlFile) throws IOException {
-        try {
-            SAXParserFactory sax = SAXParserFactory.newInstance();
-            sax.setValidating(false);
-            SAXParser parser = sax.newSAXParser();
-            XMLReader xmlreader = parser.getXMLReader();
-            xmlreader.parse(new InputSource(new ByteArrayInputStream(bstream.toByteArray())));
-            //out.println("File: " + xmlFile + ": verified");
-        } catch (IOException | ParserConfigurationException | SAXException ex) {
-            err.println("File: " + xmlFile + ":" + ex);
-            err.println(toString());
+        private void write(TestResult tr) {
+            try {
+                new XMLWriter(tr, mustVerify, harnessOut, harnessErr).toXML();
+            } catch (IOException
+                     | ParseException
+                     | TestResult.Fault ex) {
+                ex.printStackTrace(harnessOut);
+            }
         }
     }
 }
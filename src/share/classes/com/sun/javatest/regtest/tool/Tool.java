@@ -54,6 +54,7 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -64,6 +65,8 @@ import java.util.TreeSet;
 import java.util.function.Predicate;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import javax.swing.Timer;
@@ -90,8 +93,10 @@ import com.sun.javatest.httpd.PageGenerator;
 import com.sun.javatest.regtest.BadArgs;
 import com.sun.javatest.regtest.Main;
 import com.sun.javatest.regtest.Main.Fault;
+import com.sun.javatest.regtest.agent.AgentHealth;
 import com.sun.javatest.regtest.agent.JDK_Version;
 import com.sun.javatest.regtest.agent.SearchPath;
+import com.sun.javatest.regtest.config.DiscoveryIndex;
 import com.sun.javatest.regtest.config.ExecMode;
 import com.sun.javatest.regtest.config.GroupManager;
 import com.sun.javatest.regtest.config.IgnoreKind;
@@ -99,13 +104,19 @@ import com.sun.javatest.regtest.config.JDK;
 import com.sun.javatest.regtest.config.OS;
 import com.sun.javatest.regtest.config.RegressionKeywords;
 import com.sun.javatest.regtest.config.RegressionParameters;
+import com.sun.javatest.regtest.config.RegressionTestFinder;
 import com.sun.javatest.regtest.config.RegressionTestSuite;
+import com.sun.javatest.regtest.config.TestInputs;
 import com.sun.javatest.regtest.config.TestManager;
 import com.sun.javatest.regtest.exec.Agent;
 import com.sun.javatest.regtest.exec.Lock;
+import com.sun.javatest.regtest.exec.ResourceScheduler;
+import com.sun.javatest.regtest.exec.ScratchReaper;
 import com.sun.javatest.regtest.report.BasicObserver;
 import com.sun.javatest.regtest.report.ElapsedTimeHandler;
 import com.sun.javatest.regtest.report.RegressionReporter;
+import com.sun.javatest.regtest.report.ResourceUsageHandler;
+import com.sun.javatest.regtest.report.StreamingReporter;
 import com.sun.javatest.regtest.report.TestStats;
 import com.sun.javatest.regtest.report.Verbose;
 import com.sun.javatest.regtest.report.VerboseHandler;
@@ -311,6 +322,114 @@ public class Tool {
             }
         },
 
+        new Option(OPT, MAIN, "", "-discoveryCache") {
+            @Override
+            public String[] getChoices() {
+                return new String[] { "on", "off", "content", "clear" };
+            }
+            @Override
+            public void process(String opt, String arg) throws BadArgs {
+                if (arg == null) {
+                    arg = "on";
+                }
+                switch (arg) {
+                    case "on":
+                    case "off":
+                    case "content":
+                    case "clear":
+                        discoveryCacheArg = arg;
+                        break;
+                    default:
+                        throw new BadArgs(i18n, "main.badDiscoveryCache", arg);
+                }
+            }
+        },
+
+        new Option(NONE, MAIN, null, "-asyncScratchCleanup") {
+            @Override
+            public void process(String opt, String arg) {
+                asyncScratchCleanupFlag = true;
+            }
+        },
+
+        new Option(NONE, MAIN, null, "-sampleProcessResources") {
+            @Override
+            public void process(String opt, String arg) {
+                sampleProcessResourcesFlag = true;
+            }
+        },
+
+        new Option(STD, MAIN, "", "-buildCache") {
+            @Override
+            public void process(String opt, String arg) throws BadArgs {
+                Path p = Path.of(arg);
+                if (Files.exists(p) && !Files.isDirectory(p))
+                    throw new BadArgs(i18n, "main.buildCacheNotDir", arg);
+                buildCacheArg = p;
+            }
+        },
+
+        new Option(STD, MAIN, "", "-jdkProbeCache") {
+            @Override
+            public void process(String opt, String arg) throws BadArgs {
+                if (arg.equals("none")) {
+                    jdkProbeCacheArg = null;
+                    noJdkProbeCacheFlag = true;
+                    return;
+                }
+                Path p = Path.of(arg);
+                if (Files.exists(p) && !Files.isDirectory(p))
+                    throw new BadArgs(i18n, "main.jdkProbeCacheNotDir", arg);
+                jdkProbeCacheArg = p;
+                noJdkProbeCacheFlag = false;
+            }
+        },
+
+        new Option(STD, MAIN, "", "-resourceBudget") {
+            @Override
+            public void process(String opt, String arg) throws BadArgs {
+                if (arg.equals("auto")) {
+                    OS os = OS.current();
+                    resourceBudgetCores = os.processors;
+                    resourceBudgetMemory = os.maxMemory / (1024 * 1024);
+                    return;
+                }
+                Matcher m = Pattern.compile("([0-9]+),([0-9]+)([mMgG]?)").matcher(arg);
+                if (!m.matches())
+                    throw new BadArgs(i18n, "main.badResourceBudget", arg);
+                try {
+                    int cores = Integer.parseInt(m.group(1));
+                    long memory = Long.parseLong(m.group(2));
+                    if (m.group(3).equalsIgnoreCase("g"))
+                        memory *= 1024;
+                    if (cores <= 0 || memory <= 0)
+                        throw new BadArgs(i18n, "main.badResourceBudget", arg);
+                    resourceBudgetCores = cores;
+                    resourceBudgetMemory = memory;
+                } catch (NumberFormatException e) {
+                    throw new BadArgs(i18n, "main.badResourceBudget", arg);
+                }
+            }
+        },
+
+        new Option(STD, MAIN, "", "-discoveryThreads") {
+            @Override
+            public void process(String opt, String arg) throws BadArgs {
+                if (arg.equals("auto")) {
+                    discoveryThreads = Runtime.getRuntime().availableProcessors();
+                } else {
+                    try {
+                        discoveryThreads = Integer.parseInt(arg);
+                    } catch (NumberFormatException e) {
+                        discoveryThreads = 0;
+                    }
+                    if (discoveryThreads < 1) {
+                        throw new BadArgs(i18n, "main.badDiscoveryThreads", arg);
+                    }
+                }
+            }
+        },
+
         new Option(OLD, MAIN, "", "-r", "-reportDir") {
             @Override
             public void process(String opt, String arg) {
@@ -368,6 +487,9 @@ public class Tool {
                     case "all":
                         reportMode = ReportMode.ALL;
                         break;
+                    case "streaming":
+                        reportMode = ReportMode.STREAMING;
+                        break;
                     default:
                         throw new BadArgs(i18n, "main.badReportOption", arg);
                 }
@@ -432,6 +554,95 @@ public class Tool {
             }
         },
 
+        new Option(GNU, AGENT_POOL, null, "--prewarm-agents") {
+            @Override
+            public void process(String opt, String arg) throws BadArgs {
+                int count;
+                try {
+                    count = Integer.parseInt(arg);
+                } catch (NumberFormatException e) {
+                    throw new BadArgs(i18n, "main.badPrewarmAgents", arg);
+                }
+                if (count < 0) {
+                    throw new BadArgs(i18n, "main.badPrewarmAgents", count);
+                }
+                prewarmAgents = count;
+            }
+        },
+
+        new Option(GNU, AGENT_POOL, null, "--shared-agent-slots") {
+            @Override
+            public void process(String opt, String arg) throws BadArgs {
+                int slots;
+                try {
+                    slots = Integer.parseInt(arg);
+                } catch (NumberFormatException e) {
+                    throw new BadArgs(i18n, "main.badSharedAgentSlots", arg);
+                }
+                if (slots < 0) {
+                    throw new BadArgs(i18n, "main.badSharedAgentSlots", slots);
+                }
+                sharedAgentSlots = slots;
+            }
+        },
+
+        new Option(GNU, AGENT_POOL, null, "--agent-max-uses") {
+            @Override
+            public void process(String opt, String arg) throws BadArgs {
+                int uses;
+                try {
+                    uses = Integer.parseInt(arg);
+                } catch (NumberFormatException e) {
+                    throw new BadArgs(i18n, "main.badAgentMaxUses", arg);
+                }
+                if (uses < 0) {
+                    throw new BadArgs(i18n, "main.badAgentMaxUses", uses);
+                }
+                agentMaxUses = uses;
+            }
+        },
+
+        new Option(GNU, AGENT_POOL, null, "--agent-health-limits") {
+            @Override
+            public void process(String opt, String arg) throws BadArgs {
+                for (String item : arg.split(",")) {
+                    int eq = item.indexOf('=');
+                    String name = (eq == -1) ? item : item.substring(0, eq).trim();
+                    String healthName = healthLimitNames.get(name);
+                    if (healthName == null || eq == -1) {
+                        throw new BadArgs(i18n, "main.badAgentHealthLimit", item);
+                    }
+                    long value;
+                    try {
+                        value = Long.parseLong(item.substring(eq + 1).trim());
+                    } catch (NumberFormatException e) {
+                        throw new BadArgs(i18n, "main.badAgentHealthLimit", item);
+                    }
+                    if (value <= 0) {
+                        throw new BadArgs(i18n, "main.badAgentHealthLimit", item);
+                    }
+                    // heap and metaspace are given in megabytes, but reported in kilobytes
+                    boolean memory = healthName.equals(AgentHealth.HEAP_AFTER_GC)
+                            || healthName.equals(AgentHealth.METASPACE);
+                    agentHealthLimits.put(healthName, memory ? value * 1024 : value);
+                }
+            }
+        },
+
+        new Option(NONE, AGENT_POOL, null, "--agent-cds") {
+            @Override
+            public void process(String opt, String arg) {
+                agentCDSFlag = true;
+            }
+        },
+
+        new Option(NONE, AGENT_POOL, null, "--agent-library-loaders") {
+            @Override
+            public void process(String opt, String arg) {
+                agentLibraryLoadersFlag = true;
+            }
+        },
+
         new Option(STD, MAIN, "", "-conc", "-concurrency") {
             @Override
             public void process(String opt, String arg) {
@@ -493,6 +704,14 @@ public class Tool {
             }
         },
 
+        new Option(STD, SELECT, null, "-changedSince") {
+            @Override
+            public void process(String opt, String arg) {
+                File f = getNormalizedFile(new File(arg));
+                changedFilesListArg = f.toPath();
+            }
+        },
+
         new Option(NONE, MAIN, null, "-startHttpd") {
             @Override
             public void process(String opt, String arg) {
@@ -1167,6 +1386,10 @@ public class Tool {
             }
         }
 
+        if (workDirArg == null) {
+            workDirArg = Path.of("JTwork");
+        }
+
         if (testJDK == null) {
             String s = System.getenv("JAVA_HOME");
             if (s == null || s.length() == 0) {
@@ -1182,6 +1405,12 @@ public class Tool {
             testJDK = com.sun.javatest.regtest.config.JDK.of(f.toPath());
         }
 
+        if (jdkProbeCacheArg == null && !noJdkProbeCacheFlag) {
+            jdkProbeCacheArg = workDirArg.resolve("jdkProbes");
+        }
+        com.sun.javatest.regtest.config.JDK.setProbeCacheDirectory(
+                noJdkProbeCacheFlag ? null : jdkProbeCacheArg.toAbsolutePath());
+
         JDK_Version testJDK_version = checkJDK(testJDK);
 
         if (compileJDK != null) {
@@ -1220,10 +1449,6 @@ public class Tool {
             reportMode = ReportMode.ALL_EXECUTED;
         }
 
-        if (workDirArg == null) {
-            workDirArg = Path.of("JTwork");
-        }
-
         if (reportDirArg == null && reportMode != ReportMode.NONE) {
             reportDirArg = Path.of("JTreport");
         }
@@ -1326,6 +1551,14 @@ public class Tool {
                     p.setMaxPoolSize(maxPoolSize);
                     p.setIdleTimeout(poolIdleTimeout);
                     p.setNumAgentSelectionAttempts(numAgentSelectionAttempt);
+                    p.setSharedAgentSlots(sharedAgentSlots);
+                    p.setPrewarmCount(prewarmAgents);
+                    p.setMaxAgentUses(agentMaxUses);
+                    p.setHealthLimits(agentHealthLimits);
+                    if (agentCDSFlag) {
+                        p.setCDSArchiveDirectory(params.getWorkDirectory().getFile("cds").toPath());
+                    }
+                    p.setLibraryClassLoaders(agentLibraryLoadersFlag);
                     break;
                 case OTHERVM:
                     break;
@@ -1512,11 +1745,25 @@ public class Tool {
             }
             out.println(i18n.getString("main.tests.found", count));
             total += count;
+            finishTestDiscovery(ts);
         }
         if (testManager.isMultiRun())
             out.println(i18n.getString("main.tests.total", total));
     }
 
+    private void finishTestDiscovery(RegressionTestSuite ts) {
+        RegressionTestFinder tf = (RegressionTestFinder) ts.getTestFinder();
+        tf.stopParallelScan();
+        DiscoveryIndex index = tf.getDiscoveryIndex();
+        if (index != null) {
+            try {
+                index.save();
+            } catch (IOException e) {
+                err.println(i18n.getString("main.cantWriteDiscoveryIndex", e));
+            }
+        }
+    }
+
     /**
      * Process Win32-style command files for the specified command line
      * arguments and return the resulting arguments. A command file argument
@@ -1688,6 +1935,19 @@ public class Tool {
             WorkDirectory workDir = testManager.getWorkDirectory(testSuite);
             rp.setWorkDirectory(workDir);
 
+            // set up the discovery index before any tests are read
+            RegressionTestFinder tf = (RegressionTestFinder) testSuite.getTestFinder();
+            if (discoveryCacheArg != null && !discoveryCacheArg.equals("off")) {
+                if (tf.getDiscoveryIndex() == null) {
+                    Version v = Version.getCurrent();
+                    tf.setDiscoveryIndex(DiscoveryIndex.open(
+                            workDir.getSystemFile("discovery.index").toPath(),
+                            v.version + "+" + v.build + " " + v.buildDate,
+                            discoveryCacheArg.equals("content"),
+                            discoveryCacheArg.equals("clear")));
+                }
+            }
+
             // JT Harness 4.3+ requires a config file to be set
             rp.setFile(workDir.getFile("config.jti"));
 
@@ -1696,7 +1956,21 @@ public class Tool {
             // the tests are the tests to be executed by the harness, and do not
             // include the "query" component
             // 'null' means "all tests"
-            rp.setTests(testManager.getTests(testSuite));
+            Set<String> tests = testManager.getTests(testSuite);
+            rp.setTests(tests);
+
+            if (discoveryThreads > 1) {
+                File root = testSuite.getRootDir();
+                List<File> files = new ArrayList<>();
+                if (tests == null) {
+                    files.add(root);
+                } else {
+                    for (String t : tests) {
+                        files.add(new File(root, t));
+                    }
+                }
+                tf.startParallelScan(discoveryThreads, files);
+            }
 
             // the tests that have an associated query component, included in
             // the string
@@ -1715,6 +1989,7 @@ public class Tool {
 
             rp.setExcludeLists(excludeListArgs.toArray(new Path[0]));
             rp.setMatchLists(matchListArgs.toArray(new Path[0]));
+            rp.setChangedFilesList(changedFilesListArg);
 
             if (priorStatusValuesArg == null || priorStatusValuesArg.length() == 0)
                 rp.setPriorStatusValues(null);
@@ -1818,6 +2093,15 @@ public class Tool {
             if (nativeDirArg != null)
                 rp.setNativeDir(nativeDirArg.toAbsolutePath());
 
+            if (buildCacheArg != null)
+                rp.setBuildCacheDirectory(buildCacheArg.toAbsolutePath());
+
+            rp.setAsyncScratchCleanup(asyncScratchCleanupFlag);
+            rp.setSampleProcessResources(sampleProcessResourcesFlag);
+
+            if (resourceBudgetCores > 0)
+                rp.setResourceBudget(resourceBudgetCores, resourceBudgetMemory);
+
             rp.setUseWindowsSubsystemForLinux(useWindowsSubsystemForLinux);
 
             rp.setVerbose(verbose);
@@ -1882,6 +2166,8 @@ public class Tool {
             TestStats stats = new TestStats();
             boolean ok;
             ElapsedTimeHandler elapsedTimeHandler = null;
+            ResourceUsageHandler resourceUsageHandler = null;
+            StreamingReporter streamingReporter = null;
 
             if (reportOnlyFlag) {
                 for (Iterator<TestResult> iter = getResultsIterator(params); iter.hasNext(); ) {
@@ -1954,6 +2240,12 @@ public class Tool {
                 if (reportRequired) {
                     elapsedTimeHandler = new ElapsedTimeHandler();
                     elapsedTimeHandler.register(h);
+                    resourceUsageHandler = new ResourceUsageHandler();
+                    resourceUsageHandler.register(h);
+                    if (reportMode == ReportMode.STREAMING) {
+                        streamingReporter = new StreamingReporter(params.getReportDir().toFile(), out);
+                        streamingReporter.register(h);
+                    }
                 }
 
                 if (params.getTestJDK().hasModules()) {
@@ -1970,19 +2262,38 @@ public class Tool {
                 String[] tests = params.getTests();
                 ok = (tests != null && tests.length == 0) || h.batch(params);
 
+                finishTestDiscovery(params.getTestSuite());
+
                 Agent.Pool.flush(params);
+                ScratchReaper.flush(params);
                 try {
                     Agent.Logger.close(params);
                 } catch (IOException e) {
                     err.println(i18n.getString("main.errorClosingAgentLog", e));
                 }
                 Lock.get(params).close();
+                try {
+                    ResourceScheduler.close(params);
+                } catch (IOException e) {
+                    err.println(i18n.getString("main.errorSavingResourceHistory", e));
+                }
+                try {
+                    TestInputs.close(params);
+                } catch (IOException e) {
+                    err.println(i18n.getString("main.errorSavingTestInputs", e));
+                }
             }
 
-            if (!quiet)
+            if (!quiet) {
                 stats.showResultStats(out);
+                if (verbose != null && verbose.time)
+                    stats.showFilterCacheStats(out);
+            }
 
-            if (reportRequired) {
+            if (reportRequired && streamingReporter != null) {
+                RegressionReporter r = new RegressionReporter(out);
+                r.report(params, streamingReporter, elapsedTimeHandler, resourceUsageHandler, stats, quiet);
+            } else if (reportRequired) {
                 RegressionReporter r = new RegressionReporter(out);
                 TestFilter tf;
                 if (reportOnlyFlag) {
@@ -1995,7 +2306,8 @@ public class Tool {
                         default:
                             throw new IllegalStateException();
 
-                        case EXECUTED: {
+                        case EXECUTED:
+                        case STREAMING: {
                             ParameterFilter pf = new ParameterFilter();
                             pf.update(params);
                             tf = pf;
@@ -2030,7 +2342,7 @@ public class Tool {
                         }
                     }
                 }
-                r.report(params, elapsedTimeHandler, stats, tf, quiet);
+                r.report(params, elapsedTimeHandler, resourceUsageHandler, stats, tf, quiet);
             }
 
             if (!reportOnlyFlag && !quiet)
@@ -2403,8 +2715,10 @@ public class Tool {
     private boolean guiFlag;
     private boolean reportOnlyFlag;
     private String showStream;
-    public enum ReportMode { NONE, EXECUTED, FILES, ALL_EXECUTED, ALL }
+    public enum ReportMode { NONE, EXECUTED, FILES, ALL_EXECUTED, ALL, STREAMING }
     private ReportMode reportMode;
+    private String discoveryCacheArg;
+    private int discoveryThreads = 1;
     private boolean allowSetSecurityManagerFlag = true;
     private static Verbose  verbose;
     private boolean httpdFlag;
@@ -2420,6 +2734,15 @@ public class Tool {
     private Duration poolIdleTimeout = Duration.ofSeconds(30);
     // number of attempts to get an agent for an action
     private int numAgentSelectionAttempt = DEFAULT_NUM_AGENT_SEL_ATTEMPT;
+    // number of agents to create ahead of demand for each kind of agent; 0 to disable
+    private int prewarmAgents = 0;
+    // max number of actions executed by an agent before it is closed; 0 for no limit
+    private int agentMaxUses = 0;
+    private Map<String, Long> agentHealthLimits = new LinkedHashMap<>();
+    private boolean agentCDSFlag;
+    private boolean agentLibraryLoadersFlag;
+    // number of concurrent compilations in each shared agent; 0 to disable shared agents
+    private int sharedAgentSlots = 0;
     private List<String> testCompilerOpts = new ArrayList<>();
     private List<String> testJavaOpts = new ArrayList<>();
     private List<String> testVMOpts = new ArrayList<>();
@@ -2432,6 +2755,13 @@ public class Tool {
     private IgnoreKind ignoreKind;
     private List<Path> classPathAppendArg = new ArrayList<>();
     private Path nativeDirArg;
+    private Path buildCacheArg;
+    private boolean asyncScratchCleanupFlag;
+    private boolean sampleProcessResourcesFlag;
+    private Path jdkProbeCacheArg;
+    private boolean noJdkProbeCacheFlag;
+    private int resourceBudgetCores;
+    private long resourceBudgetMemory;
     private Boolean useWindowsSubsystemForLinux;
     private boolean jitFlag = true;
     private Help help;
@@ -2439,6 +2769,7 @@ public class Tool {
     private boolean xmlVerifyFlag;
     private Path exclusiveLockArg;
     private List<Path> matchListArgs = new ArrayList<>();
+    private Path changedFilesListArg;
 
     private final Path javatest_jar;
     private final Path jtreg_jar;
@@ -2474,5 +2805,12 @@ public class Tool {
     // by default we don't re-attempt on a failure
     private static final int DEFAULT_NUM_AGENT_SEL_ATTEMPT = 1;
 
+    // the names used in --agent-health-limits, and the corresponding names reported by agents
+    private static final Map<String, String> healthLimitNames = Map.of(
+            "threads", AgentHealth.LIVE_THREADS,
+            "classes", AgentHealth.LOADED_CLASSES,
+            "heap", AgentHealth.HEAP_AFTER_GC,
+            "metaspace", AgentHealth.METASPACE);
+
     private static final I18NResourceBundle i18n = I18NResourceBundle.getBundleForClass(Tool.class);
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javatest.regtest.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copies the output of child processes to writers, using threads from a shared executor.
+ *
+ * Reading from a process stream blocks, and so each stream being copied
+ * requires a thread. If virtual threads are available, a virtual thread is
+ * used for each stream; otherwise, platform threads are taken from a pool,
+ * in which idle threads are reused for later streams instead of a new thread
+ * being created for each stream.
+ *
+ * Output is copied in blocks of characters, instead of line by line.
+ * The output is only split into lines if a {@link LineScanner} is given.
+ */
+public final class StreamPump {
+    private StreamPump() { }
+
+    /**
+     * An object to examine each line of the output being copied.
+     */
+    public interface LineScanner {
+        void scan(String line);
+    }
+
+    /**
+     * A copy operation that has been started.
+     */
+    public static final class Transfer {
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private Transfer() { }
+
+        /**
+         * Waits for all the output to have been copied, until the end of the input stream is reached.
+         *
+         * @throws InterruptedException if the current thread is interrupted while waiting
+         */
+        public void join() throws InterruptedException {
+            done.await();
+        }
+    }
+
+    /**
+     * Starts copying an input stream to a writer.
+     * The input stream is decoded using the default charset.
+     *
+     * @param in  the input stream
+     * @param out the writer, or {@code null} if the output should only be scanned
+     * @return an object that can be used to wait for the copy to complete
+     */
+    public static Transfer copy(InputStream in, PrintWriter out) {
+        return copy(in, out, null);
+    }
+
+    /**
+     * Starts copying an input stream to a writer, passing each line of the output
+     * to a scanner.
+     * The input stream is decoded using the default charset.
+     *
+     * @param in      the input stream
+     * @param out     the writer, or {@code null} if the output should only be scanned
+     * @param scanner the scanner, or {@code null}
+     * @return an object that can be used to wait for the copy to complete
+     */
+    public static Transfer copy(InputStream in, PrintWriter out, LineScanner scanner) {
+        Transfer t = new Transfer();
+        executor.execute(() -> {
+            try {
+                run(new InputStreamReader(in), out, scanner);
+            } finally {
+                t.done.countDown();
+            }
+        });
+        return t;
+    }
+
+    private static void run(Reader in, PrintWriter out, LineScanner scanner) {
+        char[] buf = new char[BUFSIZE];
+        StringBuilder line = (scanner == null) ? null : new StringBuilder();
+        char last = '\n';
+        try {
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                if (n == 0) {
+                    continue;
+                }
+                if (out != null) {
+                    out.write(buf, 0, n);
+                    out.flush();
+                }
+                if (scanner != null) {
+                    int start = 0;
+                    for (int i = 0; i < n; i++) {
+                        if (buf[i] == '\n') {
+                            line.append(buf, start, i - start);
+                            scan(scanner, line);
+                            start = i + 1;
+                        }
+                    }
+                    line.append(buf, start, n - start);
+                }
+                last = buf[n - 1];
+            }
+        } catch (IOException ignore) {
+        } finally {
+            // as with BufferedReader.readLine, an incomplete final line is treated as a line
+            if (last != '\n') {
+                if (out != null) {
+                    out.println();
+                }
+                if (scanner != null) {
+                    scan(scanner, line);
+                }
+            }
+        }
+    }
+
+    private static void scan(LineScanner scanner, StringBuilder line) {
+        int len = line.length();
+        if (len > 0 && line.charAt(len - 1) == '\r') {
+            line.setLength(len - 1);
+        }
+        scanner.scan(line.toString());
+        line.setLength(0);
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // Executors.newVirtualThreadPerTaskExecutor is available in JDK 21 and later
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory tf = r -> {
+                Thread t = new Thread(r, "StreamPump-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            return Executors.newCachedThreadPool(tf);
+        }
+    }
+
+    private static final int BUFSIZE = 8192;
+    private static final ExecutorService executor = createExecutor();
+}
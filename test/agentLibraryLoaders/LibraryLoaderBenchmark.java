@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import com.sun.javatest.regtest.agent.AgentServer;
+
+/**
+ * Latency benchmark for main actions that use a library, executed by an
+ * agent server with and without a cache of library class loaders.
+ *
+ * A library of generated classes is compiled, along with a test class that
+ * loads and initializes all the classes in the library. For each mode, an
+ * agent server is started, and used to run the test class several times.
+ * The time is measured from sending each request to reading its final status.
+ * The first action in each agent loads the library classes in both modes;
+ * with the cache, later actions reuse the classes that are already loaded.
+ *
+ * Usage: LibraryLoaderBenchmark [classes [actions]]
+ */
+public class LibraryLoaderBenchmark {
+    public static void main(String... args) throws Exception {
+        int classes = (args.length > 0) ? Integer.parseInt(args[0]) : 500;
+        int actions = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        new LibraryLoaderBenchmark().run(classes, actions);
+    }
+
+    private Path libClasses;
+    private Path testClasses;
+
+    void run(int classes, int actions) throws Exception {
+        Path dir = Files.createTempDirectory("libraryLoaderBenchmark");
+        compile(dir, classes);
+
+        double[] results = new double[2];
+        for (int mode = 0; mode < 2; mode++) {
+            boolean cache = (mode == 1);
+            long[] times = runAgent(cache, actions);
+            long rest = 0;
+            for (int i = 1; i < times.length; i++) {
+                rest += times[i];
+            }
+            results[mode] = (times.length > 1) ? (double) rest / (times.length - 1) : times[0];
+            System.out.printf("%s: first action %d ms, later actions %.1f ms (mean of %d)%n",
+                    cache ? "with library loader cache   " : "without library loader cache",
+                    times[0], results[mode], times.length - 1);
+        }
+        System.out.printf("speedup: %.2fx%n", results[0] / results[1]);
+    }
+
+    /**
+     * Generates and compiles the library classes and the test class.
+     */
+    void compile(Path dir, int classes) throws IOException {
+        Path libSrc = Files.createDirectories(dir.resolve("libsrc").resolve("lib"));
+        List<String> libFiles = new ArrayList<>();
+        StringBuilder test = new StringBuilder();
+        test.append("public class BenchTest {\n")
+                .append("    public static void main(String... args) throws Exception {\n")
+                .append("        ClassLoader l = BenchTest.class.getClassLoader();\n")
+                .append("        long sum = 0;\n");
+        for (int i = 0; i < classes; i++) {
+            String name = "C" + i;
+            StringBuilder sb = new StringBuilder();
+            sb.append("package lib;\n")
+                    .append("public class ").append(name).append(" {\n")
+                    .append("    static final java.util.Map<String, Integer> map = new java.util.HashMap<>();\n")
+                    .append("    static { for (int i = 0; i < 32; i++) map.put(\"k\" + i, i); }\n");
+            for (int m = 0; m < 16; m++) {
+                sb.append("    public static int m").append(m).append("(int x) {")
+                        .append(" return map.getOrDefault(\"k\" + (x % 32), 0) + ").append(m).append("; }\n");
+            }
+            sb.append("}\n");
+            Path f = libSrc.resolve(name + ".java");
+            Files.write(f, sb.toString().getBytes());
+            libFiles.add(f.toString());
+            test.append("        sum += Class.forName(\"lib.").append(name).append("\", true, l).hashCode();\n");
+        }
+        test.append("        System.out.println(sum);\n")
+                .append("    }\n")
+                .append("}\n");
+        Path testSrc = Files.createDirectories(dir.resolve("testsrc"));
+        Path testFile = testSrc.resolve("BenchTest.java");
+        Files.write(testFile, test.toString().getBytes());
+
+        libClasses = Files.createDirectories(dir.resolve("libclasses"));
+        testClasses = Files.createDirectories(dir.resolve("testclasses"));
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        List<String> libArgs = new ArrayList<>(List.of("-d", libClasses.toString()));
+        libArgs.addAll(libFiles);
+        expect(javac.run(null, null, null, libArgs.toArray(new String[0])) == 0, "library compilation failed");
+        expect(javac.run(null, null, null, "-d", testClasses.toString(), testFile.toString()) == 0,
+                "test compilation failed");
+    }
+
+    /**
+     * Runs an agent server, with or without the cache of library class loaders,
+     * and uses it to execute the test class a number of times.
+     *
+     * @return the time in milliseconds for each action
+     */
+    long[] runAgent(boolean cache, int actions) throws Exception {
+        File logFile = File.createTempFile("agentServer", ".log");
+        logFile.deleteOnExit();
+        try (ServerSocket ss = new ServerSocket()) {
+            ss.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+            List<String> cmd = new ArrayList<>();
+            cmd.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+            cmd.add("-classpath");
+            cmd.add(System.getProperty("java.class.path"));
+            cmd.add(AgentServer.class.getName());
+            cmd.add(AgentServer.LOGFILE);
+            cmd.add(logFile.getPath());
+            cmd.add(AgentServer.PORT);
+            cmd.add(String.valueOf(ss.getLocalPort()));
+            cmd.add(AgentServer.PROTOCOL);
+            cmd.add(String.valueOf(AgentServer.PROTOCOL_FRAMED_OUTPUT));
+            if (cache) {
+                cmd.add(AgentServer.LIBRARY_LOADERS);
+            }
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.INHERIT).start();
+            ss.setSoTimeout(60 * 1000);
+            try (Socket s = ss.accept()) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                DataOutputStream out = new DataOutputStream(s.getOutputStream());
+                expect(in.readByte() == AgentServer.HELLO, "expected HELLO");
+                expect(in.readShort() == AgentServer.PROTOCOL_FRAMED_OUTPUT, "unexpected protocol version");
+                in.readUTF(); // native encoding
+
+                long[] times = new long[actions];
+                for (int i = 0; i < actions; i++) {
+                    long start = System.nanoTime();
+                    // See Agent.doMainAction
+                    out.writeByte(AgentServer.DO_MAIN);
+                    out.writeUTF("LibraryLoaderBenchmark");
+                    out.writeShort(0); // properties
+                    out.writeShort(0); // add exports
+                    out.writeShort(0); // add opens
+                    out.writeShort(0); // add modules
+                    if (cache) {
+                        out.writeUTF(testClasses.toString());
+                        out.writeUTF(libClasses.toString());
+                    } else {
+                        out.writeUTF(testClasses + File.pathSeparator + libClasses);
+                    }
+                    out.writeUTF("");
+                    out.writeUTF("BenchTest");
+                    out.writeShort(0);
+                    out.flush();
+
+                    readResults(in);
+                    times[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+
+                out.writeByte(AgentServer.CLOSE);
+                out.flush();
+                return times;
+            } finally {
+                if (!p.waitFor(60, TimeUnit.SECONDS)) {
+                    p.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads and discards the output for an action, and checks the final status.
+     */
+    void readResults(DataInputStream in) throws IOException {
+        while (true) {
+            int op = in.readByte();
+            switch (op) {
+                case AgentServer.OUTPUT:
+                    in.readUnsignedByte(); // stream id
+                    byte[] data = new byte[in.readInt()];
+                    in.readFully(data);
+                    break;
+                case AgentServer.STATUS:
+                    int type = in.readByte();
+                    String reason = in.readUTF();
+                    expect(type == 0, "unexpected status: " + type + " " + reason);
+                    return;
+                case AgentServer.KEEPALIVE:
+                    break;
+                default:
+                    throw new IOException("unexpected op: " + op);
+            }
+        }
+    }
+
+    void expect(boolean cond, String message) {
+        if (!cond) {
+            throw new AssertionError(message);
+        }
+    }
+}
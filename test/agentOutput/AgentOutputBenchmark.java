@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.javatest.regtest.agent.AgentServer;
+
+/**
+ * Throughput benchmark for the output written by an agent server,
+ * comparing the original text output protocol with the framed output protocol.
+ *
+ * For each protocol, an agent server is started, and used to run a class that
+ * writes a large amount of output, in a mix of small and large writes,
+ * to System.out. The time is measured from sending the request to reading
+ * the final status, and the amount of output received is checked.
+ *
+ * Usage: AgentOutputBenchmark [megabytes [iterations]]
+ */
+public class AgentOutputBenchmark {
+    public static void main(String... args) throws Exception {
+        int mb = (args.length > 0) ? Integer.parseInt(args[0]) : 64;
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+        new AgentOutputBenchmark().run(mb, iterations);
+    }
+
+    /**
+     * The class run in the agent server to generate the output.
+     */
+    public static class Spew {
+        public static void main(String... args) {
+            long bytes = Long.parseLong(args[0]);
+            String line = "0123456789 abcdefghijklmnopqrstuvwxyz ABCDEFGHIJKLMNOPQRSTUVWXYZ\n";
+            StringBuilder sb = new StringBuilder();
+            while (sb.length() < 8192) {
+                sb.append(line);
+            }
+            String block = sb.toString();
+            PrintStream out = System.out;
+            long written = 0;
+            while (written < bytes) {
+                // mostly small writes, with an occasional large one
+                if ((written / line.length()) % 64 == 0) {
+                    out.print(block);
+                    written += block.length();
+                } else {
+                    out.print(line);
+                    written += line.length();
+                }
+            }
+            out.flush();
+        }
+    }
+
+    void run(int mb, int iterations) throws Exception {
+        long bytes = mb * 1024L * 1024L;
+        long[] results = new long[AgentServer.PROTOCOL_VERSION + 1];
+        for (int protocol = AgentServer.PROTOCOL_TEXT_OUTPUT; protocol <= AgentServer.PROTOCOL_VERSION; protocol++) {
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < iterations; i++) {
+                long t = runAgent(protocol, bytes);
+                best = Math.min(best, t);
+            }
+            results[protocol] = best;
+            System.out.printf("protocol %d: %d MB in %d ms (%.1f MB/s)%n",
+                    protocol, mb, best, mb * 1000.0 / best);
+        }
+        System.out.printf("speedup: %.2fx%n",
+                (double) results[AgentServer.PROTOCOL_TEXT_OUTPUT] / results[AgentServer.PROTOCOL_FRAMED_OUTPUT]);
+    }
+
+    /**
+     * Runs an agent server, using the given protocol, to execute the Spew class.
+     *
+     * @return the time in milliseconds to receive all the output and the final status
+     */
+    long runAgent(int protocol, long bytes) throws Exception {
+        File logFile = File.createTempFile("agentServer", ".log");
+        logFile.deleteOnExit();
+        try (ServerSocket ss = new ServerSocket()) {
+            ss.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+            List<String> cmd = new ArrayList<>();
+            cmd.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+            cmd.add("-classpath");
+            cmd.add(System.getProperty("java.class.path"));
+            cmd.add(AgentServer.class.getName());
+            cmd.add(AgentServer.LOGFILE);
+            cmd.add(logFile.getPath());
+            cmd.add(AgentServer.PORT);
+            cmd.add(String.valueOf(ss.getLocalPort()));
+            if (protocol != AgentServer.PROTOCOL_TEXT_OUTPUT) {
+                cmd.add(AgentServer.PROTOCOL);
+                cmd.add(String.valueOf(protocol));
+            }
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.INHERIT).start();
+            ss.setSoTimeout(60 * 1000);
+            try (Socket s = ss.accept()) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                DataOutputStream out = new DataOutputStream(s.getOutputStream());
+                if (protocol != AgentServer.PROTOCOL_TEXT_OUTPUT) {
+                    expect(in.readByte() == AgentServer.HELLO, "expected HELLO");
+                    expect(in.readShort() == protocol, "unexpected protocol version");
+                    in.readUTF(); // native encoding
+                }
+
+                long start = System.nanoTime();
+                // See Agent.doMainAction
+                out.writeByte(AgentServer.DO_MAIN);
+                out.writeUTF("AgentOutputBenchmark");
+                out.writeShort(0); // properties
+                out.writeShort(0); // add exports
+                out.writeShort(0); // add opens
+                out.writeShort(0); // add modules
+                out.writeUTF(System.getProperty("java.class.path"));
+                out.writeUTF("");
+                out.writeUTF(Spew.class.getName());
+                out.writeShort(1);
+                out.writeUTF(String.valueOf(bytes));
+                out.flush();
+
+                long received = readResults(protocol, in);
+                long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                expect(received >= bytes, "not enough output received: " + received);
+
+                out.writeByte(AgentServer.CLOSE);
+                out.flush();
+                return time;
+            } finally {
+                if (!p.waitFor(60, TimeUnit.SECONDS)) {
+                    p.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the output and final status for an action.
+     * The output is decoded, as it would be by the client, but then discarded.
+     *
+     * @return the number of characters of output written to System.out
+     */
+    long readResults(int protocol, DataInputStream in) throws IOException {
+        long received = 0;
+        while (true) {
+            int op = in.readByte();
+            switch (op) {
+                case AgentServer.OUTPUT:
+                    if (protocol == AgentServer.PROTOCOL_TEXT_OUTPUT) {
+                        String name = in.readUTF();
+                        String data = in.readUTF();
+                        if (name.equals("System.out")) {
+                            received += data.length();
+                        }
+                    } else {
+                        int streamId = in.readUnsignedByte();
+                        byte[] data = new byte[in.readInt()];
+                        in.readFully(data);
+                        // output written to System.out is ASCII, and so can be decoded as UTF-8
+                        String s = new String(data, StandardCharsets.UTF_8);
+                        if ((streamId & AgentServer.NATIVE_ENCODING) != 0) {
+                            received += s.length();
+                        }
+                    }
+                    break;
+                case AgentServer.STATUS:
+                    int type = in.readByte();
+                    String reason = in.readUTF();
+                    expect(type == 0, "unexpected status: " + type + " " + reason);
+                    if (protocol >= AgentServer.PROTOCOL_RESOURCE_USAGE) {
+                        // resources used by the action
+                        int n = in.readShort();
+                        for (int i = 0; i < n; i++) {
+                            in.readUTF();
+                            in.readUTF();
+                        }
+                    }
+                    return received;
+                case AgentServer.KEEPALIVE:
+                    break;
+                default:
+                    throw new IOException("unexpected op: " + op);
+            }
+        }
+    }
+
+    void expect(boolean cond, String message) {
+        if (!cond) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.javatest.regtest.Main;
+
+/**
+ * Benchmark for contention in the agent pool, when many threads execute
+ * tests in agent VMs at the same time.
+ *
+ * The benchmark creates a test suite of trivial tests, and runs it with
+ * jtreg in agent mode, with the given number of threads, several times,
+ * in a new work directory each time. In each run, every thread needs its
+ * own agents, so that many agents are started at the same time, and are
+ * then obtained from and saved to the pool for each test.
+ *
+ * For each run, the elapsed time, the rate at which tests are executed,
+ * and the number of agents that were used are reported.
+ *
+ * Usage: AgentPoolBenchmark [threads [tests [runs]]]
+ */
+public class AgentPoolBenchmark {
+    public static void main(String... args) throws Exception {
+        int threads = (args.length > 0) ? Integer.parseInt(args[0]) : 64;
+        int tests = (args.length > 1) ? Integer.parseInt(args[1]) : threads * 4;
+        int runs = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+        new AgentPoolBenchmark(threads, tests).run(runs);
+    }
+
+    private final int threads;
+    private final int tests;
+    private final Path baseDir;
+
+    AgentPoolBenchmark(int threads, int tests) throws IOException {
+        this.threads = threads;
+        this.tests = tests;
+        this.baseDir = Path.of(System.getProperty("user.dir")).resolve("agentPoolBenchmark");
+    }
+
+    void run(int runs) throws Exception {
+        Path testSuite = createTestSuite();
+        System.out.println("Threads: " + threads + ", tests: " + tests);
+        for (int i = 1; i <= runs; i++) {
+            Path workDir = baseDir.resolve("work." + i);
+            Path reportDir = baseDir.resolve("report." + i);
+            StringWriter sw = new StringWriter();
+            PrintWriter pw = new PrintWriter(sw);
+            long start = System.nanoTime();
+            int rc = new Main(pw, pw).run(new String[] {
+                    "-agentvm",
+                    "-conc:" + threads,
+                    "-w:" + workDir,
+                    "-r:" + reportDir,
+                    "-jdk:" + System.getProperty("java.home"),
+                    testSuite.toString()
+            });
+            long elapsed = System.nanoTime() - start;
+            pw.flush();
+            if (rc != Main.EXIT_OK) {
+                System.out.println(sw);
+                throw new Exception("run " + i + " failed: exit code " + rc);
+            }
+            double seconds = elapsed / 1e9;
+            System.out.printf("Run %d: %6.2f s, %7.1f tests/s, %3d agents%n",
+                    i, seconds, tests / seconds, countAgents(workDir));
+        }
+    }
+
+    private Path createTestSuite() throws IOException {
+        Path dir = baseDir.resolve("tests");
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve("TEST.ROOT"), "");
+        for (int i = 0; i < tests; i++) {
+            String name = String.format("Test%04d", i);
+            Files.writeString(dir.resolve(name + ".java"), String.join("\n",
+                    "/*",
+                    " * @test",
+                    " */",
+                    "public class " + name + " {",
+                    "    public static void main(String... args) {",
+                    "        System.out.println(\"" + name + "\");",
+                    "    }",
+                    "}",
+                    ""));
+        }
+        return dir;
+    }
+
+    /**
+     * Returns the number of agents that were used, as reported in the
+     * agent summary file, or -1 if the number is not available.
+     */
+    private int countAgents(Path workDir) throws IOException {
+        Path summary = workDir.resolve("jtData").resolve("agent.summary");
+        if (!Files.exists(summary)) {
+            return -1;
+        }
+        List<String> lines = Files.readAllLines(summary);
+        Pattern usage = Pattern.compile("\\s+[0-9]+:\\s+[0-9]+");
+        int count = 0;
+        boolean inUsage = false;
+        for (String line : lines) {
+            if (line.equals("Agent Usage:")) {
+                inUsage = true;
+            } else if (inUsage) {
+                Matcher m = usage.matcher(line);
+                if (!m.matches()) {
+                    break;
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+}
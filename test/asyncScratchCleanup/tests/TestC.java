@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+ * @test
+ * @run main TestC
+ */
+public class TestC {
+    public static void main(String[] args) throws IOException {
+        // the files left by any earlier test should have been removed
+        Path dir = Path.of("leftover");
+        if (Files.exists(dir)) {
+            throw new Error("files left by an earlier test: " + dir.toAbsolutePath());
+        }
+        for (int i = 0; i < 10; i++) {
+            Path sub = Files.createDirectories(dir.resolve("dir" + i));
+            for (int j = 0; j < 100; j++) {
+                Files.writeString(sub.resolve("file" + j + ".txt"), "TestC " + i + " " + j);
+            }
+        }
+        // leave a read-only directory, which cannot be moved on some platforms
+        File ro = new File("readonly");
+        if (ro.exists()) {
+            throw new Error("files left by an earlier test: " + ro.getAbsolutePath());
+        }
+        ro.mkdir();
+        Files.writeString(ro.toPath().resolve("file.txt"), "TestC");
+        ro.setWritable(false);
+        System.out.println("TestC");
+    }
+}
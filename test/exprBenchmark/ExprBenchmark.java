@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import com.sun.javatest.regtest.config.Expr;
+import com.sun.javatest.regtest.config.ExprCompiler;
+
+/**
+ * Microbenchmark for the evaluation of {@code @requires} expressions,
+ * comparing parsing and evaluating the text of each expression for each test
+ * with evaluating expressions compiled by {@link ExprCompiler}.
+ *
+ * The corpus of expressions is either a built-in sample of expressions typical
+ * of those found in the JDK test suites, or the {@code @requires} expressions
+ * found in the files of one or more directories, such as {@code test/hotspot/jtreg}
+ * and {@code test/jdk} in a JDK repository. As in jtreg, multiple {@code @requires}
+ * in the same test description are combined into a single expression.
+ *
+ * Before measuring, the results of the two ways of evaluating each expression,
+ * including any errors, are checked to be the same.
+ *
+ * Usage: ExprBenchmark [iterations [directory...]]
+ */
+public class ExprBenchmark {
+    public static void main(String... args) throws Exception {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+        List<String> corpus = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            corpus.addAll(readCorpus(Paths.get(args[i])));
+        }
+        if (corpus.isEmpty()) {
+            corpus = sampleCorpus();
+        }
+        new ExprBenchmark(corpus).run(iterations);
+    }
+
+    private final List<String> corpus;
+    private final Expr.Context context;
+
+    ExprBenchmark(List<String> corpus) {
+        this.corpus = corpus;
+        this.context = new MapContext(sampleProperties());
+    }
+
+    void run(int iterations) throws Exception {
+        long distinct = corpus.stream().distinct().count();
+        System.out.println("Corpus: " + corpus.size() + " expressions, " + distinct + " distinct");
+
+        check();
+
+        // warm up
+        for (int i = 0; i < Math.max(1, iterations / 4); i++) {
+            parseEach();
+            compileEach();
+        }
+
+        long parseTime = 0, compileTime = 0, evalTime = 0;
+        List<Expr> compiled = compileAll();
+        for (int i = 0; i < iterations; i++) {
+            parseTime += time(this::parseEach);
+            compileTime += time(this::compileEach);
+            evalTime += time(() -> evalEach(compiled));
+        }
+        report("parse and evaluate each", parseTime, iterations);
+        report("compile shared, evaluate", compileTime, iterations);
+        report("evaluate precompiled", evalTime, iterations);
+        System.out.printf("Speedup (compile shared): %.1fx%n", (double) parseTime / compileTime);
+    }
+
+    /**
+     * Checks that evaluating the compiled form of each expression gives the same
+     * result, or the same error, as parsing and evaluating its text.
+     */
+    void check() {
+        ExprCompiler compiler = new ExprCompiler(context);
+        int errors = 0;
+        for (String text : corpus) {
+            String expect, found;
+            try {
+                expect = String.valueOf(Expr.parse(text, context).evalBoolean(context));
+            } catch (Expr.Fault | RuntimeException e) {
+                expect = "error: " + e.getMessage();
+            }
+            try {
+                found = String.valueOf(compiler.evalBoolean(text));
+            } catch (Expr.Fault | RuntimeException e) {
+                found = "error: " + e.getMessage();
+            }
+            if (!Objects.equals(expect, found)) {
+                System.err.println("Mismatch for: " + text);
+                System.err.println("  expect: " + expect);
+                System.err.println("  found:  " + found);
+                errors++;
+            }
+        }
+        if (errors > 0) {
+            throw new Error(errors + " mismatches");
+        }
+    }
+
+    int parseEach() {
+        int count = 0;
+        for (String text : corpus) {
+            try {
+                if (Expr.parse(text, context).evalBoolean(context)) {
+                    count++;
+                }
+            } catch (Expr.Fault | RuntimeException e) {
+                // ignore
+            }
+        }
+        return count;
+    }
+
+    int compileEach() {
+        ExprCompiler compiler = new ExprCompiler(context);
+        int count = 0;
+        for (String text : corpus) {
+            try {
+                if (compiler.evalBoolean(text)) {
+                    count++;
+                }
+            } catch (Expr.Fault | RuntimeException e) {
+                // ignore
+            }
+        }
+        return count;
+    }
+
+    List<Expr> compileAll() {
+        ExprCompiler compiler = new ExprCompiler(context);
+        List<Expr> list = new ArrayList<>();
+        for (String text : corpus) {
+            try {
+                list.add(compiler.compile(text));
+            } catch (Expr.Fault e) {
+                // ignore
+            }
+        }
+        return list;
+    }
+
+    int evalEach(List<Expr> exprs) {
+        int count = 0;
+        for (Expr e : exprs) {
+            try {
+                if (e.evalBoolean(context)) {
+                    count++;
+                }
+            } catch (Expr.Fault | RuntimeException ex) {
+                // ignore
+            }
+        }
+        return count;
+    }
+
+    interface Task {
+        int run();
+    }
+
+    private long time(Task t) {
+        long start = System.nanoTime();
+        int n = t.run();
+        long time = System.nanoTime() - start;
+        if (n < 0) {
+            throw new AssertionError(); // use result
+        }
+        return time;
+    }
+
+    private void report(String name, long nanos, int iterations) {
+        double perExpr = (double) nanos / iterations / corpus.size();
+        System.out.printf("%-26s %8.1f ms/iteration %8.1f ns/expression%n",
+                name + ":", nanos / 1e6 / iterations, perExpr);
+    }
+
+    /**
+     * Reads the {@code @requires} expressions for the test descriptions in the
+     * files in a directory.
+     */
+    static List<String> readCorpus(Path dir) throws IOException {
+        Pattern test = Pattern.compile("^\\s*\\*?\\s*@test\\b");
+        Pattern requires = Pattern.compile("^\\s*\\*?\\s*@requires\\s+(.*)$");
+        List<String> corpus = new ArrayList<>();
+        List<Path> files;
+        try (Stream<Path> s = Files.walk(dir)) {
+            files = s.filter(p -> p.toString().endsWith(".java") || p.toString().endsWith(".sh"))
+                    .sorted()
+                    .collect(java.util.stream.Collectors.toList());
+        }
+        for (Path file : files) {
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(file);
+            } catch (IOException e) {
+                continue; // e.g. malformed input
+            }
+            String expr = null;
+            for (String line : lines) {
+                if (test.matcher(line).find()) {
+                    if (expr != null) {
+                        corpus.add(expr);
+                    }
+                    expr = null;
+                    continue;
+                }
+                Matcher m = requires.matcher(line);
+                if (m.matches()) {
+                    String value = m.group(1).trim();
+                    expr = (expr == null) ? value : "(" + expr + ") & (" + value + ")";
+                }
+            }
+            if (expr != null) {
+                corpus.add(expr);
+            }
+        }
+        return corpus;
+    }
+
+    /**
+     * Returns a sample of expressions typical of those found in the JDK test suites,
+     * repeated in proportions that approximate the frequency of their use.
+     */
+    static List<String> sampleCorpus() {
+        String[][] samples = {
+            { "200", "vm.flagless" },
+            { "150", "vm.gc == \"null\"" },
+            { "120", "vm.compMode != \"Xint\"" },
+            { "100", "os.family == \"linux\"" },
+            { "100", "os.family != \"windows\"" },
+            { "80",  "vm.bits == \"64\"" },
+            { "80",  "vm.gc.G1" },
+            { "60",  "vm.gc == \"G1\" | vm.gc == \"null\"" },
+            { "60",  "vm.debug == true" },
+            { "50",  "vm.hasJFR" },
+            { "50",  "vm.cds" },
+            { "40",  "vm.jvmci" },
+            { "40",  "(vm.flagless) & (vm.gc.Serial)" },
+            { "40",  "os.arch == \"amd64\" | os.arch == \"x86_64\" | os.arch == \"aarch64\"" },
+            { "40",  "os.arch==\"x86_64\" | os.arch==\"amd64\"" },
+            { "30",  "os.maxMemory > 4g" },
+            { "30",  "os.maxMemory >= 2G & os.processors > 2" },
+            { "30",  "vm.opt.final.UseCompressedOops" },
+            { "30",  "vm.opt.TieredStopAtLevel == null | vm.opt.TieredStopAtLevel == 4" },
+            { "30",  "!vm.graal.enabled" },
+            { "30",  "vm.compiler2.enabled & vm.compMode != \"Xcomp\"" },
+            { "25",  "(os.family == \"linux\") & (vm.bits == \"64\")" },
+            { "25",  "os.simpleArch == \"x64\" | os.simpleArch == \"aarch64\"" },
+            { "20",  "jdk.version.major >= 17" },
+            { "20",  "java.specification.version ~= \"2[0-9]\"" },
+            { "20",  "os.name ~= \".*Linux.*\" & !(os.arch ~= \"arm.*\")" },
+            { "20",  "vm.opt.final.ClassUnloading == true" },
+            { "15",  "vm.continuations" },
+            { "15",  "(vm.gc.Z) & (vm.opt.ZGenerational == null | vm.opt.ZGenerational == true)" },
+            { "15",  "vm.rtm.cpu & vm.rtm.compiler" },
+            { "15",  "os.maxMemory > 3g & os.family != \"windows\" & vm.bits == 64" },
+            { "10",  "(vm.opt.MaxGCPauseMillis == \"null\") & (vm.opt.ExplicitGCInvokesConcurrent != true)" },
+            { "10",  "os.processors >= 4 & os.maxMemory >= 1024M" },
+            { "10",  "test.thread.factory == null" },
+            { "10",  "vm.musl == false" },
+            { "5",   "os.maxMemory > one" },
+            { "5",   "unknown.property == \"x\"" },
+            { "5",   "jdk.version.major % 2 == 0 & jdk.version.major / 2 > 4" },
+        };
+        List<String> corpus = new ArrayList<>();
+        for (String[] s : samples) {
+            int n = Integer.parseInt(s[0]);
+            for (int i = 0; i < n; i++) {
+                corpus.add(s[1]);
+            }
+        }
+        return corpus;
+    }
+
+    /**
+     * Returns values typical of those in the context used to evaluate
+     * {@code @requires} expressions on a Linux x64 host.
+     */
+    static Map<String, String> sampleProperties() {
+        Map<String, String> m = new HashMap<>();
+        m.put("null", "null");
+        m.put("os.name", "Linux");
+        m.put("os.family", "linux");
+        m.put("os.arch", "amd64");
+        m.put("os.simpleArch", "x64");
+        m.put("os.processors", "16");
+        m.put("os.maxMemory", String.valueOf(32L * 1024 * 1024 * 1024));
+        m.put("os.maxSwap", "0");
+        m.put("java.specification.version", "25");
+        m.put("jdk.version", "25");
+        m.put("jdk.version.major", "25");
+        m.put("file.separator", "/");
+        m.put("test.thread.factory", "null");
+        m.put("vm.flagless", "true");
+        m.put("vm.gc", "null");
+        m.put("vm.gc.G1", "true");
+        m.put("vm.gc.Serial", "true");
+        m.put("vm.gc.Z", "true");
+        m.put("vm.compMode", "Xmixed");
+        m.put("vm.bits", "64");
+        m.put("vm.debug", "false");
+        m.put("vm.hasJFR", "true");
+        m.put("vm.cds", "true");
+        m.put("vm.jvmci", "false");
+        m.put("vm.graal.enabled", "false");
+        m.put("vm.compiler2.enabled", "true");
+        m.put("vm.continuations", "true");
+        m.put("vm.rtm.cpu", "false");
+        m.put("vm.rtm.compiler", "false");
+        m.put("vm.musl", "false");
+        m.put("vm.flavor", "server");
+        m.put("vm.opt.final.UseCompressedOops", "true");
+        m.put("vm.opt.final.ClassUnloading", "true");
+        return m;
+    }
+
+    /**
+     * A context for evaluating expressions with a fixed set of values,
+     * in which unknown names have the value "null", as in jtreg.
+     */
+    static class MapContext implements Expr.Context {
+        private final Map<String, String> values;
+
+        MapContext(Map<String, String> values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean isValidName(String name) {
+            return true;
+        }
+
+        @Override
+        public String get(String name) {
+            String v = values.get(name);
+            return (v == null) ? "null" : v;
+        }
+    }
+}
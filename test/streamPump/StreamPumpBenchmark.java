@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.javatest.regtest.util.StreamPump;
+
+/**
+ * Stress benchmark for copying the output of many noisy child processes,
+ * comparing a dedicated pair of threads per process, reading and writing
+ * line by line, with the shared {@link StreamPump}.
+ *
+ * For each mode, a number of processes are started concurrently, each of which
+ * writes many lines of output to both stdout and stderr. The lines written to
+ * stderr are scanned for a marker, as is done for the status of a test.
+ * The time is measured from starting the first process to copying all the output,
+ * and the peak number of live threads in this JVM is reported.
+ *
+ * Usage: StreamPumpBenchmark [processes [lines [iterations]]]
+ */
+public class StreamPumpBenchmark {
+    public static void main(String... args) throws Exception {
+        int processes = (args.length > 0) ? Integer.parseInt(args[0]) : 64;
+        int lines = (args.length > 1) ? Integer.parseInt(args[1]) : 100_000;
+        int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+        new StreamPumpBenchmark().run(processes, lines, iterations);
+    }
+
+    /**
+     * The class run in each child process to generate the output.
+     */
+    public static class Noisy {
+        public static void main(String... args) {
+            int lines = Integer.parseInt(args[0]);
+            PrintStream out = System.out;
+            PrintStream err = System.err;
+            for (int i = 0; i < lines; i++) {
+                out.println("stdout line " + i + ": 0123456789 abcdefghijklmnopqrstuvwxyz");
+                err.println("stderr line " + i + ": 0123456789 ABCDEFGHIJKLMNOPQRSTUVWXYZ");
+            }
+            err.println("MARKER");
+        }
+    }
+
+    enum Mode { THREADS, PUMP }
+
+    void run(int processes, int lines, int iterations) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long[] results = new long[Mode.values().length];
+        for (Mode mode : Mode.values()) {
+            long best = Long.MAX_VALUE;
+            int peak = 0;
+            for (int i = 0; i < iterations; i++) {
+                threads.resetPeakThreadCount();
+                long t = runProcesses(mode, processes, lines);
+                best = Math.min(best, t);
+                peak = Math.max(peak, threads.getPeakThreadCount());
+            }
+            results[mode.ordinal()] = best;
+            System.out.printf("%-7s: %d processes in %d ms; peak threads %d%n",
+                    mode, processes, best, peak);
+        }
+        System.out.printf("speedup: %.2fx%n",
+                (double) results[Mode.THREADS.ordinal()] / results[Mode.PUMP.ordinal()]);
+    }
+
+    /**
+     * Runs the given number of processes concurrently, copying their output.
+     *
+     * @return the time in milliseconds to copy all the output
+     */
+    long runProcesses(Mode mode, int processes, int lines) throws Exception {
+        long start = System.nanoTime();
+        List<Process> procs = new ArrayList<>();
+        List<Runnable> joins = new ArrayList<>();
+        AtomicLong chars = new AtomicLong();
+        AtomicLong markers = new AtomicLong();
+        for (int i = 0; i < processes; i++) {
+            List<String> cmd = new ArrayList<>();
+            cmd.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+            cmd.add("-classpath");
+            cmd.add(System.getProperty("java.class.path"));
+            cmd.add(Noisy.class.getName());
+            cmd.add(String.valueOf(lines));
+            Process p = new ProcessBuilder(cmd).start();
+            p.getOutputStream().close();
+            procs.add(p);
+            PrintWriter out = new PrintWriter(new CountingWriter(chars));
+            PrintWriter err = new PrintWriter(new CountingWriter(chars));
+            switch (mode) {
+                case THREADS: {
+                    Thread t1 = copyThread(p.getInputStream(), out, null);
+                    Thread t2 = copyThread(p.getErrorStream(), err, markers);
+                    joins.add(() -> join(t1));
+                    joins.add(() -> join(t2));
+                    break;
+                }
+                case PUMP: {
+                    StreamPump.Transfer t1 = StreamPump.copy(p.getInputStream(), out);
+                    StreamPump.Transfer t2 = StreamPump.copy(p.getErrorStream(), err,
+                            line -> scan(line, markers));
+                    joins.add(() -> join(t1));
+                    joins.add(() -> join(t2));
+                    break;
+                }
+            }
+        }
+        for (Runnable r : joins) {
+            r.run();
+        }
+        for (Process p : procs) {
+            expect(p.waitFor() == 0, "process failed");
+        }
+        long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        expect(markers.get() == processes, "unexpected number of markers: " + markers);
+        expect(chars.get() > 2L * processes * lines * 40, "not enough output: " + chars);
+        return time;
+    }
+
+    /**
+     * Creates and starts a thread to copy a stream line by line,
+     * in the same way as the previous implementation of {@code StreamCopier}.
+     */
+    Thread copyThread(InputStream in, PrintWriter out, AtomicLong markers) {
+        Thread t = new Thread(() -> {
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(in))) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    if (markers != null) {
+                        scan(line, markers);
+                    }
+                    out.println(line);
+                }
+            } catch (IOException ignore) {
+            }
+            out.flush();
+        });
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    void scan(String line, AtomicLong markers) {
+        if (line.startsWith("MARKER")) {
+            markers.incrementAndGet();
+        }
+    }
+
+    void join(Thread t) {
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            throw new Error(e);
+        }
+    }
+
+    void join(StreamPump.Transfer t) {
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            throw new Error(e);
+        }
+    }
+
+    void expect(boolean cond, String message) {
+        if (!cond) {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * A writer that discards its output, counting the number of characters written.
+     */
+    static class CountingWriter extends Writer {
+        private final AtomicLong count;
+
+        CountingWriter(AtomicLong count) {
+            this.count = count;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count.addAndGet(len);
+        }
+
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() { }
+    }
+}